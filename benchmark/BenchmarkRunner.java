@@ -0,0 +1,99 @@
+/**
+ * Times an operation over a number of warm up and measured iterations
+ * and prints the average time per operation.
+ * Each iteration repeats the operation until a time budget is used up
+ * so that both very fast and very slow operations get sensible results.
+ * @author Josiah Richards
+ * @version 1.0
+ */
+public class BenchmarkRunner {
+	
+	//The format of each result row.
+	private static final String ROW_FORMAT = "%-22s %-11s %-8s %5d %16.1f +- %12.1f  ns/op%n";
+	private static final String HEADER_FORMAT = "%-22s %-11s %-8s %5s %16s   %12s%n";
+	
+	//An operation to be benchmarked.
+	public interface Operation {
+		/**
+		 * Runs the operation once.
+		 * @return Any result of the operation(so it can't be optimised away).
+		 * @throws Exception If the operation fails.
+		 */
+		Object run() throws Exception;
+	}
+	
+	//Results are written here so the JIT can't remove operations
+	//that have unused results.
+	private static volatile Object sink;
+	
+	//How many warm up and measured iterations to run.
+	private int numWarmUpIterations;
+	private int numIterations;
+	//How long each iteration should take in nanoseconds.
+	private long iterationTimeNanos;
+	
+	/**
+	 * Creates a benchmark runner.
+	 * @param numWarmUpIterations How many iterations to run before measuring.
+	 * @param numIterations How many iterations to measure.
+	 * @param iterationTimeMillis How long each iteration should run for.
+	 */
+	public BenchmarkRunner(int numWarmUpIterations, int numIterations, long iterationTimeMillis) {
+		this.numWarmUpIterations = numWarmUpIterations;
+		this.numIterations = numIterations;
+		this.iterationTimeNanos = iterationTimeMillis * 1000000L;
+	}
+	
+	/**
+	 * Prints the header of the results table.
+	 */
+	public static void printHeader() {
+		System.out.printf(HEADER_FORMAT, "Benchmark", "(size)", "(density)", "Cnt", "Score", "Error");
+	}
+	
+	/**
+	 * Benchmarks an operation and prints the result.
+	 * @param name The name of the benchmark.
+	 * @param size The map size parameter.
+	 * @param density The entity density parameter.
+	 * @param operation The operation to time.
+	 * @throws Exception If the operation fails.
+	 */
+	public void run(String name, String size, double density, Operation operation) throws Exception {
+		for (int i = 0; i < numWarmUpIterations; i++) {
+			timeIteration(operation);
+		}
+		double[] results = new double[numIterations];
+		double total = 0d;
+		for (int i = 0; i < numIterations; i++) {
+			results[i] = timeIteration(operation);
+			total += results[i];
+		}
+		double mean = total / numIterations;
+		//Standard deviation of the iterations.
+		double variance = 0d;
+		for (int i = 0; i < numIterations; i++) {
+			variance += (results[i] - mean) * (results[i] - mean);
+		}
+		double error = numIterations > 1 ? Math.sqrt(variance / (numIterations - 1)) : 0d;
+		System.out.printf(ROW_FORMAT, name, size, Double.toString(density), numIterations, mean, error);
+	}
+	
+	/**
+	 * Runs an operation repeatedly for one iteration.
+	 * @param operation The operation to run.
+	 * @return The average nanoseconds per operation.
+	 * @throws Exception If the operation fails.
+	 */
+	private double timeIteration(Operation operation) throws Exception {
+		long numOps = 0;
+		long start = System.nanoTime();
+		long elapsed;
+		do {
+			sink = operation.run();
+			numOps++;
+			elapsed = System.nanoTime() - start;
+		} while (elapsed < iterationTimeNanos);
+		return (double) elapsed / numOps;
+	}
+}
@@ -0,0 +1,213 @@
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Benchmarks the hot paths of the game engine on generated maps of
+ * different sizes and entity densities.
+ * Usage: EngineBenchmarks [size=WxH,...] [density=D,...] [bench=name,...]
+ * [warmup=N] [iterations=N] [time=millis]
+ * Benchmarks: readMapFile, saveMapToFile, readBinaryMap, saveBinaryMap, readMappedMap,
+ * getPath, updateEnemies, triggerStepOns and render(needs the JavaFX toolkit, skipped without it).
+ * Must be run from the application folder so the sprites can be found.
+ * @author Josiah Richards
+ * @version 1.3
+ */
+public class EngineBenchmarks {
+	
+	//Default parameters, from the size of the bundled maps up to very large maps.
+	private static final String[] DEFAULT_SIZES = {"23x11", "100x100", "500x500", "2000x2000"};
+	private static final double[] DEFAULT_DENSITIES = {0.01d, 0.1d};
+	private static final String[] ALL_BENCHMARKS = {"readMapFile", "saveMapToFile", "readBinaryMap",
+													"saveBinaryMap", "readMappedMap", "getPath", "updateEnemies",
+													"updateEnemiesSequential", "triggerStepOns", "render"};
+	//The seed for generating maps so results can be reproduced.
+	private static final long MAP_SEED = 42L;
+	
+	/**
+	 * Runs the benchmarks.
+	 * @param args The command line arguments(see class description).
+	 * @throws Exception If a benchmark fails.
+	 */
+	public static void main(String[] args) throws Exception {
+		List<String> sizes = Arrays.asList(DEFAULT_SIZES);
+		double[] densities = DEFAULT_DENSITIES;
+		List<String> benchmarks = Arrays.asList(ALL_BENCHMARKS);
+		int warmUp = 3;
+		int iterations = 5;
+		long iterationTime = 500L;
+		
+		//Read any parameters given.
+		for (String arg : args) {
+			String[] keyValue = arg.split("=", 2);
+			if (keyValue.length != 2) {
+				continue;
+			}
+			switch (keyValue[0]) {
+				case "size":
+					sizes = Arrays.asList(keyValue[1].split(","));
+					break;
+				case "density":
+					String[] densityStrs = keyValue[1].split(",");
+					densities = new double[densityStrs.length];
+					for (int i = 0; i < densityStrs.length; i++) {
+						densities[i] = Double.parseDouble(densityStrs[i]);
+					}
+					break;
+				case "bench":
+					benchmarks = Arrays.asList(keyValue[1].split(","));
+					break;
+				case "warmup":
+					warmUp = Integer.parseInt(keyValue[1]);
+					break;
+				case "iterations":
+					iterations = Integer.parseInt(keyValue[1]);
+					break;
+				case "time":
+					iterationTime = Long.parseLong(keyValue[1]);
+					break;
+				default:
+					System.out.println("Unknown parameter " + keyValue[0]);
+			}
+		}
+		
+		BenchmarkRunner runner = new BenchmarkRunner(warmUp, iterations, iterationTime);
+		BenchmarkRunner.printHeader();
+		for (String size : sizes) {
+			String[] dims = size.split("x");
+			int width = Integer.parseInt(dims[0]);
+			int height = Integer.parseInt(dims[1]);
+			for (double density : densities) {
+				runForMap(runner, benchmarks, size, width, height, density);
+			}
+		}
+	}
+	
+	/**
+	 * Runs the chosen benchmarks on one generated map.
+	 * @param runner The runner to time the benchmarks with.
+	 * @param benchmarks The names of the benchmarks to run.
+	 * @param size The size parameter as text.
+	 * @param width The width of the map.
+	 * @param height The height of the map.
+	 * @param density The entity density of the map.
+	 * @throws Exception If a benchmark fails.
+	 */
+	private static void runForMap(BenchmarkRunner runner, List<String> benchmarks, String size,
+							int width, int height, double density) throws Exception {
+		//Generate the map file to read.
+		File mapFile = File.createTempFile("benchmark", ".map");
+		mapFile.deleteOnExit();
+		File saveFile = File.createTempFile("benchmark", ".save");
+		saveFile.deleteOnExit();
+		File binaryFile = File.createTempFile("benchmark", ".map");
+		binaryFile.deleteOnExit();
+		File mappedFile = File.createTempFile("benchmark", ".map");
+		mappedFile.deleteOnExit();
+		SyntheticMapGenerator.generateToFile(mapFile, width, height, density, MAP_SEED);
+		String mapPath = mapFile.getAbsolutePath();
+		String binaryPath = binaryFile.getAbsolutePath();
+		String mappedPath = mappedFile.getAbsolutePath();
+		Map textMap = MapReader.readMapFile(mapPath);
+		BinaryMapWriter.saveMapToFile(binaryFile, textMap);
+		BinaryMapWriter.saveMapToFile(mappedFile, textMap, true);
+		
+		for (String benchmark : benchmarks) {
+			//Each benchmark gets a freshly loaded map.
+			Simulation simulation = Simulation.load(mapPath);
+			Map map = simulation.getMap();
+			Player player = map.getPlayer();
+			
+			switch (benchmark) {
+				case "readMapFile":
+					runner.run(benchmark, size, density, () -> MapReader.readMapFile(mapPath));
+					break;
+				case "saveMapToFile":
+					runner.run(benchmark, size, density, () -> {
+						MapWriter.saveMapToFile(saveFile, map);
+						return saveFile;
+					});
+					break;
+				case "readBinaryMap":
+					runner.run(benchmark, size, density, () -> MapReader.readMapFile(binaryPath));
+					break;
+				case "readMappedMap":
+					runner.run(benchmark, size, density, () -> MapReader.readMapFile(mappedPath));
+					break;
+				case "saveBinaryMap":
+					runner.run(benchmark, size, density, () -> {
+						BinaryMapWriter.saveMapToFile(saveFile, map);
+						return saveFile;
+					});
+					break;
+				case "getPath":
+					Vector2 start = new Vector2(player.getGridCoords());
+					Vector2 end = findFurthestOpenCell(map);
+					runner.run(benchmark, size, density, 
+							() -> map.getPathFinder().getPath(start, end, player));
+					break;
+				case "updateEnemies":
+					runner.run(benchmark, size, density, () -> {
+						map.updateEnemies();
+						return map;
+					});
+					break;
+				case "updateEnemiesSequential":
+					//The same as updateEnemies with the enemies deciding their moves one at a time.
+					map.setParallelEnemyUpdate(false);
+					runner.run(benchmark, size, density, () -> {
+						map.updateEnemies();
+						return map;
+					});
+					break;
+				case "triggerStepOns":
+					//The player starts on a hint block so there's always something to step on.
+					Direction noDirection = new Direction(Direction.DIR_NONE);
+					runner.run(benchmark, size, density, () -> {
+						map.triggerStepOns(player, noDirection);
+						return map;
+					});
+					break;
+				case "render":
+					runRenderBenchmark(runner, size, density, map);
+					break;
+				default:
+					System.out.println("Unknown benchmark " + benchmark);
+			}
+		}
+	}
+	
+	/**
+	 * Runs the render benchmark if the JavaFX toolkit can be started.
+	 * @param runner The runner to time the benchmark with.
+	 * @param size The size parameter as text.
+	 * @param density The entity density of the map.
+	 * @param map The map to render.
+	 * @throws Exception If the benchmark fails.
+	 */
+	private static void runRenderBenchmark(BenchmarkRunner runner, String size, 
+									double density, Map map) throws Exception {
+		try {
+			RenderBenchmark.run(runner, size, density, map);
+		} catch (LinkageError | IllegalStateException | UnsupportedOperationException e) {
+			System.out.println("Skipping render benchmark, JavaFX unavailable: " + e);
+		}
+	}
+	
+	/**
+	 * Finds the bottom right most cell the player could walk to.
+	 * @param map The map to search.
+	 * @return The grid coordinates of the cell.
+	 */
+	private static Vector2 findFurthestOpenCell(Map map) {
+		for (int y = map.getHeight() - 1; y >= 0; y--) {
+			for (int x = map.getWidth() - 1; x >= 0; x--) {
+				if (map.getCellAt(x, y) instanceof Ground || map.getCellAt(x, y) instanceof Goal) {
+					return new Vector2(x, y);
+				}
+			}
+		}
+		return new Vector2(map.getPlayer().getGridCoords());
+	}
+}
@@ -0,0 +1,56 @@
+import java.util.concurrent.CountDownLatch;
+import javafx.application.Platform;
+import javafx.scene.canvas.Canvas;
+
+/**
+ * Benchmarks rendering a map onto an offscreen canvas.
+ * Kept separate from the other benchmarks so they can run without JavaFX.
+ * @author Josiah Richards
+ * @version 1.0
+ */
+public class RenderBenchmark {
+	
+	//The camera the level UI uses.
+	private static final Vector2 CAMERA_SIZE = new Vector2(9, 9);
+	
+	//If the JavaFX toolkit has been started.
+	private static boolean toolkitStarted = false;
+	
+	/**
+	 * Benchmarks rendering a map.
+	 * @param runner The runner to time the benchmark with.
+	 * @param size The size parameter as text.
+	 * @param density The entity density of the map.
+	 * @param map The map to render.
+	 * @throws Exception If the benchmark fails.
+	 */
+	public static void run(BenchmarkRunner runner, String size, double density, Map map) throws Exception {
+		startToolkit();
+		//Canvases that aren't in a scene can be drawn on from any thread.
+		Canvas canvas = new Canvas(CAMERA_SIZE.getX() * Map.GRID_DIMENSION,
+									CAMERA_SIZE.getY() * Map.GRID_DIMENSION);
+		map.setCamera(new Camera(new Vector2(CAMERA_SIZE)));
+		MapRenderer renderer = new MapRenderer(map);
+		runner.run("render", size, density, () -> {
+			//Measure a full repaint(as when the camera scrolls),
+			//otherwise nothing has changed since the last render.
+			renderer.markAllDirty();
+			renderer.render(canvas.getGraphicsContext2D());
+			return canvas;
+		});
+	}
+	
+	/**
+	 * Starts the JavaFX toolkit if it hasn't been started already
+	 * (images can't be loaded without it).
+	 * @throws InterruptedException If interrupted while waiting for it to start.
+	 */
+	private static void startToolkit() throws InterruptedException {
+		if (!toolkitStarted) {
+			CountDownLatch started = new CountDownLatch(1);
+			Platform.startup(() -> started.countDown());
+			started.await();
+			toolkitStarted = true;
+		}
+	}
+}
@@ -0,0 +1,136 @@
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Generates map files of any size and entity density from a seed so that
+ * benchmark results can be reproduced.
+ * Walls, water and fire are only ever put on cells where both x and y are even,
+ * so every odd row and column is always open and every ground cell can be
+ * reached from the start.
+ * @author Josiah Richards
+ * @version 1.0
+ */
+public class SyntheticMapGenerator {
+	
+	//Chance of an even x and even y cell being an obstacle.
+	private static final double OBSTACLE_CHANCE = 0.5d;
+	//Of the obstacles, the chance of them being water or fire instead of wall.
+	private static final double WATER_CHANCE = 0.1d;
+	private static final double FIRE_CHANCE = 0.1d;
+	//The different types of entity generated and how likely each is.
+	private static final String[] ENTITY_FORMATS = {
+		"%d,%d,token,1",
+		"%d,%d,key,red",
+		"%d,%d,boot,fire",
+		"%d,%d,hintblock,Generated hint",
+		"%d,%d,enemy,straight,right",
+		"%d,%d,enemy,follow,up,left",
+		"%d,%d,enemy,dumb,right",
+		"%d,%d,enemy,smart,right"
+	};
+	private static final double[] ENTITY_WEIGHTS = {0.4d, 0.05d, 0.05d, 0.1d, 0.15d, 0.1d, 0.1d, 0.05d};
+	
+	/**
+	 * Generates the contents of a map file.
+	 * The player starts at (1, 1) standing on a hint block and the goal is
+	 * the bottom right most open cell.
+	 * @param width How many cells across the map should be(at least 3).
+	 * @param height How many cells down the map should be(at least 3).
+	 * @param entityDensity The chance of each open cell having an entity(0 to 1).
+	 * @param seed The seed for the random generation.
+	 * @return The map file contents.
+	 */
+	public static String generate(int width, int height, double entityDensity, long seed) {
+		Random random = new Random(seed);
+		StringBuilder layout = new StringBuilder(width * height + height * 2);
+		StringBuilder metadata = new StringBuilder();
+		
+		//The bottom right most cell that's always open.
+		int goalX = (width - 2) % 2 == 1 ? width - 2 : width - 3;
+		int goalY = (height - 2) % 2 == 1 ? height - 2 : height - 3;
+		
+		layout.append(width).append(',').append(height).append(GlobalInfo.NEW_LINE);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				char symbol;
+				if (x == 0 || y == 0 || x == width - 1 || y == height - 1) {
+					symbol = Wall.SYMBOL;
+				} else if (x == goalX && y == goalY) {
+					symbol = Goal.SYMBOL;
+				} else if (x % 2 == 0 && y % 2 == 0 && random.nextDouble() < OBSTACLE_CHANCE) {
+					double obstacleType = random.nextDouble();
+					if (obstacleType < WATER_CHANCE) {
+						symbol = Water.SYMBOL;
+					} else if (obstacleType < WATER_CHANCE + FIRE_CHANCE) {
+						symbol = Fire.SYMBOL;
+					} else {
+						symbol = Wall.SYMBOL;
+					}
+				} else {
+					symbol = Ground.SYMBOL;
+					//Maybe put an entity on this ground, never on the start.
+					if (!(x == 1 && y == 1) && random.nextDouble() < entityDensity) {
+						metadata.append(String.format(chooseEntityFormat(random), x, y));
+						metadata.append(GlobalInfo.NEW_LINE);
+					}
+				}
+				layout.append(symbol);
+			}
+			layout.append(GlobalInfo.NEW_LINE);
+		}
+		
+		layout.append("1,1,START").append(GlobalInfo.NEW_LINE);
+		layout.append("1,1,hintblock,Start").append(GlobalInfo.NEW_LINE);
+		layout.append(metadata);
+		return layout.toString();
+	}
+	
+	/**
+	 * Generates a map and writes it to a file.
+	 * @param mapFile The file to write the map to.
+	 * @param width How many cells across the map should be.
+	 * @param height How many cells down the map should be.
+	 * @param entityDensity The chance of each open cell having an entity(0 to 1).
+	 * @param seed The seed for the random generation.
+	 * @throws IOException If the file couldn't be written.
+	 */
+	public static void generateToFile(File mapFile, int width, int height, 
+								double entityDensity, long seed) throws IOException {
+		FileWriter writer = new FileWriter(mapFile);
+		writer.write(generate(width, height, entityDensity, seed));
+		writer.close();
+	}
+	
+	/**
+	 * Picks a random entity format using the entity weights.
+	 * @param random The random number generator to use.
+	 * @return The meta information format of the chosen entity.
+	 */
+	private static String chooseEntityFormat(Random random) {
+		double choice = random.nextDouble();
+		for (int i = 0; i < ENTITY_FORMATS.length; i++) {
+			choice -= ENTITY_WEIGHTS[i];
+			if (choice < 0) {
+				return ENTITY_FORMATS[i];
+			}
+		}
+		return ENTITY_FORMATS[0];
+	}
+	
+	/**
+	 * Writes a generated map to a file.
+	 * Usage: SyntheticMapGenerator outputFile width height entityDensity seed
+	 * @param args The command line arguments.
+	 * @throws IOException If the file couldn't be written.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 5) {
+			System.out.println("Usage: SyntheticMapGenerator outputFile width height entityDensity seed");
+			return;
+		}
+		generateToFile(new File(args[0]), Integer.parseInt(args[1]), Integer.parseInt(args[2]),
+				Double.parseDouble(args[3]), Long.parseLong(args[4]));
+	}
+}
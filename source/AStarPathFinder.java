@@ -1,31 +1,78 @@
-import java.util.PriorityQueue;
-import java.util.Stack;
+import java.util.Arrays;
 
 /**
- * Gets a path from a start coordinate to a target coordinate 
+ * Gets a path from a start coordinate to a target coordinate
  * on a given map.
+ * Works on grid indices (y * width + x). A search only looks within SEARCH_RADIUS
+ * of the start point(there's no path to points further away), and its working
+ * memory is kept in pages of that area that are only created once the search
+ * reaches them, so the memory used follows the area searched rather than the size
+ * of the map. Working memory is kept between searches, so once it's grown a
+ * search creates no garbage.
+ * Get a map's shared path finder with Map.getPathFinder().
+ * Only one search can run on a path finder at a time.
  * @author Josiah Richards
- * @version 1.2
+ * @version 3.0
  */
 public class AStarPathFinder {
-	
+
+	//The value returned when there's no path.
+	public static final int NO_PATH = -1;
+
+	//The grid index offsets of the neighbours, in the order they're checked
+	//(up, right, down, left).
+	private static final int[] NEIGHBOUR_X = {0, 1, 0, -1};
+	private static final int[] NEIGHBOUR_Y = {-1, 0, 1, 0};
+	//How many bits the f cost is shifted by in a heap key
+	//(the h cost goes in the bits below to break ties).
+	private static final int F_COST_SHIFT = 32;
+	//How far(in steps across or down) a search can go from its start point.
+	private static final int SEARCH_RADIUS = 128;
+	//The g cost of grid indices the search hasn't visited.
+	private static final int UNVISITED = Integer.MAX_VALUE;
+	//How many steps the path buffer holds to begin with.
+	private static final int INITIAL_PATH_CAPACITY = 64;
+
 	//The map we're path finding on.
 	private Map map;
-	//The list of open nodes, ordered by the cheapest traversal cost
-	//(best path).
-	private PriorityQueue<AStarNode> openList;
-	//Current array of nodes(both open an closed) created where each index
-	//matches a index in the grid of the map.
-	private AStarNode[][] nodes;
-	
+	//The size of the map.
+	private int width;
+	private int height;
+	//The size of the area a search covers(the whole map if it's small enough).
+	private int areaWidth;
+	private int areaHeight;
+	//The cheapest known cost (number of steps) to get to each grid index
+	//from the start, UNVISITED if the search hasn't got to it.
+	private PagedIntGrid gCosts;
+	//The grid index we came from to get to each grid index.
+	private PagedIntGrid parents;
+	//If each grid index has been closed(1 if it has).
+	private PagedIntGrid closed;
+	//The open grid indices ordered by f cost, then h cost.
+	private IndexedMinHeap openList;
+	//The grid indices of the last path found, from the end point backwards.
+	private int[] pathBuffer;
+	//The number of steps in the last path found.
+	private int pathLength;
+
 	/**
 	 * Creates a new path finder object for a given map.
 	 * @param map The map to find paths on.
 	 */
 	public AStarPathFinder(Map map) {
 		this.map = map;
+		width = map.getWidth();
+		height = map.getHeight();
+		areaWidth = Math.min(width, SEARCH_RADIUS * 2 + 1);
+		areaHeight = Math.min(height, SEARCH_RADIUS * 2 + 1);
+		gCosts = new PagedIntGrid(areaWidth, areaHeight, UNVISITED);
+		parents = new PagedIntGrid(areaWidth, areaHeight, 0);
+		closed = new PagedIntGrid(areaWidth, areaHeight, 0);
+		openList = new IndexedMinHeap(width, areaWidth, areaHeight);
+		pathBuffer = new int[INITIAL_PATH_CAPACITY];
+		pathLength = 0;
 	}
-	
+
 	/**
 	 * Gets the path(if any) from a start point on the map to an
 	 * end point on the map for a given moving entity.
@@ -36,136 +83,186 @@ public class AStarPathFinder {
 	 * 			point to (including) the end point.
 	 */
 	public Vector2[] getPath(Vector2 startPoint, Vector2 endPoint, Moving moving) {
-		
-		//Initialise the all and open node lists.
-		nodes = new AStarNode[map.getGridDimensions().getX()][map.getGridDimensions().getY()];
-		openList = new PriorityQueue<AStarNode>(new AStarNodeComparator());
-		
-		//Create a closed node for the start point.
-		AStarNode currentNode = new AStarNode(null, startPoint, endPoint);
-		currentNode.setIsClosed(true);
-		nodes[startPoint.getX()][startPoint.getY()] = currentNode;
-		
-		//While there's still more nodes to check or we've found the end point
-		while (currentNode != null && !currentNode.getGridCoord().equals(endPoint)) {
-			
-			//Check the current node's neighbours
-			processNeighbour(currentNode.getGridCoord().addXYCreateNew(0, -1),
-					endPoint, currentNode, moving); // Up
-			processNeighbour(currentNode.getGridCoord().addXYCreateNew(1, 0),
-					endPoint, currentNode, moving); // Right
-			processNeighbour(currentNode.getGridCoord().addXYCreateNew(0, 1),
-					endPoint, currentNode, moving);// Down
-			processNeighbour(currentNode.getGridCoord().addXYCreateNew(-1, 0),
-					endPoint, currentNode, moving);// Left
-			
-			
-			//Get lowest f cost(lowest heuristic if multiple) and update current accordingly
-			currentNode = openList.poll();
-			if (currentNode != null) {
-				currentNode.setIsClosed(true);
-			}
+		if (findPath(startPoint.getX(), startPoint.getY(),
+				endPoint.getX(), endPoint.getY(), moving) == NO_PATH) {
+			return new Vector2[0];
 		}
-		
-		//Start at the last(end point) node and go backwards adding all the
-		//nodes onto a stack to get the path but backwards.
-		Stack<Vector2> pathStack = new Stack<Vector2>();
-		int pathLength = 0;
-		while (currentNode != null && currentNode.getParent() != null) {
-			pathLength++;
-			pathStack.add(currentNode.getGridCoord());
-			currentNode = currentNode.getParent();
-		}
-		
-		//Pop all the nodes off the stack to reverse the backwards path we found
-		//to get the final path.
+
+		//The path buffer is backwards so fill the array from the end.
 		Vector2[] finalPath = new Vector2[pathLength];
 		for (int i = 0; i < pathLength; i++) {
-			finalPath[i] = pathStack.pop();
+			int index = pathBuffer[i];
+			finalPath[pathLength - 1 - i] = new Vector2(index % width, index / width);
 		}
-		
 		return finalPath;
 	}
-	
+
 	/**
-	 * Checks if a coordinate shouldn't be considered when
-	 * finding a path.
-	 * @param coord The coordinate to check.
-	 * @param moving The moving entity that must be able to traverse the node.
-	 * @return True if this coordinate should be ignored, false otherwise.
+	 * Gets the grid index of the first step on the path from a start
+	 * coordinate to an end coordinate for a given moving entity.
+	 * @param startX The x coordinate to start on.
+	 * @param startY The y coordinate to start on.
+	 * @param endX The x coordinate to find a path to.
+	 * @param endY The y coordinate to find a path to.
+	 * @param moving The moving entity that must be able to traverse the path.
+	 * @return The grid index (y * width + x) of the first step,
+	 * 			or NO_PATH if there isn't a path (or the start is the end).
 	 */
-	public boolean shouldIgnore(Vector2 coord, Moving moving) {
-		//Check that the coordinate is on the map.
-		if (nodes.length > coord.getX() && nodes[0].length > coord.getY()) {
-			//Check that the node isn't closed(if it exists)
-			if (nodes[coord.getX()][coord.getY()] == null || 
-					!nodes[coord.getX()][coord.getY()].getIsClosed()) {
-				//Check that the moving entity traverse the coordinate.
-				if (moving.canWalkOn(coord)) {
-					return false;
-				}
-			}
+	public int getFirstStep(int startX, int startY, int endX, int endY, Moving moving) {
+		if (findPath(startX, startY, endX, endY, moving) == NO_PATH || pathLength == 0) {
+			return NO_PATH;
 		}
-		return true;
+		return pathBuffer[pathLength - 1];
 	}
-	
+
 	/**
-	 * Updates the traversal cost of a neighbouring coordinate
-	 * and adds its node to the open list.
-	 * The end point node costs 0.
-	 * @param neighbourCoord The coordinate of this neighbour.
-	 * @param endPoint The coordinate we're finding a path to
-	 * @param currentNode The node we came from to get to this neighbour.
+	 * Finds the shortest path from a start coordinate to an end coordinate
+	 * for a given moving entity.
+	 * The end point is always allowed, even if the moving entity can't
+	 * walk on it (e.g. the player an enemy is chasing).
+	 * Only paths within SEARCH_RADIUS of the start point are found.
+	 * @param startX The x coordinate to start on.
+	 * @param startY The y coordinate to start on.
+	 * @param endX The x coordinate to find a path to.
+	 * @param endY The y coordinate to find a path to.
 	 * @param moving The moving entity that must be able to traverse the path.
+	 * @return The number of steps in the path, or NO_PATH if there isn't one.
 	 */
-	public void processNeighbour(Vector2 neighbourCoord, Vector2 endPoint, 
-									AStarNode currentNode, Moving moving) {
-		//If this neighbour is our end point
-		if (neighbourCoord.equals(endPoint)) {
-			//Create a 0 cost node in the open list for
-			//the end point.
-			AStarNode neighbour = new AStarNode(currentNode, neighbourCoord, endPoint);
-			neighbour.setFCost(0);
-			nodes[neighbourCoord.getX()][neighbourCoord.getY()] = neighbour;
-			openList.add(neighbour);
-		//Otherwise check that we shouldn't ignore this neighbour
-		} else if(!shouldIgnore(neighbourCoord, moving)) {
-			
-			//Check if a node already exists for this
-			//neighbour coordinate.
-			//Skip F check means skip checking if we should update
-			//the f cost of this node(as if it's a new node this isn't necessary).
-			boolean skipFCheck = false;
-			AStarNode neighbourNode = nodes[neighbourCoord.getX()][neighbourCoord.getY()];
-			if (neighbourNode == null) {
-				//If a node doesn't already exist for this neighbour,
-				//create it
-				neighbourNode = new AStarNode(currentNode, neighbourCoord, endPoint);
-				neighbourNode.updateFCost();
-				nodes[neighbourCoord.getX()][neighbourCoord.getY()] = neighbourNode;
-				//We'll always have to update the f cost of a new node.
-				skipFCheck = true;
+	public int findPath(int startX, int startY, int endX, int endY, Moving moving) {
+		pathLength = 0;
+		if (!isInBounds(startX, startY) || !isInBounds(endX, endY)) {
+			return NO_PATH;
+		}
+
+		startSearchArea(startX, startY);
+		if (!gCosts.isInArea(endX, endY)) {
+			//Too far away to search for.
+			return NO_PATH;
+		}
+		int start = startY * width + startX;
+		int end = endY * width + endX;
+
+		//Open the start point.
+		visit(start, start, 0);
+		openList.insertOrUpdate(start, makeKey(0, heuristic(startX, startY, endX, endY)));
+
+		//While there's still more nodes to check
+		while (!openList.isEmpty()) {
+			//Get lowest f cost(lowest heuristic if multiple) and close it.
+			int current = openList.poll();
+			if (current == end) {
+				return buildPath(start, end);
 			}
-			
-			//Check if we should update the f cost of this neighbour node,
-			//for a pre-existing node we check if coming to this neighbour node
-			//from our new current node is cheaper than the previous f cost.
-			if(skipFCheck || neighbourNode.calcFCost(currentNode) < neighbourNode.getFCost()) {
-				//Make the parent of this neighbour node the current node
-				//we came from as this is a cheaper path.
-				neighbourNode.setParent(currentNode);
-				neighbourNode.updateFCost();
-				
-				//Remove this node from the open list priority queue
-				//and re-add it so it's positioned correctly in the queue.
-				if (openList.contains(neighbourNode)) {
-					
-					openList.remove(neighbourNode);
+			int currentX = current % width;
+			int currentY = current / width;
+			closed.set(currentX, currentY, 1);
+			int neighbourG = gCosts.get(currentX, currentY) + 1;
+
+			//Check the current node's neighbours
+			for (int i = 0; i < NEIGHBOUR_X.length; i++) {
+				int x = currentX + NEIGHBOUR_X[i];
+				int y = currentY + NEIGHBOUR_Y[i];
+				if (gCosts.isInArea(x, y)) {
+					int neighbour = y * width + x;
+					if (closed.get(x, y) == 0
+							&& (neighbour == end || moving.canWalkOn(x, y))) {
+						//Only update the neighbour if this is a cheaper way to it
+						//(unvisited grid indices cost the most).
+						if (neighbourG < gCosts.get(x, y)) {
+							visit(neighbour, current, neighbourG);
+							int h = heuristic(x, y, endX, endY);
+							openList.insertOrUpdate(neighbour, makeKey(neighbourG + h, h));
+						}
+					}
 				}
-				openList.add(neighbourNode);
 			}
-			
 		}
+
+		return NO_PATH;
+	}
+
+	/**
+	 * Walks back from the end point to the start point through the parents,
+	 * storing the path (backwards) in the path buffer.
+	 * @param start The grid index of the start point.
+	 * @param end The grid index of the end point.
+	 * @return The number of steps in the path.
+	 */
+	private int buildPath(int start, int end) {
+		int current = end;
+		while (current != start) {
+			if (pathLength == pathBuffer.length) {
+				pathBuffer = Arrays.copyOf(pathBuffer, pathBuffer.length * 2);
+			}
+			pathBuffer[pathLength] = current;
+			pathLength++;
+			current = parents.get(current % width, current / width);
+		}
+		return pathLength;
+	}
+
+	/**
+	 * Records the cost and parent of a grid index for this search.
+	 * @param index The grid index.
+	 * @param parent The grid index we came from.
+	 * @param gCost The number of steps from the start.
+	 */
+	private void visit(int index, int parent, int gCost) {
+		int x = index % width;
+		int y = index / width;
+		parents.set(x, y, parent);
+		gCosts.set(x, y, gCost);
+	}
+
+	/**
+	 * Forgets the last search and moves the area searched so it's centred
+	 * on a start point(as far as the edges of the map allow).
+	 * @param startX The x coordinate of the start point.
+	 * @param startY The y coordinate of the start point.
+	 */
+	private void startSearchArea(int startX, int startY) {
+		int minX = Math.max(0, Math.min(width - areaWidth, startX - SEARCH_RADIUS));
+		int minY = Math.max(0, Math.min(height - areaHeight, startY - SEARCH_RADIUS));
+		int maxX = minX + areaWidth - 1;
+		int maxY = minY + areaHeight - 1;
+		gCosts.setArea(minX, minY, maxX, maxY);
+		parents.setArea(minX, minY, maxX, maxY);
+		closed.setArea(minX, minY, maxX, maxY);
+		openList.setArea(minX, minY, maxX, maxY);
+	}
+
+	/**
+	 * Checks if a coordinate is on the map.
+	 * @param x The x coordinate.
+	 * @param y The y coordinate.
+	 * @return True if the coordinate is on the map, false otherwise.
+	 */
+	private boolean isInBounds(int x, int y) {
+		return x >= 0 && y >= 0 && x < width && y < height;
+	}
+
+	/**
+	 * Calculates the heuristic(h) cost of going from a coordinate to
+	 * the target using the Manhattan heuristic
+	 * (the x difference + y difference between the 2 coordinates).
+	 * @param x The x coordinate.
+	 * @param y The y coordinate.
+	 * @param endX The target x coordinate.
+	 * @param endY The target y coordinate.
+	 * @return The heuristic cost.
+	 */
+	private static int heuristic(int x, int y, int endX, int endY) {
+		return Math.abs(x - endX) + Math.abs(y - endY);
+	}
+
+	/**
+	 * Makes the heap key for an f cost and h cost, so nodes are ordered by
+	 * f cost and then by h cost.
+	 * @param fCost The total cost.
+	 * @param hCost The heuristic cost.
+	 * @return The heap key.
+	 */
+	private static long makeKey(int fCost, int hCost) {
+		return ((long) fCost << F_COST_SHIFT) | hCost;
 	}
-	
 }
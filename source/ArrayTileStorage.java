@@ -0,0 +1,36 @@
+/**
+ * Stores the tiles of a map in memory, 1 byte per grid coordinate.
+ * @author Josiah Richards
+ * @version 1.0
+ */
+public class ArrayTileStorage implements TileStorage {
+	
+	//The tile at each grid index.
+	private byte[] tiles;
+	
+	/**
+	 * Creates storage where every tile is 0(no cell).
+	 * @param size The number of grid coordinates.
+	 */
+	public ArrayTileStorage(int size) {
+		tiles = new byte[size];
+	}
+	
+	/**
+	 * Creates storage holding tiles that have already been read.
+	 * @param tiles The tile at each grid index(used directly, not copied).
+	 */
+	public ArrayTileStorage(byte[] tiles) {
+		this.tiles = tiles;
+	}
+	
+	@Override
+	public int getTile(int index) {
+		return tiles[index] & 0xFF;
+	}
+	
+	@Override
+	public void setTile(int index, int tile) {
+		tiles[index] = (byte) tile;
+	}
+}
@@ -0,0 +1,110 @@
+import java.awt.Color;
+
+/**
+ * The constants describing the binary map file format, shared by
+ * BinaryMapReader and BinaryMapWriter.
+ * A binary map file is:
+ * - The magic bytes "SJMB", a version byte and a flags byte(from version 2).
+ * - If FLAG_RAW_TILES is set, the width and height(4 bytes each) and the tile
+ *   plane uncompressed, so the tiles are at a fixed place in the file and can be
+ *   memory mapped(see MappedTileStorage). The records follow deflate compressed.
+ * - Otherwise everything else is deflate compressed:
+ *   - The width and height.
+ *   - The tile plane.
+ *   - The records.
+ * The tile plane is 1 byte per grid coordinate (row by row) holding the
+ * cell symbol at that coordinate, or 0 if there's no cell.
+ * Records are each a type byte followed by its fields, ending with RECORD_END.
+ * These hold everything the text format puts in its metadata lines.
+ * Numbers in records are written with VarIntUtils so small numbers take up 1 byte.
+ * @author Josiah Richards
+ * @version 1.3
+ */
+public class BinaryMapFormat {
+
+	//The bytes every binary map file starts with.
+	public static final byte[] MAGIC = {'S', 'J', 'M', 'B'};
+	//The version of the format written, readers reject newer versions.
+	public static final int VERSION = 2;
+	//The first version with a flags byte.
+	public static final int FLAGS_VERSION = 2;
+	//The size of the header with the raw tile plane's dimensions
+	//(magic, version, flags, width and height).
+	public static final int RAW_TILES_HEADER_SIZE = MAGIC.length + 2 + 8;
+	
+	//Flags.
+	//The tile plane is stored uncompressed at RAW_TILES_HEADER_SIZE.
+	public static final int FLAG_RAW_TILES = 1;
+	//The tile plane value for a grid coordinate with no cell.
+	public static final int EMPTY_TILE = 0;
+
+	//Record types.
+	public static final int RECORD_END = 0;
+	//x, y (the player's spawn)
+	public static final int RECORD_START = 1;
+	//x, y, amount
+	public static final int RECORD_TOKEN = 2;
+	//x, y, teleport to x, teleport to y
+	public static final int RECORD_TELEPORTER = 3;
+	//x, y, tokens required
+	public static final int RECORD_TOKEN_DOOR = 4;
+	//x, y, colour
+	public static final int RECORD_COLOURED_DOOR = 5;
+	//x, y, colour
+	public static final int RECORD_KEY = 6;
+	//last time
+	public static final int RECORD_TIME = 7;
+	//x, y, boot type
+	public static final int RECORD_BOOT = 8;
+	//x, y
+	public static final int RECORD_PUSH_BLOCK = 9;
+	//x, y, hint
+	public static final int RECORD_HINT_BLOCK = 10;
+	//followed by the item's own record
+	public static final int RECORD_INVENTORY_ITEM = 11;
+	//number of tokens
+	public static final int RECORD_INVENTORY_TOKENS = 12;
+	//x, y, movement, facing x, facing y, follow right
+	public static final int RECORD_ENEMY = 13;
+	//a line of text format metadata(for anything without a record type of its own)
+	public static final int RECORD_TEXT = 14;
+	//tick
+	public static final int RECORD_TICK = 15;
+	//seed(8 bytes, it uses all of them)
+	public static final int RECORD_SEED = 16;
+
+	//Enemy movement types.
+	public static final int MOVEMENT_STRAIGHT = 0;
+	public static final int MOVEMENT_FOLLOW = 1;
+	public static final int MOVEMENT_SMART = 2;
+	public static final int MOVEMENT_DUMB = 3;
+
+	//The colours that can be written, stored as their index.
+	private static final Color[] COLOURS = {Color.RED, Color.GREEN, Color.BLUE, Color.YELLOW};
+
+	/**
+	 * Gets the number a colour is written as.
+	 * @param colour The colour.
+	 * @return The colour's number, or -1 if it can't be written.
+	 */
+	public static int colourToCode(Color colour) {
+		for (int i = 0; i < COLOURS.length; i++) {
+			if (COLOURS[i].equals(colour)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Gets the colour a number stands for.
+	 * @param code The colour's number.
+	 * @return The colour, or null if the number isn't a colour.
+	 */
+	public static Color codeToColour(int code) {
+		if (code < 0 || code >= COLOURS.length) {
+			return null;
+		}
+		return COLOURS[code];
+	}
+}
@@ -0,0 +1,470 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.net.MalformedURLException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Class that reads a binary map file (see BinaryMapFormat) to create a map.
+ * The tile plane is read a row at a time and records are applied in the order
+ * they were written, so the map is set up exactly as MapReader would set it up
+ * from the same map in the text format.
+ * Files with raw tiles have their tiles memory mapped instead of read, and cells
+ * are only created when they're looked at, so opening a very large map only
+ * costs what's actually used of it. Records are still all read up front.
+ * @author Josiah Richards
+ * @version 1.4
+ */
+public class BinaryMapReader {
+
+	//The size of the read buffer.
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	//Error messages
+	private static final String HEADER_ERROR_MSG = "Not a binary map file.";
+	private static final String VERSION_ERROR_MSG = "Unsupported binary map version %d (newest supported is %d).";
+	private static final String DIMENSIONS_ERROR_MSG = "Failed to read map dimensions.";
+	private static final String CELLS_ERROR_MSG = "Failed to read map cells (row %d).";
+	private static final String RECORD_ERROR_MSG = "Failed to read map record %d: %s";
+	private static final String TRUNCATED_ERROR_MSG = "Map file ended early";
+
+	/**
+	 * Checks if a stream holds a binary map, without reading from it.
+	 * @param in The stream to check, it must support mark and reset.
+	 * @return True if the stream starts with the binary map magic bytes.
+	 * @throws IOException If the stream couldn't be read.
+	 */
+	public static boolean isBinaryMap(InputStream in) throws IOException {
+		in.mark(BinaryMapFormat.MAGIC.length);
+		try {
+			for (int i = 0; i < BinaryMapFormat.MAGIC.length; i++) {
+				if (in.read() != BinaryMapFormat.MAGIC[i]) {
+					return false;
+				}
+			}
+			return true;
+		} finally {
+			in.reset();
+		}
+	}
+
+	/**
+	 * Reads a binary map file and creates
+	 * a new Map object set up with the information read.
+	 * If the file has raw tiles they're memory mapped rather than read.
+	 * @param filename The full path to the map file.
+	 * @return The newly created Map object set up with the information read.
+	 * @throws FileNotFoundException If the map file couldn't be found.
+	 * @throws ParsingException If the map file couldn't be parsed.
+	 */
+	public static Map readMapFile(String filename) throws FileNotFoundException, ParsingException {
+		return readMapFile(filename, 0L);
+	}
+
+	/**
+	 * Reads a binary map file and creates
+	 * a new Map object set up with the information read.
+	 * If the file has raw tiles they're memory mapped rather than read,
+	 * and can be streamed in chunks so only the tiles being used are kept
+	 * in memory(see ChunkedTileStorage).
+	 * @param filename The full path to the map file.
+	 * @param chunkMemoryBudget How many bytes of tiles to keep in memory
+	 * 			when streaming chunks, 0 to not stream chunks.
+	 * @return The newly created Map object set up with the information read.
+	 * @throws FileNotFoundException If the map file couldn't be found.
+	 * @throws ParsingException If the map file couldn't be parsed.
+	 */
+	public static Map readMapFile(String filename, long chunkMemoryBudget)
+			throws FileNotFoundException, ParsingException {
+		FileChannel channel = new RandomAccessFile(new File(filename), "r").getChannel();
+		InputStream in = new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE);
+		Inflater inflater = new Inflater();
+		try {
+			//Check the header for raw tiles without moving through the file.
+			ByteBuffer header = ByteBuffer.allocate(BinaryMapFormat.RAW_TILES_HEADER_SIZE);
+			int numRead = 0;
+			while (header.hasRemaining() && numRead >= 0) {
+				numRead = channel.read(header, header.position());
+			}
+			DataInputStream headerData = new DataInputStream(
+								new ByteArrayInputStream(header.array(), 0, header.position()));
+			int flags = readHeader(headerData);
+			if ((flags & BinaryMapFormat.FLAG_RAW_TILES) == 0) {
+				return readMap(in);
+			}
+			int width = headerData.readInt();
+			int height = headerData.readInt();
+			int size = getPlaneSize(width, height);
+			
+			//Map the tiles then read the records after them.
+			long tilesPosition = BinaryMapFormat.RAW_TILES_HEADER_SIZE;
+			TileStorage tiles = new MappedTileStorage(channel, tilesPosition, size);
+			if (chunkMemoryBudget > 0) {
+				tiles = new ChunkedTileStorage(width, height, tiles, chunkMemoryBudget);
+			}
+			Map newMap = new Map(width, height, tiles);
+			channel.position(tilesPosition + size);
+			readRecords(new DataInputStream(new BufferedInputStream(
+							new InflaterInputStream(in, inflater, BUFFER_SIZE), BUFFER_SIZE)), newMap);
+			return newMap;
+		} catch (EOFException e) {
+			throw new ParsingException(TRUNCATED_ERROR_MSG);
+		} catch (IOException e) {
+			throw new ParsingException(e.getMessage());
+		} finally {
+			inflater.end();
+			try {
+				in.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Reads a binary map from a stream and creates
+	 * a new Map object set up with the information read.
+	 * Raw tiles are read into memory(but cells are still only
+	 * created when they're looked at).
+	 * The stream is closed once the map has been read.
+	 * @param in The stream containing the map file data.
+	 * @return A new Map object set up with the information read.
+	 * @throws ParsingException If the map data couldn't be parsed.
+	 */
+	public static Map readMap(InputStream in) throws ParsingException {
+		Inflater inflater = new Inflater();
+		try {
+			int flags = readHeader(in);
+			Map newMap = null;
+			if ((flags & BinaryMapFormat.FLAG_RAW_TILES) != 0) {
+				DataInputStream rawData = new DataInputStream(in);
+				int width = rawData.readInt();
+				int height = rawData.readInt();
+				byte[] tiles = new byte[getPlaneSize(width, height)];
+				rawData.readFully(tiles);
+				newMap = new Map(width, height, new ArrayTileStorage(tiles));
+			}
+			DataInputStream data = new DataInputStream(
+										new BufferedInputStream(
+											new InflaterInputStream(in, inflater, BUFFER_SIZE),
+											BUFFER_SIZE));
+			if (newMap == null) {
+				newMap = readTiles(data);
+			}
+			readRecords(data, newMap);
+			return newMap;
+		} catch (EOFException e) {
+			throw new ParsingException(TRUNCATED_ERROR_MSG);
+		} catch (IOException e) {
+			throw new ParsingException(e.getMessage());
+		} finally {
+			inflater.end();
+			try {
+				in.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Reads and checks the magic bytes, version and flags.
+	 * @param in The stream to read from.
+	 * @return The flags(0 for versions without flags).
+	 * @throws IOException If the stream couldn't be read.
+	 * @throws ParsingException If this isn't a binary map this version can read.
+	 */
+	private static int readHeader(InputStream in) throws IOException, ParsingException {
+		for (int i = 0; i < BinaryMapFormat.MAGIC.length; i++) {
+			if (in.read() != BinaryMapFormat.MAGIC[i]) {
+				throw new ParsingException(HEADER_ERROR_MSG);
+			}
+		}
+		int version = in.read();
+		if (version < 0) {
+			throw new ParsingException(HEADER_ERROR_MSG);
+		}
+		if (version > BinaryMapFormat.VERSION) {
+			throw new ParsingException(String.format(VERSION_ERROR_MSG, version, BinaryMapFormat.VERSION));
+		}
+		if (version < BinaryMapFormat.FLAGS_VERSION) {
+			return 0;
+		}
+		int flags = in.read();
+		if (flags < 0) {
+			throw new ParsingException(HEADER_ERROR_MSG);
+		}
+		return flags;
+	}
+
+	/**
+	 * Checks the dimensions of a map and gets the size of its tile plane.
+	 * @param width The width of the map.
+	 * @param height The height of the map.
+	 * @return The number of tiles.
+	 * @throws ParsingException If the dimensions are invalid.
+	 */
+	private static int getPlaneSize(int width, int height) throws ParsingException {
+		if (width <= 0 || height <= 0 || (long) width * height > Integer.MAX_VALUE) {
+			throw new ParsingException(DIMENSIONS_ERROR_MSG);
+		}
+		return width * height;
+	}
+
+	/**
+	 * Reads the dimensions and tile plane of a map.
+	 * @param data The stream to read from.
+	 * @return The new map.
+	 * @throws IOException If the stream couldn't be read.
+	 * @throws ParsingException If the map data couldn't be parsed.
+	 */
+	private static Map readTiles(DataInputStream data) throws IOException, ParsingException {
+		int width = VarIntUtils.readVarInt(data);
+		int height = VarIntUtils.readVarInt(data);
+		getPlaneSize(width, height);
+		Map newMap = new Map(width, height);
+
+		//Read the tile plane a row at a time.
+		byte[] row = new byte[width];
+		for (int y = 0; y < height; y++) {
+			data.readFully(row);
+			for (int x = 0; x < width; x++) {
+				int tile = row[x] & 0xFF;
+				if (tile != BinaryMapFormat.EMPTY_TILE) {
+					try {
+						MapReader.parseCellOnToMap((char) tile, x, y, newMap);
+					} catch (ParsingException e) {
+						throw new ParsingException(String.format(CELLS_ERROR_MSG, y + 1));
+					}
+				}
+			}
+		}
+		return newMap;
+	}
+
+	/**
+	 * Reads the records of a map and applies them.
+	 * @param data The stream to read from.
+	 * @param newMap The map the records are for.
+	 * @throws IOException If the stream couldn't be read.
+	 * @throws ParsingException If the map data couldn't be parsed.
+	 */
+	private static void readRecords(DataInputStream data, Map newMap) throws IOException, ParsingException {
+		int recordNum = 0;
+		int type = data.readUnsignedByte();
+		while (type != BinaryMapFormat.RECORD_END) {
+			try {
+				Entity newEntity = readRecord(data, type, newMap);
+				if (newEntity != null) {
+					newMap.addEntity(newEntity);
+				}
+			} catch (ParsingException | MalformedURLException e) {
+				throw new ParsingException(String.format(RECORD_ERROR_MSG, recordNum, e.getMessage()));
+			}
+			recordNum++;
+			type = data.readUnsignedByte();
+		}
+	}
+
+	/**
+	 * Reads the fields of a record and applies it to the map.
+	 * @param data The stream to read from.
+	 * @param type The type of record.
+	 * @param map The map the record is for.
+	 * @return The new entity that was created, if any.
+	 * @throws IOException If the stream couldn't be read.
+	 * @throws ParsingException If the record is invalid.
+	 * @throws MalformedURLException If an entity's sprite is invalid.
+	 */
+	private static Entity readRecord(DataInputStream data, int type, Map map)
+			throws IOException, ParsingException, MalformedURLException {
+		switch (type) {
+			case BinaryMapFormat.RECORD_START: {
+				map.setSpawnLocation(readCoords(data));
+				return null;
+			}
+			case BinaryMapFormat.RECORD_TOKEN: {
+				Vector2 coords = readCoords(data);
+				Token newToken = new Token(map, VarIntUtils.readSignedVarInt(data));
+				newToken.getGridCoords().setXY(coords.getX(), coords.getY());
+				return newToken;
+			}
+			case BinaryMapFormat.RECORD_TELEPORTER: {
+				Vector2 fromCoords = readCoords(data);
+				Vector2 toCoords = readCoords(data);
+				Cell from = map.getCellAt(fromCoords.getX(), fromCoords.getY());
+				Cell to = map.getCellAt(toCoords.getX(), toCoords.getY());
+				if (!(from instanceof Teleporter && to instanceof Teleporter)) {
+					throw new ParsingException("No teleporter at " + fromCoords + " or " + toCoords);
+				}
+				((Teleporter) from).setTeleportTo((Teleporter) to);
+				return null;
+			}
+			case BinaryMapFormat.RECORD_TOKEN_DOOR: {
+				Vector2 coords = readCoords(data);
+				map.setCellAt(coords.getX(), coords.getY(),
+								new TokenDoor(VarIntUtils.readSignedVarInt(data), map));
+				return null;
+			}
+			case BinaryMapFormat.RECORD_COLOURED_DOOR: {
+				Vector2 coords = readCoords(data);
+				map.setCellAt(coords.getX(), coords.getY(), new ColouredDoor(readColour(data), map));
+				return null;
+			}
+			case BinaryMapFormat.RECORD_KEY: {
+				Vector2 coords = readCoords(data);
+				Key newKey = new Key(map, readColour(data));
+				newKey.getGridCoords().setXY(coords.getX(), coords.getY());
+				return newKey;
+			}
+			case BinaryMapFormat.RECORD_TIME: {
+				map.setLastTime(VarIntUtils.readVarLong(data));
+				return null;
+			}
+			case BinaryMapFormat.RECORD_TICK: {
+				map.setTick(VarIntUtils.readVarLong(data));
+				return null;
+			}
+			case BinaryMapFormat.RECORD_SEED: {
+				map.setSeed(data.readLong());
+				return null;
+			}
+			case BinaryMapFormat.RECORD_BOOT: {
+				Vector2 coords = readCoords(data);
+				int bootIndex = data.readUnsignedByte();
+				Boot.BootType[] bootTypes = Boot.BootType.values();
+				if (bootIndex >= bootTypes.length) {
+					throw new ParsingException("Unknown boot type " + bootIndex);
+				}
+				Boot newBoot = new Boot(map, bootTypes[bootIndex]);
+				newBoot.getGridCoords().setXY(coords.getX(), coords.getY());
+				return newBoot;
+			}
+			case BinaryMapFormat.RECORD_PUSH_BLOCK: {
+				Vector2 coords = readCoords(data);
+				PushBlock newPushBlock = new PushBlock(map);
+				newPushBlock.getGridCoords().setXY(coords.getX(), coords.getY());
+				return newPushBlock;
+			}
+			case BinaryMapFormat.RECORD_HINT_BLOCK: {
+				Vector2 coords = readCoords(data);
+				HintBlock newHintBlock = new HintBlock(map);
+				newHintBlock.getGridCoords().setXY(coords.getX(), coords.getY());
+				newHintBlock.setHint(readString(data));
+				return newHintBlock;
+			}
+			case BinaryMapFormat.RECORD_INVENTORY_ITEM: {
+				//The item's own record follows.
+				Entity itemEntity = readRecord(data, data.readUnsignedByte(), map);
+				if (itemEntity instanceof Collectable) {
+					map.getStartInventory().addItem((Collectable) itemEntity);
+				}
+				return null;
+			}
+			case BinaryMapFormat.RECORD_INVENTORY_TOKENS: {
+				map.getStartInventory().setNumTokens(VarIntUtils.readSignedVarInt(data));
+				return null;
+			}
+			case BinaryMapFormat.RECORD_ENEMY: {
+				return readEnemy(data, map);
+			}
+			case BinaryMapFormat.RECORD_TEXT: {
+				MapReader.readMetadata(new StringReader(readString(data)), map);
+				return null;
+			}
+			default:
+				throw new ParsingException("Unknown record type " + type);
+		}
+	}
+
+	/**
+	 * Reads the fields of an enemy record and creates the enemy.
+	 * @param data The stream to read from.
+	 * @param map The map the enemy is for.
+	 * @return The new enemy.
+	 * @throws IOException If the stream couldn't be read.
+	 * @throws ParsingException If the record is invalid.
+	 * @throws MalformedURLException If the enemy's sprite is invalid.
+	 */
+	private static Enemy readEnemy(DataInputStream data, Map map)
+			throws IOException, ParsingException, MalformedURLException {
+		Vector2 coords = readCoords(data);
+		int movement = data.readUnsignedByte();
+		int facingX = VarIntUtils.readSignedVarInt(data);
+		int facingY = VarIntUtils.readSignedVarInt(data);
+		Direction facingDir = new Direction(facingX, facingY);
+		boolean followRight = data.readBoolean();
+
+		Enemy newEnemy;
+		switch (movement) {
+			case BinaryMapFormat.MOVEMENT_STRAIGHT:
+				newEnemy = new StraightLineEnemy(0, 0, map, facingDir);
+				break;
+			case BinaryMapFormat.MOVEMENT_FOLLOW:
+				newEnemy = new WallFollowEnemy(followRight, 0, 0, map, facingDir);
+				break;
+			case BinaryMapFormat.MOVEMENT_SMART:
+				newEnemy = new SmartTargetEnemy(0, 0, map, facingDir);
+				break;
+			case BinaryMapFormat.MOVEMENT_DUMB:
+				newEnemy = new DumbTargetEnemy(0, 0, map, facingDir);
+				break;
+			default:
+				throw new ParsingException("Unknown enemy movement " + movement);
+		}
+		newEnemy.getGridCoords().setXY(coords.getX(), coords.getY());
+		return newEnemy;
+	}
+
+	/**
+	 * Reads a grid coordinate.
+	 * @param data The stream to read from.
+	 * @return The coordinate.
+	 * @throws IOException If the stream couldn't be read.
+	 */
+	private static Vector2 readCoords(DataInputStream data) throws IOException {
+		int x = VarIntUtils.readSignedVarInt(data);
+		int y = VarIntUtils.readSignedVarInt(data);
+		return new Vector2(x, y);
+	}
+
+	/**
+	 * Reads a colour.
+	 * @param data The stream to read from.
+	 * @return The colour.
+	 * @throws IOException If the stream couldn't be read.
+	 * @throws ParsingException If the colour is unknown.
+	 */
+	private static java.awt.Color readColour(DataInputStream data) throws IOException, ParsingException {
+		int code = data.readUnsignedByte();
+		java.awt.Color colour = BinaryMapFormat.codeToColour(code);
+		if (colour == null) {
+			throw new ParsingException("Unknown colour " + code);
+		}
+		return colour;
+	}
+
+	/**
+	 * Reads a string written as its length followed by its UTF-8 bytes.
+	 * @param data The stream to read from.
+	 * @return The string.
+	 * @throws IOException If the stream couldn't be read.
+	 */
+	private static String readString(DataInputStream data) throws IOException {
+		byte[] bytes = new byte[VarIntUtils.readVarInt(data)];
+		data.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,353 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Class for saving a map to a binary map file (see BinaryMapFormat).
+ * Saves the same information as MapWriter but much smaller and faster to read.
+ * The tiles can be left uncompressed so the map can be loaded lazily
+ * (for very large maps, see MappedTileStorage).
+ * @author Josiah Richards
+ * @version 1.3
+ */
+public class BinaryMapWriter {
+
+	//The size of the write buffer.
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Saves all the necessary information about a map to
+	 * a given save file.
+	 * Sets the spawn location to the position of the player.
+	 * @param saveFile The file to save to.
+	 * @param map The map to save.
+	 * @throws IOException If the save file couldn't be written.
+	 */
+	public static void saveMapToFile(File saveFile, Map map) throws IOException {
+		saveMapToFile(saveFile, map, false);
+	}
+	
+	/**
+	 * Saves all the necessary information about a map to
+	 * a given save file.
+	 * @param saveFile The file to save to.
+	 * @param map The map to save.
+	 * @param rawTiles True to leave the tiles uncompressed so they can be memory mapped.
+	 * @throws IOException If the save file couldn't be written.
+	 */
+	public static void saveMapToFile(File saveFile, Map map, boolean rawTiles) throws IOException {
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(saveFile), BUFFER_SIZE);
+		try {
+			writeMap(out, map, rawTiles);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Saves all the necessary information about a map to
+	 * a given save file.
+	 * @param saveFileLoc The file to save to.
+	 * @param map The map to save.
+	 * @throws IOException If the save file couldn't be written.
+	 */
+	public static void saveMapToFile(String saveFileLoc, Map map) throws IOException {
+		saveMapToFile(new File(saveFileLoc), map);
+	}
+
+	/**
+	 * Writes a map in the binary format, all compressed.
+	 * The stream is left open.
+	 * @param out The stream to write to.
+	 * @param map The map to write.
+	 * @throws IOException If writing fails or the map has something
+	 * 			that can't be written.
+	 */
+	public static void writeMap(OutputStream out, Map map) throws IOException {
+		writeMap(out, map, false);
+	}
+
+	/**
+	 * Writes a map in the binary format.
+	 * The stream is left open.
+	 * @param out The stream to write to.
+	 * @param map The map to write.
+	 * @param rawTiles True to leave the tiles uncompressed so they can be memory mapped.
+	 * @throws IOException If writing fails or the map has something
+	 * 			that can't be written.
+	 */
+	public static void writeMap(OutputStream out, Map map, boolean rawTiles) throws IOException {
+		//Write the header uncompressed so it can be checked without inflating.
+		out.write(BinaryMapFormat.MAGIC);
+		out.write(BinaryMapFormat.VERSION);
+		out.write(rawTiles ? BinaryMapFormat.FLAG_RAW_TILES : 0);
+
+		ArrayList<Cell> ownCells = new ArrayList<Cell>();
+		if (rawTiles) {
+			DataOutputStream rawData = new DataOutputStream(out);
+			rawData.writeInt(map.getWidth());
+			rawData.writeInt(map.getHeight());
+			writeTiles(rawData, map, ownCells);
+			rawData.flush();
+		}
+
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		try {
+			DeflaterOutputStream deflaterOut = new DeflaterOutputStream(out, deflater, BUFFER_SIZE);
+			DataOutputStream data = new DataOutputStream(
+										new BufferedOutputStream(deflaterOut, BUFFER_SIZE));
+			if (!rawTiles) {
+				VarIntUtils.writeVarInt(data, map.getWidth());
+				VarIntUtils.writeVarInt(data, map.getHeight());
+				writeTiles(data, map, ownCells);
+			}
+			writeRecords(data, map, ownCells);
+			data.flush();
+			deflaterOut.finish();
+		} finally {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * Writes the tile plane of a map.
+	 * @param data The stream to write to.
+	 * @param map The map to write.
+	 * @param ownCells Filled with the cells that have records of their own.
+	 * @throws IOException If writing fails.
+	 */
+	private static void writeTiles(DataOutputStream data, Map map, ArrayList<Cell> ownCells)
+			throws IOException {
+		int width = map.getWidth();
+		int height = map.getHeight();
+		byte[] row = new byte[width];
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				Cell cell = map.getCellAt(x, y);
+				if (cell == null) {
+					row[x] = (byte) BinaryMapFormat.EMPTY_TILE;
+				} else {
+					row[x] = (byte) cell.getSymbol();
+					if (!cell.isShareable()) {
+						ownCells.add(cell);
+					}
+				}
+			}
+			data.write(row);
+		}
+	}
+
+	/**
+	 * Writes the records of a map.
+	 * @param data The stream to write to.
+	 * @param map The map to write.
+	 * @param ownCells The cells that have records of their own.
+	 * @throws IOException If writing fails.
+	 */
+	private static void writeRecords(DataOutputStream data, Map map, ArrayList<Cell> ownCells)
+			throws IOException {
+		//Write the records of cells(doors, teleporter links).
+		for (Cell cell : ownCells) {
+			writeCell(data, cell);
+		}
+
+		//Write the records of entities.
+		for (Entity entity : map.getEntities()) {
+			writeEntity(data, entity);
+		}
+
+		//Without a player, keep the spawn location and starting inventory
+		//(e.g. converting a level layout).
+		if (map.getPlayer() == null) {
+			data.writeByte(BinaryMapFormat.RECORD_START);
+			writeCoords(data, map.getSpawnLocation());
+			writeInventory(data, map.getStartInventory());
+		}
+
+		//Write the tick and seed if the map has been played.
+		if (map.getTick() > 0) {
+			data.writeByte(BinaryMapFormat.RECORD_TICK);
+			VarIntUtils.writeVarLong(data, map.getTick());
+			data.writeByte(BinaryMapFormat.RECORD_SEED);
+			data.writeLong(map.getSeed());
+		}
+
+		//Finally write the last time
+		data.writeByte(BinaryMapFormat.RECORD_TIME);
+		VarIntUtils.writeVarLong(data, map.getLastTime());
+		data.writeByte(BinaryMapFormat.RECORD_END);
+	}
+
+	/**
+	 * Writes the record of a cell that has information of its own.
+	 * @param data The stream to write to.
+	 * @param cell The cell.
+	 * @throws IOException If writing fails.
+	 */
+	private static void writeCell(DataOutputStream data, Cell cell) throws IOException {
+		if (cell instanceof Teleporter) {
+			Teleporter teleportTo = ((Teleporter) cell).getTeleportTo();
+			if (teleportTo != null) {
+				data.writeByte(BinaryMapFormat.RECORD_TELEPORTER);
+				writeCoords(data, cell.getGridCoords());
+				writeCoords(data, teleportTo.getGridCoords());
+			}
+		} else if (cell instanceof TokenDoor) {
+			data.writeByte(BinaryMapFormat.RECORD_TOKEN_DOOR);
+			writeCoords(data, cell.getGridCoords());
+			VarIntUtils.writeSignedVarInt(data, ((TokenDoor) cell).getNumTokensRequired());
+		} else if (cell instanceof ColouredDoor) {
+			data.writeByte(BinaryMapFormat.RECORD_COLOURED_DOOR);
+			writeCoords(data, cell.getGridCoords());
+			writeColour(data, ((ColouredDoor) cell).getColour());
+		} else {
+			writeText(data, cell.getMetaInfo());
+		}
+	}
+
+	/**
+	 * Writes the record of an entity.
+	 * @param data The stream to write to.
+	 * @param entity The entity.
+	 * @throws IOException If writing fails.
+	 */
+	private static void writeEntity(DataOutputStream data, Entity entity) throws IOException {
+		if (entity instanceof Player) {
+			//Players are saved as the spawn location and starting inventory.
+			data.writeByte(BinaryMapFormat.RECORD_START);
+			writeCoords(data, entity.getGridCoords());
+			Inventory inventory = ((Player) entity).getInventory();
+			if (inventory != null) {
+				writeInventory(data, inventory);
+			}
+		} else if (entity instanceof Token) {
+			data.writeByte(BinaryMapFormat.RECORD_TOKEN);
+			writeCoords(data, entity.getGridCoords());
+			VarIntUtils.writeSignedVarInt(data, ((Token) entity).getAmountInPile());
+		} else if (entity instanceof Key) {
+			data.writeByte(BinaryMapFormat.RECORD_KEY);
+			writeCoords(data, entity.getGridCoords());
+			writeColour(data, ((Key) entity).getKeyColor());
+		} else if (entity instanceof Boot) {
+			data.writeByte(BinaryMapFormat.RECORD_BOOT);
+			writeCoords(data, entity.getGridCoords());
+			data.writeByte(((Boot) entity).getBootType().ordinal());
+		} else if (entity instanceof PushBlock) {
+			data.writeByte(BinaryMapFormat.RECORD_PUSH_BLOCK);
+			writeCoords(data, entity.getGridCoords());
+		} else if (entity instanceof HintBlock) {
+			data.writeByte(BinaryMapFormat.RECORD_HINT_BLOCK);
+			writeCoords(data, entity.getGridCoords());
+			writeString(data, ((HintBlock) entity).getHint());
+		} else if (entity instanceof Enemy) {
+			writeEnemy(data, (Enemy) entity);
+		} else {
+			writeText(data, entity.getMetaInfo());
+		}
+	}
+
+	/**
+	 * Writes the record of an enemy.
+	 * @param data The stream to write to.
+	 * @param enemy The enemy.
+	 * @throws IOException If writing fails.
+	 */
+	private static void writeEnemy(DataOutputStream data, Enemy enemy) throws IOException {
+		int movement;
+		boolean followRight = false;
+		if (enemy instanceof StraightLineEnemy) {
+			movement = BinaryMapFormat.MOVEMENT_STRAIGHT;
+		} else if (enemy instanceof WallFollowEnemy) {
+			movement = BinaryMapFormat.MOVEMENT_FOLLOW;
+			followRight = ((WallFollowEnemy) enemy).getFollowRight();
+		} else if (enemy instanceof SmartTargetEnemy) {
+			movement = BinaryMapFormat.MOVEMENT_SMART;
+		} else if (enemy instanceof DumbTargetEnemy) {
+			movement = BinaryMapFormat.MOVEMENT_DUMB;
+		} else {
+			writeText(data, enemy.getMetaInfo());
+			return;
+		}
+		data.writeByte(BinaryMapFormat.RECORD_ENEMY);
+		writeCoords(data, enemy.getGridCoords());
+		data.writeByte(movement);
+		VarIntUtils.writeSignedVarInt(data, enemy.getCurrentDirection().getX());
+		VarIntUtils.writeSignedVarInt(data, enemy.getCurrentDirection().getY());
+		data.writeBoolean(followRight);
+	}
+
+	/**
+	 * Writes the records of the items and tokens in an inventory.
+	 * @param data The stream to write to.
+	 * @param inventory The inventory.
+	 * @throws IOException If writing fails.
+	 */
+	private static void writeInventory(DataOutputStream data, Inventory inventory) throws IOException {
+		for (Collectable item : inventory.getItems()) {
+			if (item != null) {
+				data.writeByte(BinaryMapFormat.RECORD_INVENTORY_ITEM);
+				writeEntity(data, item);
+			}
+		}
+		data.writeByte(BinaryMapFormat.RECORD_INVENTORY_TOKENS);
+		VarIntUtils.writeSignedVarInt(data, inventory.getNumTokens());
+	}
+
+	/**
+	 * Writes a line of text format metadata for something without
+	 * a record type of its own.
+	 * @param data The stream to write to.
+	 * @param metaInfo The metadata, nothing is written if it's null.
+	 * @throws IOException If writing fails.
+	 */
+	private static void writeText(DataOutputStream data, String metaInfo) throws IOException {
+		if (metaInfo != null) {
+			data.writeByte(BinaryMapFormat.RECORD_TEXT);
+			writeString(data, metaInfo);
+		}
+	}
+
+	/**
+	 * Writes a grid coordinate.
+	 * @param data The stream to write to.
+	 * @param coords The coordinate.
+	 * @throws IOException If writing fails.
+	 */
+	private static void writeCoords(DataOutputStream data, Vector2 coords) throws IOException {
+		VarIntUtils.writeSignedVarInt(data, coords.getX());
+		VarIntUtils.writeSignedVarInt(data, coords.getY());
+	}
+
+	/**
+	 * Writes a colour.
+	 * @param data The stream to write to.
+	 * @param colour The colour.
+	 * @throws IOException If writing fails or the colour can't be written.
+	 */
+	private static void writeColour(DataOutputStream data, java.awt.Color colour) throws IOException {
+		int code = BinaryMapFormat.colourToCode(colour);
+		if (code < 0) {
+			throw new IOException("Colour can't be saved: " + colour);
+		}
+		data.writeByte(code);
+	}
+
+	/**
+	 * Writes a string as its length followed by its UTF-8 bytes.
+	 * @param data The stream to write to.
+	 * @param str The string(null is written as empty).
+	 * @throws IOException If writing fails.
+	 */
+	private static void writeString(DataOutputStream data, String str) throws IOException {
+		byte[] bytes = (str == null ? "" : str).getBytes(StandardCharsets.UTF_8);
+		VarIntUtils.writeVarInt(data, bytes.length);
+		data.write(bytes);
+	}
+}
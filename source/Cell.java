@@ -1,7 +1,9 @@
 /**
  * Stores basic information about a cell.
+ * Cells that are shareable are shared by every grid coordinate they're at
+ * so their grid coordinates shouldn't be relied on.
  * @author Daniel Miles 973755
- * @version 1.2
+ * @version 1.3
  */
 public abstract class Cell extends OnGrid{
 	
@@ -34,4 +36,13 @@ public abstract class Cell extends OnGrid{
 	public char getSymbol() {
 		return ' ';
 	}
+	
+	/**
+	 * Checks if this cell has no state of its own and so one instance
+	 * can be shared by every grid coordinate with this cell's symbol.
+	 * @return True if this cell can be shared, defaults to false.
+	 */
+	public boolean isShareable() {
+		return false;
+	}
 }
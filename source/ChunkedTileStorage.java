@@ -0,0 +1,306 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * Stores the tiles of a map in square chunks, only keeping the chunks that
+ * are being used in memory so maps far larger than the memory available can be played.
+ * Chunks are loaded from the source storage(e.g. tiles mapped from the map file)
+ * the first time they're used. When more chunks are loaded than the memory budget
+ * allows, chunks that haven't been used recently are unloaded(found with the
+ * clock algorithm, an approximation of least recently used), chunks that have
+ * been changed are saved to a swap file first and loaded from there next time.
+ * The source storage is never changed.
+ * Chunks can be pinned(e.g. around the camera and enemies) so they're loaded
+ * ahead of being used and aren't unloaded while they're needed. Only part of the
+ * budget can be pinned, areas pinned after that are loaded as they're used like
+ * any other chunk, so the budget is never gone over however much is pinned.
+ * @author Josiah Richards
+ * @version 1.1
+ */
+public class ChunkedTileStorage implements TileStorage {
+
+	//Chunks are CHUNK_SIZE x CHUNK_SIZE tiles(CHUNK_SIZE = 1 << CHUNK_SHIFT).
+	public static final int CHUNK_SHIFT = 5;
+	public static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+	//The number of bytes in a chunk.
+	public static final int CHUNK_BYTES = CHUNK_SIZE * CHUNK_SIZE;
+	//At least 1 / UNPINNED_BUDGET_FRACTION of the budget(and always 1 chunk) is never pinned.
+	private static final int UNPINNED_BUDGET_FRACTION = 4;
+
+	//The width and height of the map in tiles.
+	private int width;
+	private int height;
+	//How many chunks across the map is.
+	private int chunksAcross;
+	//Where tiles come from the first time their chunk is loaded.
+	private TileStorage source;
+	//The most chunks that can be loaded at once.
+	private int maxLoadedChunks;
+	//The most chunks that can be pinned at once, the rest of the budget is kept
+	//for chunks that are used without being pinned.
+	private int maxPinnedChunks;
+
+	//The loaded chunks by chunk index, null if not loaded.
+	private byte[][] chunks;
+	//If each chunk has been used since the clock hand last passed it.
+	private boolean[] isRecentlyUsed;
+	//The pin generation each chunk was last pinned in.
+	private int[] pinnedIn;
+	//If each loaded chunk has been changed since it was loaded.
+	private boolean[] isChanged;
+	//If each chunk has been saved to the swap file.
+	private boolean[] isSwapped;
+	//The chunk indices of the loaded chunks.
+	private int[] loadedChunks;
+	private int numLoadedChunks;
+	//The position in loadedChunks of the next chunk to consider unloading.
+	private int clockHand;
+	//The current pin generation, chunks pinned in it aren't unloaded.
+	private int pinGeneration;
+	//How many chunks are pinned in the current generation(they're all loaded).
+	private int numPinnedChunks;
+
+	//The file changed chunks are saved to when they're unloaded
+	//(created the first time a changed chunk is unloaded).
+	private File swapFile;
+	private RandomAccessFile swap;
+
+	/**
+	 * Creates chunked storage for a map.
+	 * @param width The width of the map in tiles.
+	 * @param height The height of the map in tiles.
+	 * @param source Where to get the tiles of chunks that haven't been loaded before.
+	 * @param memoryBudget How many bytes of chunks can be loaded at once.
+	 */
+	public ChunkedTileStorage(int width, int height, TileStorage source, long memoryBudget) {
+		this.width = width;
+		this.height = height;
+		this.source = source;
+		chunksAcross = (width + CHUNK_MASK) >> CHUNK_SHIFT;
+		int chunksDown = (height + CHUNK_MASK) >> CHUNK_SHIFT;
+		int numChunks = chunksAcross * chunksDown;
+		maxLoadedChunks = (int) Math.max(1, Math.min(numChunks, memoryBudget / CHUNK_BYTES));
+		maxPinnedChunks = maxLoadedChunks - Math.max(1, maxLoadedChunks / UNPINNED_BUDGET_FRACTION);
+		chunks = new byte[numChunks][];
+		isRecentlyUsed = new boolean[numChunks];
+		pinnedIn = new int[numChunks];
+		isChanged = new boolean[numChunks];
+		isSwapped = new boolean[numChunks];
+		loadedChunks = new int[maxLoadedChunks];
+		numLoadedChunks = 0;
+		clockHand = 0;
+		pinGeneration = 1;
+		numPinnedChunks = 0;
+		swapFile = null;
+		swap = null;
+	}
+
+	@Override
+	public int getTile(int index) {
+		int y = index / width;
+		int x = index - y * width;
+		return getChunk(x, y)[getIndexInChunk(x, y)] & 0xFF;
+	}
+
+	@Override
+	public void setTile(int index, int tile) {
+		int y = index / width;
+		int x = index - y * width;
+		int chunkIndex = getChunkIndex(x, y);
+		getChunk(x, y)[getIndexInChunk(x, y)] = (byte) tile;
+		isChanged[chunkIndex] = true;
+	}
+
+	@Override
+	public void unpinAll() {
+		pinGeneration++;
+		numPinnedChunks = 0;
+	}
+
+	@Override
+	public boolean pin(int minX, int minY, int maxX, int maxY) {
+		int minChunkX = Math.max(0, minX) >> CHUNK_SHIFT;
+		int minChunkY = Math.max(0, minY) >> CHUNK_SHIFT;
+		int maxChunkX = Math.min(width - 1, maxX) >> CHUNK_SHIFT;
+		int maxChunkY = Math.min(height - 1, maxY) >> CHUNK_SHIFT;
+		for (int chunkY = minChunkY; chunkY <= maxChunkY; chunkY++) {
+			for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+				int chunkIndex = chunkY * chunksAcross + chunkX;
+				if (pinnedIn[chunkIndex] != pinGeneration) {
+					if (numPinnedChunks >= maxPinnedChunks) {
+						//The rest of the area is loaded when it's used.
+						return false;
+					}
+					if (chunks[chunkIndex] == null) {
+						loadChunk(chunkIndex, chunkX, chunkY);
+					}
+					pinnedIn[chunkIndex] = pinGeneration;
+					numPinnedChunks++;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Gets how many chunks are loaded.
+	 * @return The number of loaded chunks.
+	 */
+	public int getNumLoadedChunks() {
+		return numLoadedChunks;
+	}
+
+	/**
+	 * Deletes the swap file(the storage can't be used afterwards).
+	 */
+	public void close() {
+		if (swap != null) {
+			try {
+				swap.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			swapFile.delete();
+			swap = null;
+		}
+	}
+
+	/**
+	 * Gets the chunk holding a coordinate, loading it if needed.
+	 * @param x The x coordinate.
+	 * @param y The y coordinate.
+	 * @return The chunk's tiles.
+	 */
+	private byte[] getChunk(int x, int y) {
+		int chunkIndex = getChunkIndex(x, y);
+		byte[] chunk = chunks[chunkIndex];
+		if (chunk == null) {
+			chunk = loadChunk(chunkIndex, x >> CHUNK_SHIFT, y >> CHUNK_SHIFT);
+		}
+		isRecentlyUsed[chunkIndex] = true;
+		return chunk;
+	}
+
+	/**
+	 * Loads a chunk from the swap file or the source storage, unloading
+	 * a chunk first if the memory budget has been used up.
+	 * @param chunkIndex The index of the chunk.
+	 * @param chunkX The x coordinate of the chunk(in chunks).
+	 * @param chunkY The y coordinate of the chunk(in chunks).
+	 * @return The chunk's tiles.
+	 */
+	private byte[] loadChunk(int chunkIndex, int chunkX, int chunkY) {
+		if (numLoadedChunks >= maxLoadedChunks) {
+			unloadChunk();
+		}
+		byte[] chunk = new byte[CHUNK_BYTES];
+		if (isSwapped[chunkIndex]) {
+			readFromSwap(chunkIndex, chunk);
+		} else {
+			//Copy the tiles that are inside the map from the source.
+			int startX = chunkX << CHUNK_SHIFT;
+			int startY = chunkY << CHUNK_SHIFT;
+			int endX = Math.min(width, startX + CHUNK_SIZE);
+			int endY = Math.min(height, startY + CHUNK_SIZE);
+			for (int y = startY; y < endY; y++) {
+				int rowStart = y * width;
+				for (int x = startX; x < endX; x++) {
+					chunk[getIndexInChunk(x, y)] = (byte) source.getTile(rowStart + x);
+				}
+			}
+		}
+		chunks[chunkIndex] = chunk;
+		isChanged[chunkIndex] = false;
+		isRecentlyUsed[chunkIndex] = true;
+		loadedChunks[numLoadedChunks++] = chunkIndex;
+		return chunk;
+	}
+
+	/**
+	 * Unloads a chunk that isn't pinned and hasn't been used recently, saving
+	 * it to the swap file if it's been changed.
+	 * The clock hand moves around the loaded chunks, giving recently used chunks
+	 * a second chance(and clearing their flag) until it finds one that wasn't used.
+	 * There's always a chunk that isn't pinned as only part of the budget can be pinned.
+	 */
+	private void unloadChunk() {
+		//Two passes round is enough to clear every flag.
+		for (int checked = 0; checked < numLoadedChunks * 2; checked++) {
+			if (clockHand >= numLoadedChunks) {
+				clockHand = 0;
+			}
+			int chunkIndex = loadedChunks[clockHand];
+			if (pinnedIn[chunkIndex] == pinGeneration) {
+				clockHand++;
+			} else if (isRecentlyUsed[chunkIndex]) {
+				isRecentlyUsed[chunkIndex] = false;
+				clockHand++;
+			} else {
+				if (isChanged[chunkIndex]) {
+					writeToSwap(chunkIndex, chunks[chunkIndex]);
+				}
+				chunks[chunkIndex] = null;
+				//Fill the gap with the last loaded chunk.
+				loadedChunks[clockHand] = loadedChunks[--numLoadedChunks];
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Saves a chunk to the swap file.
+	 * @param chunkIndex The index of the chunk.
+	 * @param chunk The chunk's tiles.
+	 */
+	private void writeToSwap(int chunkIndex, byte[] chunk) {
+		try {
+			if (swap == null) {
+				swapFile = File.createTempFile("chunks", ".swap");
+				swapFile.deleteOnExit();
+				swap = new RandomAccessFile(swapFile, "rw");
+			}
+			swap.seek((long) chunkIndex * CHUNK_BYTES);
+			swap.write(chunk);
+			isSwapped[chunkIndex] = true;
+		} catch (IOException e) {
+			//Without somewhere to save the chunk the changes would be lost.
+			throw new IllegalStateException("Failed to save map chunk", e);
+		}
+	}
+
+	/**
+	 * Loads a chunk from the swap file.
+	 * @param chunkIndex The index of the chunk.
+	 * @param chunk Filled with the chunk's tiles.
+	 */
+	private void readFromSwap(int chunkIndex, byte[] chunk) {
+		try {
+			swap.seek((long) chunkIndex * CHUNK_BYTES);
+			swap.readFully(chunk);
+		} catch (IOException e) {
+			throw new IllegalStateException("Failed to load map chunk", e);
+		}
+	}
+
+	/**
+	 * Gets the index of the chunk holding a coordinate.
+	 * @param x The x coordinate.
+	 * @param y The y coordinate.
+	 * @return The chunk index.
+	 */
+	private int getChunkIndex(int x, int y) {
+		return (y >> CHUNK_SHIFT) * chunksAcross + (x >> CHUNK_SHIFT);
+	}
+
+	/**
+	 * Gets the index of a coordinate's tile within its chunk.
+	 * @param x The x coordinate.
+	 * @param y The y coordinate.
+	 * @return The index within the chunk.
+	 */
+	private int getIndexInChunk(int x, int y) {
+		return ((y & CHUNK_MASK) << CHUNK_SHIFT) + (x & CHUNK_MASK);
+	}
+}
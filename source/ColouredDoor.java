@@ -4,7 +4,7 @@ import java.net.MalformedURLException;
 /**
  * Class that adds coloured doors.
  * @author Ajaya Budhathoki and Josiah Richards
- * @version 2.0
+ * @version 2.1
  */
 public class ColouredDoor extends Door {
 	
@@ -31,6 +31,14 @@ public class ColouredDoor extends Door {
 		setImage(String.format(IMAGE_NAME_FORMAT, ColourUtils.colourToString(colour)));
 	}
 	
+	/**
+	 * Gets the colour of this door(the colour of key that opens it).
+	 * @return The colour of this door.
+	 */
+	public Color getColour() {
+		return colour;
+	}
+	
 	@Override
     public String getMetaInfo() {
 		return String.format(META_FORMAT, gridCoords.toString(), META_KEYWORD, 
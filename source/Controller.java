@@ -1,7 +1,7 @@
 /**
  * A controller for a UI
  * @author Josiah Richards
- * @version 1.1
+ * @version 1.2
  */
 public abstract class Controller {
 	
@@ -25,4 +25,12 @@ public abstract class Controller {
 	 * javafx initialize when all the variables are ready.
 	 */
 	public abstract void manualInitialize();
+	
+	/**
+	 * Called when the scene is switched to again(scenes are kept once they're loaded),
+	 * before manualInitialize, to undo anything manualInitialize added to the UI.
+	 * Does nothing unless overridden.
+	 */
+	public void reset() {
+	}
 }
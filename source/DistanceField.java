@@ -0,0 +1,337 @@
+import java.util.Arrays;
+
+/**
+ * Stores how many steps it takes to get from every grid coordinate of a map
+ * to a goal coordinate (e.g. the player) for a kind of moving entity,
+ * so any number of entities can find their way to the goal by stepping to
+ * whichever neighbour is closest to it.
+ * The field is kept up to date incrementally (Lifelong Planning A* with no
+ * heuristic): when the goal moves or a grid coordinate changes, only the
+ * distances that actually change are recalculated, and only as far out as
+ * the entities reading the field need.
+ * The field only covers the area within FIELD_RADIUS of the goal(entities further
+ * away can't reach the goal with it), moving the area when the goal gets near its edge.
+ * Distances are kept in pages of the area that are only created once the search
+ * reaches them, so the memory used follows the area actually searched rather than
+ * the size of the map. Storage is kept between updates, so updating creates no garbage
+ * once the field has grown.
+ * @author Josiah Richards
+ * @version 3.0
+ */
+public class DistanceField implements MapChangeListener {
+
+	//The distance of a grid coordinate the goal can't be reached from.
+	public static final int UNREACHABLE = -1;
+	//The value returned when there's no step to take towards the goal.
+	public static final int NO_STEP = -1;
+
+	//The distance stored for grid indices with no known way to the goal.
+	private static final int INFINITY = Integer.MAX_VALUE;
+	//How far(in steps across or down) the field reaches from the goal.
+	private static final int FIELD_RADIUS = 128;
+	//How close the goal can get to the edge of the field's area before the area is moved.
+	private static final int MOVE_AREA_MARGIN = FIELD_RADIUS / 2;
+	//How many changed grid indices can be remembered to begin with.
+	private static final int INITIAL_CHANGED_CAPACITY = 16;
+	//The grid offsets of the neighbours, in the order they're checked
+	//(up, right, down, left).
+	private static final int[] NEIGHBOUR_X = {0, 1, 0, -1};
+	private static final int[] NEIGHBOUR_Y = {-1, 0, 1, 0};
+
+	//The map the field is for.
+	private Map map;
+	//The moving entity used to check which coordinates can be walked on,
+	//all moving entities of the same class walk on the same things.
+	private Moving mover;
+	//The size of the map.
+	private int width;
+	private int height;
+	//The size of the field's area(the whole map if it's small enough).
+	private int areaWidth;
+	private int areaHeight;
+	//The top left of the field's area.
+	private int areaX;
+	private int areaY;
+	//The last calculated number of steps from each grid index to the goal.
+	private PagedIntGrid distances;
+	//The number of steps from each grid index to the goal going by its
+	//neighbours' distances (the one step lookahead). Where this differs from
+	//the distance the grid index is inconsistent and waiting to be repaired.
+	private PagedIntGrid lookaheads;
+	//The inconsistent grid indices, ordered by the smaller of their
+	//distance and lookahead.
+	private IndexedMinHeap inconsistent;
+	//The grid indices that have changed since the field was last repaired.
+	private int[] changedCells;
+	private int numChangedCells;
+	//If each grid index is already in the changed cells(1 if it is).
+	private PagedIntGrid isChanged;
+	//The goal grid index, or NO_STEP if there's no goal yet.
+	private int goalIndex;
+
+	/**
+	 * Creates a distance field for a map, for moving entities that walk
+	 * on the same things as a given moving entity.
+	 * The field has no goal until it's first updated.
+	 * @param map The map the field is for.
+	 * @param mover The moving entity to check walkability with.
+	 */
+	public DistanceField(Map map, Moving mover) {
+		this.map = map;
+		this.mover = mover;
+		width = map.getWidth();
+		height = map.getHeight();
+		areaWidth = Math.min(width, FIELD_RADIUS * 2 + 1);
+		areaHeight = Math.min(height, FIELD_RADIUS * 2 + 1);
+		areaX = 0;
+		areaY = 0;
+		distances = new PagedIntGrid(areaWidth, areaHeight, INFINITY);
+		lookaheads = new PagedIntGrid(areaWidth, areaHeight, INFINITY);
+		inconsistent = new IndexedMinHeap(width, areaWidth, areaHeight);
+		changedCells = new int[INITIAL_CHANGED_CAPACITY];
+		numChangedCells = 0;
+		isChanged = new PagedIntGrid(areaWidth, areaHeight, 0);
+		goalIndex = NO_STEP;
+		map.addMapChangeListener(this);
+	}
+
+	@Override
+	public void cellChanged(int x, int y) {
+		//Just remember the change, it's repaired next time the field is used
+		//(the map may be in the middle of moving something).
+		if (isChanged.isInArea(x, y) && isChanged.get(x, y) == 0) {
+			isChanged.set(x, y, 1);
+			if (numChangedCells == changedCells.length) {
+				changedCells = Arrays.copyOf(changedCells, changedCells.length * 2);
+			}
+			changedCells[numChangedCells++] = y * width + x;
+		}
+	}
+
+	/**
+	 * Moves the goal of the field and takes in any changes to the map
+	 * since the last update.
+	 * Distances are repaired lazily as they're read.
+	 * @param goalX The x coordinate of the goal.
+	 * @param goalY The y coordinate of the goal.
+	 */
+	public void update(int goalX, int goalY) {
+		int newGoalIndex = NO_STEP;
+		if (goalX >= 0 && goalY >= 0 && goalX < width && goalY < height) {
+			newGoalIndex = goalY * width + goalX;
+			if (isNearAreaEdge(goalX, goalY)) {
+				//Start again around the goal.
+				moveArea(goalX, goalY);
+			}
+		}
+		if (newGoalIndex != goalIndex) {
+			int oldGoalIndex = goalIndex;
+			goalIndex = newGoalIndex;
+			if (oldGoalIndex != NO_STEP) {
+				updateLookahead(oldGoalIndex);
+			}
+			if (newGoalIndex != NO_STEP) {
+				updateLookahead(newGoalIndex);
+			}
+		}
+
+		//Recheck the grid indices that changed(and so may now be walkable or not).
+		for (int i = 0; i < numChangedCells; i++) {
+			updateLookahead(changedCells[i]);
+		}
+		isChanged.clear();
+		numChangedCells = 0;
+	}
+
+	/**
+	 * Recalculates every distance from scratch.
+	 * @param goalX The x coordinate of the goal.
+	 * @param goalY The y coordinate of the goal.
+	 */
+	public void recalculate(int goalX, int goalY) {
+		moveArea(goalX, goalY);
+		update(goalX, goalY);
+		repairAll();
+	}
+
+	/**
+	 * Gets the number of steps from a coordinate to the goal.
+	 * @param x The x coordinate.
+	 * @param y The y coordinate.
+	 * @return The number of steps to the goal, or UNREACHABLE.
+	 */
+	public int getDistance(int x, int y) {
+		if (!distances.isInArea(x, y)) {
+			return UNREACHABLE;
+		}
+		repairUpTo(x, y);
+		int distance = distances.get(x, y);
+		return distance == INFINITY ? UNREACHABLE : distance;
+	}
+
+	/**
+	 * Gets the neighbour of a coordinate that's closest to the goal
+	 * (the next step of a shortest path to the goal).
+	 * @param x The x coordinate to step from.
+	 * @param y The y coordinate to step from.
+	 * @return The grid index (y * width + x) of the neighbour to step to,
+	 * 			or NO_STEP if the goal can't be reached (or we're on it, or too far from it).
+	 */
+	public int getNextStep(int x, int y) {
+		if (!distances.isInArea(x, y)) {
+			return NO_STEP;
+		}
+		if (y * width + x == goalIndex) {
+			return NO_STEP;
+		}
+		repairUpTo(x, y);
+
+		int bestStep = NO_STEP;
+		int bestDistance = INFINITY;
+		for (int i = 0; i < NEIGHBOUR_X.length; i++) {
+			int neighbourX = x + NEIGHBOUR_X[i];
+			int neighbourY = y + NEIGHBOUR_Y[i];
+			if (distances.isInArea(neighbourX, neighbourY)) {
+				int neighbourDistance = distances.get(neighbourX, neighbourY);
+				if (neighbourDistance < bestDistance) {
+					bestDistance = neighbourDistance;
+					bestStep = neighbourY * width + neighbourX;
+				}
+			}
+		}
+		return bestStep;
+	}
+
+	/**
+	 * Repairs inconsistent distances, closest to the goal first, until the
+	 * distance of a grid coordinate and its neighbours on a shortest path are correct.
+	 * @param x The x coordinate that's about to be read.
+	 * @param y The y coordinate that's about to be read.
+	 */
+	private void repairUpTo(int x, int y) {
+		while (!inconsistent.isEmpty()
+				&& (inconsistent.peekKey() < getKey(x, y)
+					|| distances.get(x, y) != lookaheads.get(x, y))) {
+			repair(inconsistent.poll());
+		}
+	}
+
+	/**
+	 * Repairs every inconsistent distance.
+	 */
+	private void repairAll() {
+		while (!inconsistent.isEmpty()) {
+			repair(inconsistent.poll());
+		}
+	}
+
+	/**
+	 * Makes an inconsistent grid index consistent and updates the
+	 * lookaheads of its neighbours.
+	 * @param index The inconsistent grid index.
+	 */
+	private void repair(int index) {
+		int x = index % width;
+		int y = index / width;
+		int lookahead = lookaheads.get(x, y);
+		if (distances.get(x, y) > lookahead) {
+			//Got closer to the goal.
+			distances.set(x, y, lookahead);
+		} else {
+			//Got further from the goal, forget the old distance
+			//and work it out again from the neighbours.
+			distances.set(x, y, INFINITY);
+			updateLookahead(index);
+		}
+		for (int i = 0; i < NEIGHBOUR_X.length; i++) {
+			int neighbourX = x + NEIGHBOUR_X[i];
+			int neighbourY = y + NEIGHBOUR_Y[i];
+			if (distances.isInArea(neighbourX, neighbourY)) {
+				updateLookahead(neighbourY * width + neighbourX);
+			}
+		}
+	}
+
+	/**
+	 * Recalculates the lookahead of a grid index from its neighbours
+	 * and whether it can be walked on, and puts it on the heap of
+	 * inconsistent grid indices if it no longer matches the distance.
+	 * The goal is always reachable even if it can't be walked on
+	 * (e.g. the player an enemy is chasing).
+	 * Grid indices outside of the field's area are left alone.
+	 * @param index The grid index.
+	 */
+	private void updateLookahead(int index) {
+		int x = index % width;
+		int y = index / width;
+		if (!lookaheads.isInArea(x, y)) {
+			return;
+		}
+		int lookahead;
+		if (index == goalIndex) {
+			lookahead = 0;
+		} else if (!mover.canWalkOn(x, y)) {
+			lookahead = INFINITY;
+		} else {
+			//Neighbours outside of the area are never reached(their distance is infinite).
+			int closest = INFINITY;
+			for (int i = 0; i < NEIGHBOUR_X.length; i++) {
+				closest = Math.min(closest, distances.get(x + NEIGHBOUR_X[i], y + NEIGHBOUR_Y[i]));
+			}
+			lookahead = closest == INFINITY ? INFINITY : closest + 1;
+		}
+		if (lookahead != lookaheads.get(x, y)) {
+			lookaheads.set(x, y, lookahead);
+		}
+
+		if (distances.get(x, y) != lookahead) {
+			inconsistent.insertOrUpdate(index, getKey(x, y));
+		} else {
+			inconsistent.remove(index);
+		}
+	}
+
+	/**
+	 * Gets the priority of a grid coordinate, the smaller of its
+	 * distance and lookahead.
+	 * @param x The x coordinate.
+	 * @param y The y coordinate.
+	 * @return The priority of the grid coordinate.
+	 */
+	private long getKey(int x, int y) {
+		return Math.min(distances.get(x, y), lookaheads.get(x, y));
+	}
+
+	/**
+	 * Checks if the goal is too close to an edge of the field's area that
+	 * isn't an edge of the map(or outside of the area), so the area needs moving.
+	 * @param goalX The x coordinate of the goal.
+	 * @param goalY The y coordinate of the goal.
+	 * @return True if the area needs moving, false otherwise.
+	 */
+	private boolean isNearAreaEdge(int goalX, int goalY) {
+		return (areaX > 0 && goalX < areaX + MOVE_AREA_MARGIN)
+				|| (areaY > 0 && goalY < areaY + MOVE_AREA_MARGIN)
+				|| (areaX + areaWidth < width && goalX >= areaX + areaWidth - MOVE_AREA_MARGIN)
+				|| (areaY + areaHeight < height && goalY >= areaY + areaHeight - MOVE_AREA_MARGIN);
+	}
+
+	/**
+	 * Forgets every distance and moves the field's area so it's centred
+	 * on the goal(as far as the edges of the map allow).
+	 * @param goalX The x coordinate of the goal.
+	 * @param goalY The y coordinate of the goal.
+	 */
+	private void moveArea(int goalX, int goalY) {
+		areaX = Math.max(0, Math.min(width - areaWidth, goalX - FIELD_RADIUS));
+		areaY = Math.max(0, Math.min(height - areaHeight, goalY - FIELD_RADIUS));
+		int areaRight = areaX + areaWidth - 1;
+		int areaBottom = areaY + areaHeight - 1;
+		distances.setArea(areaX, areaY, areaRight, areaBottom);
+		lookaheads.setArea(areaX, areaY, areaRight, areaBottom);
+		inconsistent.setArea(areaX, areaY, areaRight, areaBottom);
+		isChanged.setArea(areaX, areaY, areaRight, areaBottom);
+		numChangedCells = 0;
+		goalIndex = NO_STEP;
+	}
+}
@@ -11,7 +11,7 @@ import javafx.stage.FileChooser.ExtensionFilter;
 /**
  * Controls the edit profile UI.
  * @author Josiah Richards
- * @version 1.1
+ * @version 1.3
  */
 public class EditProfileController extends Controller {
 
@@ -96,6 +96,12 @@ public class EditProfileController extends Controller {
 		if (file.exists()) {
 			updateCurProfileToFields();
 			currentProfile.setImage(file.getAbsolutePath());
+			//Reload the image in case the file has changed since it was cached.
+			try {
+				SpriteCache.invalidate(file.getAbsolutePath());
+			} catch (MalformedURLException e) {
+				e.printStackTrace();
+			}
 			updateProfileUI(currentProfile);
 		}
 	}
@@ -140,11 +146,13 @@ public class EditProfileController extends Controller {
 		//Delete
 		btnDelete.setOnAction(e -> {
 			//When the delete button is clicked,
-			//get the profile folder and delete it
-			String profileFolderStr = FileManager.getProfileFolderPath(currentProfile.getID());
-			File profileFolder = new File(profileFolderStr);
-			if (profileFolder.exists()) {
-				FileManager.deleteFolder(profileFolder);
+			//delete the profile and its folder.
+			//Don't let a save still being written put the folder back.
+			SaveService.waitForPendingSaves();
+			try {
+				ProfileManager.deleteProfile(currentProfile.getID());
+			} catch (IOException e1) {
+				e1.printStackTrace();
 			}
 			//Return to the select profile scene
 			clearSelectedProfileIfSame();
@@ -169,7 +177,7 @@ public class EditProfileController extends Controller {
 		Image image = null; 
 		try {
 			if (FileManager.fileExists(currentProfile.getImage())) {
-				image = new Image(FileManager.filePathToURL(profile.getImage()).toString());
+				image = SpriteCache.getImageFromPath(profile.getImage());
 			}
 		} catch (MalformedURLException e) {
 			image = null;
@@ -179,7 +187,7 @@ public class EditProfileController extends Controller {
 		if (image == null) {
 			try {
 				String defaultImage = FileManager.getImagePath(Profile.DEFAULT_IMAGE);
-				image = new Image(FileManager.filePathToURL(defaultImage).toString());
+				image = SpriteCache.getImageFromPath(defaultImage);
 				profile.setImage(defaultImage);
 			} catch (MalformedURLException e2) {
 				e2.printStackTrace();
@@ -1,7 +1,7 @@
 /**
  * An moving entity that calculates its own next move.
  * @author Adam Jennings 955770
- * @version 2.0
+ * @version 2.1
  */
 public abstract class Enemy extends Moving {
 	
@@ -31,6 +31,34 @@ public abstract class Enemy extends Moving {
 		move(getNextMove());
 	}
 	
+	/**
+	 * Gets anything the map shares between enemies ready for deciding this
+	 * enemy's next move(e.g. the distance field to the player).
+	 * Done one enemy at a time before the enemies decide their moves at the same time.
+	 */
+	public void prepareNextMove() {
+	}
+	
+	/**
+	 * Decides the next move without moving.
+	 * Enemies decide their moves at the same time(see Map.updateEnemies) so this
+	 * must only look at the map and only change this enemy.
+	 * @return The direction to move in, or null if the move can only be
+	 * 			decided when it's made(e.g. a random move).
+	 */
+	public Direction decideNextMove() {
+		return getNextMove();
+	}
+	
+	/**
+	 * Makes a move decided by decideNextMove.
+	 * Enemies make their moves one at a time in the order they're on the map.
+	 * @param nextMove The direction decided, or null to decide it now.
+	 */
+	public void makeMove(Direction nextMove) {
+		move(nextMove != null ? nextMove : getNextMove());
+	}
+	
 	/**
 	 * Checks if there's an unwalkable(wall) in a direction
 	 * @param dir The direction to check
@@ -1,27 +1,51 @@
 import java.io.*;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 
 /**
  * A class for managing the location of files and folders.
  * @author Josiah Richards
- * @version 1.1
+ * @version 1.9
  */
 public class FileManager {
 	
+	/**
+	 * Writes the new version of a file.
+	 */
+	public interface FileWriteTask {
+		/**
+		 * Writes the new version of the file.
+		 * @param file The file to write to.
+		 * @throws IOException If the file couldn't be written.
+		 */
+		void write(File file) throws IOException;
+	}
+	
 	//File extensions
 	private static final String MAP_EXTENSION = "map";
 	private static final String DATA_EXTENSION = "dat";
+	private static final String JOURNAL_EXTENSION = "journal";
+	private static final String RUN_EXTENSION = "run";
 	private static final String UI_EXTENSION = "fxml";
+	private static final String THUMBNAIL_EXTENSION = "png";
+	
+	//The extension added to a file's name while a new version of it is written.
+	private static final String TEMP_EXTENSION = ".tmp";
 	
 	//Preset file names
 	private static final String MAP_LAYOUT_FILE_NAME = "layout." + MAP_EXTENSION;
 	private static final String INFO_FILE_NAME = "info." + DATA_EXTENSION;
 	private static final String RELATIVE_SAVES_PATH = "/saves";
+	private static final String RELATIVE_RUNS_PATH = "/runs";
 	
 	//The paths relative to the application path.
 	private static final String RELATIVE_DATA_PATH = "/data";
 	private static final String RELATIVE_PROFILES_PATH = RELATIVE_DATA_PATH + "/profiles";
+	private static final String RELATIVE_RECORD_STORE_PATH = RELATIVE_DATA_PATH + "/records." + DATA_EXTENSION;
+	private static final String RELATIVE_THUMBNAILS_PATH = RELATIVE_DATA_PATH + "/thumbnails";
 	private static final String RELATIVE_RESOURCES_PATH = RELATIVE_DATA_PATH + "/resources";
 	private static final String RELATIVE_MAPS_PATH = RELATIVE_RESOURCES_PATH + "/maps";
 	private static final String RELATIVE_IMAGES_PATH = RELATIVE_RESOURCES_PATH + "/images";
@@ -101,6 +125,14 @@ public class FileManager {
 		return soundsPath + "/" + soundFileNameWithExt;
 	}
 	
+	/**
+	 * Gets the path to the folder the sound files are in.
+	 * @return The full path to the sounds folder.
+	 */
+	public static String getSoundsFolderPath() {
+		return soundsPath;
+	}
+	
 	
 	/**
 	 * Gets the path of a UI file.
@@ -120,6 +152,14 @@ public class FileManager {
 		return mapsPath + "/" + mapID;
 	}
 	
+	/**
+	 * Gets the path to the folder the maps are in(a folder for each map ID).
+	 * @return The full path to the maps folder.
+	 */
+	public static String getMapsFolderPath() {
+		return mapsPath;
+	}
+	
 	/**
 	 * Gets the path to the profile folder of a given profile ID.
 	 * @param profileID The ID of the profile.
@@ -155,16 +195,42 @@ public class FileManager {
 	}
 	
 	/**
-	 * Gets the next available profile ID.
-	 * @return The next available profile ID.
+	 * Gets the path to the record store the game keeps profiles,
+	 * high scores and save info in(see RecordStore).
+	 * @return The full path to the record store file.
 	 */
-	public static int getNextAvailableProfileID() {
-		int curProfileID = 1;
-		//Keep incrementing curProfileID until the profile folder already doesn't exist.
-		while (fileExists(getProfileFolderPath(curProfileID))) {
-			curProfileID++;
-		}
-		return curProfileID;
+	public static String getRecordStoreFile() {
+		return appPath + RELATIVE_RECORD_STORE_PATH;
+	}
+	
+	/**
+	 * Gets the path to the folder level thumbnails are kept in(see ThumbnailCache).
+	 * @return The full path to the thumbnails folder.
+	 */
+	public static String getThumbnailsFolderPath() {
+		return appPath + RELATIVE_THUMBNAILS_PATH;
+	}
+	
+	/**
+	 * Gets the path to the thumbnail of a map's layout.
+	 * @param mapID The map ID.
+	 * @param layoutHash The hash of the layout file the thumbnail is of.
+	 * @return The full path to the thumbnail file.
+	 */
+	public static String getThumbnailFile(int mapID, long layoutHash) {
+		return getThumbnailsFolderPath() + "/" + mapID + "_" + Long.toHexString(layoutHash)
+				+ "." + THUMBNAIL_EXTENSION;
+	}
+	
+	/**
+	 * Gets the thumbnail files of a map(of any of its layouts).
+	 * @param mapID The map ID.
+	 * @return The thumbnail files, null if the thumbnails folder doesn't exist.
+	 */
+	public static File[] getThumbnailFiles(int mapID) {
+		String prefix = mapID + "_";
+		return new File(getThumbnailsFolderPath()).listFiles(
+				(folder, fileName) -> fileName.startsWith(prefix) && fileName.endsWith("." + THUMBNAIL_EXTENSION));
 	}
 	
 	/**
@@ -217,6 +283,41 @@ public class FileManager {
 		return savesFolder + "/" + mapID + "." + MAP_EXTENSION;
 	}
 	
+	/**
+	 * Gets the path to the move journal of a saved map(see MoveJournal),
+	 * next to the saved map file.
+	 * @param profileID The profile ID the save belongs to.
+	 * @param mapID The map ID of the save.
+	 * @return The full path to the save's move journal.
+	 */
+	public static String getSavedJournalFile(int profileID, int mapID) {
+		String savesFolder = getProfileSavesFolder(profileID);
+		return savesFolder + "/" + mapID + "." + JOURNAL_EXTENSION;
+	}
+	
+	/**
+	 * Gets the path to the log of the run being played on a saved map(see InputLog),
+	 * next to the saved map file.
+	 * @param profileID The profile ID the save belongs to.
+	 * @param mapID The map ID of the save.
+	 * @return The full path to the save's run log.
+	 */
+	public static String getSavedRunLogFile(int profileID, int mapID) {
+		String savesFolder = getProfileSavesFolder(profileID);
+		return savesFolder + "/" + mapID + "." + RUN_EXTENSION;
+	}
+	
+	/**
+	 * Gets the path to the log of the last run a profile finished on a map.
+	 * @param profileID The profile ID.
+	 * @param mapID The map ID.
+	 * @return The full path to the run log.
+	 */
+	public static String getRunLogFile(int profileID, int mapID) {
+		String profileFolder = getProfileFolderPath(profileID);
+		return profileFolder + RELATIVE_RUNS_PATH + "/" + mapID + "." + RUN_EXTENSION;
+	}
+	
 	/**
 	 * Creates a directory if it doesn't already exist.
 	 * @param dirPath The path of directory you want to create.
@@ -246,4 +347,50 @@ public class FileManager {
 		}
 		return false;
 	}
+	
+	/**
+	 * Gets the path of the temporary file a new version of a file
+	 * is written to before it replaces the file(see replaceFile).
+	 * @param filePath The full path of the file.
+	 * @return The full path of the temporary file(in the same folder).
+	 */
+	public static String getTempFilePath(String filePath) {
+		return filePath + TEMP_EXTENSION;
+	}
+	
+	/**
+	 * Writes a new version of a file to a temporary file and then replaces the file
+	 * with it(see replaceFile), so the file is kept as it was if writing fails part way through.
+	 * The temporary file is deleted if the file couldn't be replaced.
+	 * @param filePath The full path of the file, created if it doesn't exist.
+	 * @param writeTask Writes the new version to the temporary file.
+	 * @throws IOException If the new version couldn't be written or the file couldn't be replaced.
+	 */
+	public static void writeAndReplaceFile(String filePath, FileWriteTask writeTask) throws IOException {
+		File tempFile = new File(getTempFilePath(filePath));
+		try {
+			writeTask.write(tempFile);
+			replaceFile(tempFile, new File(filePath));
+		} catch (IOException | RuntimeException e) {
+			tempFile.delete();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Replaces a file with a new version of it in a single step, so the file
+	 * is always either the old version or the new version(never half written).
+	 * @param newFile The new version of the file(in the same folder).
+	 * @param file The file to replace, created if it doesn't exist.
+	 * @throws IOException If the file couldn't be replaced.
+	 */
+	public static void replaceFile(File newFile, File file) throws IOException {
+		try {
+			Files.move(newFile.toPath(), file.toPath(), 
+					StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			//Fall back to a normal move on file systems that can't do it in a single step.
+			Files.move(newFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
 }
@@ -43,4 +43,9 @@ public class Fire extends DeadlyTile {
 	public char getSymbol() {
 		return SYMBOL;
 	}
+	
+	@Override
+	public boolean isShareable() {
+		return true;
+	}
 }
@@ -0,0 +1,185 @@
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+
+/**
+ * Runs a game on a fixed timestep, separately from input and rendering.
+ * The game is updated on its own thread a fixed number of times(ticks) a second.
+ * Input from the UI is queued for the next tick, input that comes in while the queue
+ * is full(e.g. a held key repeating faster than the game can keep up) is dropped.
+ * After each tick that changes the game a frame is captured that never changes
+ * afterwards, and the latest frame is rendered each time JavaFX draws(at the
+ * display's rate), so a slow tick never stops the UI from responding.
+ * The game is turn based, a tick only updates the game if there's input.
+ * Stopping never waits for the simulation thread, work that needs the game to have
+ * stopped changing is run on the simulation thread after the last tick instead.
+ * @author Josiah Richards
+ * @version 1.1
+ *
+ * @param <F> The type of the frames captured from the game.
+ */
+public class GameLoop<F> {
+
+	/**
+	 * A game run by a game loop.
+	 * @param <F> The type of the frames captured from the game.
+	 */
+	public interface Game<F> {
+		/**
+		 * Plays a turn(called on the simulation thread).
+		 * @param playerMove The direction the player is moving(DIR_NONE if they aren't).
+		 */
+		void playTurn(Direction playerMove);
+
+		/**
+		 * Captures what's needed to render the game as it is now(called on the
+		 * simulation thread), the frame mustn't change afterwards.
+		 * @return The frame.
+		 */
+		F captureFrame();
+
+		/**
+		 * Renders a frame(called on the JavaFX thread each time it draws).
+		 * @param frame The latest frame captured.
+		 */
+		void renderFrame(F frame);
+
+		/**
+		 * Called on the simulation thread when playing a turn failed part way through,
+		 * no more turns are played(the game should be stopped and ended).
+		 * @param e What went wrong.
+		 */
+		void turnFailed(RuntimeException e);
+	}
+
+	//The tick rate games are run at unless they ask for another.
+	public static final int DEFAULT_TICK_RATE = 60;
+
+	//How many inputs can be waiting for the simulation.
+	private static final int MAX_QUEUED_INPUTS = 2;
+
+	//The game being run.
+	private final Game<F> game;
+	//The time between ticks in nanoseconds.
+	private final long tickPeriod;
+	//The inputs waiting for the simulation.
+	private final BlockingQueue<Direction> inputs;
+	//Renders the latest frame each time JavaFX draws.
+	private final AnimationTimer renderTimer;
+	//The thread the game is updated on, null until the loop is started.
+	private ScheduledExecutorService simulation;
+	//The latest frame captured from the game.
+	private volatile F latestFrame;
+	//If a turn failed, no more are played.
+	private volatile boolean failed = false;
+	//Completes once the loop has stopped and the work given to stop so far
+	//has been done, null until the loop is stopped.
+	private CompletableFuture<Void> stopped = null;
+
+	/**
+	 * Creates a game loop.
+	 * @param game The game to run.
+	 * @param tickRate How many times a second the game is updated.
+	 */
+	public GameLoop(Game<F> game, int tickRate) {
+		this.game = game;
+		tickPeriod = TimeUnit.SECONDS.toNanos(1) / tickRate;
+		inputs = new ArrayBlockingQueue<Direction>(MAX_QUEUED_INPUTS);
+		renderTimer = new AnimationTimer() {
+			@Override
+			public void handle(long now) {
+				game.renderFrame(latestFrame);
+			}
+		};
+	}
+
+	/**
+	 * Starts updating and rendering the game.
+	 * Must be called on the JavaFX thread, the game mustn't be changed
+	 * on any other thread until the loop is stopped.
+	 */
+	public void start() {
+		latestFrame = game.captureFrame();
+		simulation = Executors.newSingleThreadScheduledExecutor(task -> {
+			Thread simulationThread = new Thread(task, "Simulation");
+			simulationThread.setDaemon(true);
+			return simulationThread;
+		});
+		simulation.scheduleAtFixedRate(() -> tick(), tickPeriod, tickPeriod, TimeUnit.NANOSECONDS);
+		renderTimer.start();
+	}
+
+	/**
+	 * Stops updating and rendering the game without waiting for the tick being played.
+	 * Input still waiting is dropped.
+	 * Once the last tick has finished the final task is run on the simulation thread
+	 * (so it can use the game, e.g. to save it), then afterStopped on the JavaFX thread.
+	 * Can be called again after the loop has stopped, the work is done after
+	 * the work given before.
+	 * Must be called on the JavaFX thread.
+	 * @param finalTask What to do with the game once it's stopped(null for nothing).
+	 * @param afterStopped What to do on the JavaFX thread afterwards(null for nothing).
+	 */
+	public void stop(Runnable finalTask, Runnable afterStopped) {
+		renderTimer.stop();
+		inputs.clear();
+		if (stopped == null) {
+			stopped = new CompletableFuture<Void>();
+			if (simulation != null) {
+				//Runs after the tick being played, the ticks after it are cancelled.
+				CompletableFuture<Void> lastTick = stopped;
+				simulation.execute(() -> lastTick.complete(null));
+				simulation.shutdown();
+			} else {
+				stopped.complete(null);
+			}
+		}
+		stopped = stopped.thenRun(() -> {
+			if (finalTask != null) {
+				try {
+					finalTask.run();
+				} catch (RuntimeException e) {
+					e.printStackTrace();
+				}
+			}
+			if (afterStopped != null) {
+				Platform.runLater(afterStopped);
+			}
+		});
+	}
+
+	/**
+	 * Queues input for the game.
+	 * @param playerMove The direction the player is moving(DIR_NONE if they aren't).
+	 * @return True if it was queued, false if it was dropped because the queue is full.
+	 */
+	public boolean queueInput(Direction playerMove) {
+		return inputs.offer(playerMove);
+	}
+
+	/**
+	 * Plays a turn if there's input waiting and captures the frame after it.
+	 */
+	private void tick() {
+		if (failed) {
+			return;
+		}
+		Direction playerMove = inputs.poll();
+		if (playerMove != null) {
+			try {
+				game.playTurn(playerMove);
+				latestFrame = game.captureFrame();
+			} catch (RuntimeException e) {
+				//The turn was only partly played, so the game can't carry on from it.
+				failed = true;
+				inputs.clear();
+				game.turnFailed(e);
+			}
+		}
+	}
+}
@@ -1,12 +1,7 @@
-import java.net.MalformedURLException;
-
-import javafx.scene.media.Media;
-import javafx.scene.media.MediaPlayer;
-
 /**
  * Information that's constant between scenes.
  * @author Josiah Richards
- * @version 1.1
+ * @version 1.2
  */
 public class GlobalInfo {
 	//The new line character for writing files.
@@ -31,17 +26,6 @@ public class GlobalInfo {
 		continueLevel = false;
 	}
 	
-	/**
-	 * Plays a sound.
-	 * @param soundName The name of the sound file with its extension
-	 * @throws MalformedURLException 
-	 */
-	public static void playSound(String soundName) throws MalformedURLException {
-		Media sound = new Media(FileManager.filePathToURL(FileManager.getSoundPath(soundName)).toString());
-		MediaPlayer mediaPlayer = new MediaPlayer(sound);
-		mediaPlayer.play();
-	}
-	
 	/**
 	 * Sets the selected profile ID.
 	 * @param selectedProfileID The new selected profile ID.
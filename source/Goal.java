@@ -30,6 +30,11 @@ public class Goal extends Cell {
 		return SYMBOL;
 	}
 	
+	@Override
+	public boolean isShareable() {
+		return true;
+	}
+	
 	
 	@Override
 	public void stepOn(Moving steppedOnBy, Direction movedDir) {
@@ -39,4 +39,9 @@ public class Ground extends Cell{
 	public char getSymbol() {
 		return SYMBOL;
 	}
+	
+	@Override
+	public boolean isShareable() {
+		return true;
+	}
 }
@@ -5,7 +5,7 @@ import java.net.MalformedURLException;
  * by a player.
  * In retrospect this probably should have been a Cell.
  * @author Josiah Richards
- * @version 1.1
+ * @version 1.2
  */
 public class HintBlock extends Entity {
 	//The name of this object in the meta information.
@@ -37,6 +37,14 @@ public class HintBlock extends Entity {
 		this.hint = hint;
 	}
 	
+	/**
+	 * Gets the hint that this hint block displays when stepped on.
+	 * @return The hint.
+	 */
+	public String getHint() {
+		return hint;
+	}
+	
 	@Override
 	public String getMetaInfo() {
 		return String.format(META_FORMAT, gridCoords.toString(), META_KEYWORD, hint);
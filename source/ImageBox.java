@@ -4,13 +4,17 @@ import javafx.scene.image.Image;
 
 /**
  * A rectangular image that can be rendered.
+ * The image is only loaded the first time it's needed for rendering
+ * so that objects can be created without a renderer(e.g. headless simulations).
  * @author Josiah Richards
- * @version 1.1
+ * @version 1.2
  */
 public class ImageBox extends Renderable {
 	
-	//The image for this image box.
-	protected Image myImage;
+	//The URL of the image for this image box, null if there isn't one.
+	private String imageURL;
+	//The loaded image for this image box, null until it's first needed.
+	private Image myImage;
 	
 	/**
 	 * Creates an ImageBox that has a given image.
@@ -28,16 +32,32 @@ public class ImageBox extends Renderable {
 	 */
 	public ImageBox() {
 		super();
+		imageURL = null;
 		myImage = null;
 	}
 	
 	/**
 	 * Changes the image of this image box.
+	 * The image itself isn't loaded until it's needed.
 	 * @param imageName The name of the image file(with extension and not the full path).
 	 * @throws MalformedURLException If the image is invalid.
 	 */
 	public void setImage(String imageName) throws MalformedURLException {
-		myImage = new Image(FileManager.filePathToURL(FileManager.getImagePath(imageName)).toString());
+		imageURL = SpriteCache.getImageURL(imageName);
+		//Forget any previously loaded image.
+		myImage = null;
+	}
+	
+	/**
+	 * Gets the image of this image box, getting it from the sprite cache
+	 * if it hasn't been needed yet.
+	 * @return The image of this image box, null if it doesn't have one.
+	 */
+	public Image getImage() {
+		if (myImage == null && imageURL != null) {
+			myImage = SpriteCache.getImage(imageURL);
+		}
+		return myImage;
 	}
 	
 	/**
@@ -45,8 +65,9 @@ public class ImageBox extends Renderable {
 	 */
 	@Override
 	public void render(GraphicsContext graphicsContext) {
-		if (myImage != null) {
-			graphicsContext.drawImage(myImage, renderPos.getX(), renderPos.getY());
+		Image image = getImage();
+		if (image != null) {
+			graphicsContext.drawImage(image, renderPos.getX(), renderPos.getY());
 		}
 	}
 }
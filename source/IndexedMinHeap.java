@@ -0,0 +1,280 @@
+import java.util.Arrays;
+
+/**
+ * A binary min heap of grid indices ordered by a long key, where each
+ * grid index can be in the heap at most once.
+ * The heap remembers where each grid index is stored so that changing the
+ * key of an index already in the heap (decrease key) or removing it
+ * doesn't require searching through the heap.
+ * Only grid indices inside an area of the grid(e.g. the area a search covers) can be
+ * added. Where each index is stored is kept in pages of the area that are only created
+ * once an index in them is added, and the heap array grows as it's filled, so the memory
+ * used follows what's put in the heap rather than the size of the grid. Storage is kept
+ * when the heap is emptied, so once it's grown using the heap creates no garbage.
+ * @author Josiah Richards
+ * @version 2.0
+ */
+public class IndexedMinHeap {
+
+	//The position of a grid index that isn't in the heap.
+	private static final int NOT_IN_HEAP = -1;
+	//How many grid indices the heap array holds to begin with.
+	private static final int INITIAL_CAPACITY = 64;
+
+	//The width of the grid, to get the coordinates of a grid index.
+	private int gridWidth;
+	//The grid indices in the heap, in heap order.
+	private int[] heap;
+	//The key of each grid index in the heap, in heap order.
+	private long[] keys;
+	//Where each grid index is in the heap array, or NOT_IN_HEAP.
+	private PagedIntGrid positions;
+	//How many grid indices are in the heap.
+	private int size;
+
+	/**
+	 * Creates an empty heap for the grid indices in an area in the top left of a grid.
+	 * @param gridWidth The width of the grid.
+	 * @param areaWidth The width of the largest area indices will be added from.
+	 * @param areaHeight The height of the largest area indices will be added from.
+	 */
+	public IndexedMinHeap(int gridWidth, int areaWidth, int areaHeight) {
+		this.gridWidth = gridWidth;
+		heap = new int[INITIAL_CAPACITY];
+		keys = new long[INITIAL_CAPACITY];
+		positions = new PagedIntGrid(areaWidth, areaHeight, NOT_IN_HEAP);
+		size = 0;
+	}
+
+	/**
+	 * Empties the heap and moves the area grid indices can be added from.
+	 * The area can't be bigger than the area the heap was created with.
+	 * @param minX The left of the area.
+	 * @param minY The top of the area.
+	 * @param maxX The right of the area(inclusive).
+	 * @param maxY The bottom of the area(inclusive).
+	 */
+	public void setArea(int minX, int minY, int maxX, int maxY) {
+		size = 0;
+		positions.setArea(minX, minY, maxX, maxY);
+	}
+
+	/**
+	 * Checks if the heap is empty.
+	 * @return True if there's nothing in the heap, false otherwise.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Gets how many grid indices are in the heap.
+	 * @return The number of grid indices in the heap.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Checks if a grid index is in the heap.
+	 * @param index The grid index.
+	 * @return True if the index is in the heap, false otherwise.
+	 */
+	public boolean contains(int index) {
+		return getPosition(index) != NOT_IN_HEAP;
+	}
+
+	/**
+	 * Gets the key a grid index is stored with.
+	 * @param index A grid index that's in the heap.
+	 * @return The key of the grid index.
+	 */
+	public long getKey(int index) {
+		return keys[getPosition(index)];
+	}
+
+	/**
+	 * Gets the grid index with the smallest key without removing it.
+	 * @return The grid index with the smallest key.
+	 * @throws IllegalStateException If the heap is empty.
+	 */
+	public int peek() {
+		if (size == 0) {
+			throw new IllegalStateException("Heap is empty");
+		}
+		return heap[0];
+	}
+
+	/**
+	 * Gets the smallest key in the heap.
+	 * @return The smallest key, or Long.MAX_VALUE if the heap is empty.
+	 */
+	public long peekKey() {
+		return size == 0 ? Long.MAX_VALUE : keys[0];
+	}
+
+	/**
+	 * Adds a grid index to the heap, or changes its key if it's already
+	 * in the heap (the key may go up or down).
+	 * @param index The grid index, inside the heap's area.
+	 * @param key The key to order the index by.
+	 */
+	public void insertOrUpdate(int index, long key) {
+		int position = getPosition(index);
+		if (position == NOT_IN_HEAP) {
+			if (size == heap.length) {
+				grow();
+			}
+			//Add to the end and sift up into place.
+			heap[size] = index;
+			keys[size] = key;
+			size++;
+			siftUp(size - 1);
+		} else {
+			long oldKey = keys[position];
+			keys[position] = key;
+			if (key < oldKey) {
+				siftUp(position);
+			} else if (key > oldKey) {
+				siftDown(position);
+			}
+		}
+	}
+
+	/**
+	 * Removes and returns the grid index with the smallest key.
+	 * @return The grid index with the smallest key.
+	 * @throws IllegalStateException If the heap is empty.
+	 */
+	public int poll() {
+		int top = peek();
+		removeAt(0);
+		return top;
+	}
+
+	/**
+	 * Removes a grid index from the heap if it's in it.
+	 * @param index The grid index to remove.
+	 * @return True if the index was in the heap, false otherwise.
+	 */
+	public boolean remove(int index) {
+		int position = getPosition(index);
+		if (position == NOT_IN_HEAP) {
+			return false;
+		}
+		removeAt(position);
+		return true;
+	}
+
+	/**
+	 * Empties the heap.
+	 * Only touches the pages of the area that have been used.
+	 */
+	public void clear() {
+		positions.clear();
+		size = 0;
+	}
+
+	/**
+	 * Removes whatever is at a position in the heap array.
+	 * @param position The position in the heap array.
+	 */
+	private void removeAt(int position) {
+		int removed = heap[position];
+		setPosition(removed, NOT_IN_HEAP);
+		size--;
+		//Fill the gap with the last element and move it into place.
+		if (position != size) {
+			int last = heap[size];
+			heap[position] = last;
+			keys[position] = keys[size];
+			setPosition(last, position);
+			siftDown(position);
+			siftUp(getPosition(last));
+		}
+	}
+
+	/**
+	 * Moves the element at a position up until its parent is smaller.
+	 * @param position The position in the heap array.
+	 */
+	private void siftUp(int position) {
+		int index = heap[position];
+		long key = keys[position];
+		while (position > 0) {
+			int parentPosition = (position - 1) / 2;
+			if (keys[parentPosition] <= key) {
+				break;
+			}
+			move(parentPosition, position);
+			position = parentPosition;
+		}
+		heap[position] = index;
+		keys[position] = key;
+		setPosition(index, position);
+	}
+
+	/**
+	 * Moves the element at a position down until its children are larger.
+	 * @param position The position in the heap array.
+	 */
+	private void siftDown(int position) {
+		int index = heap[position];
+		long key = keys[position];
+		int half = size / 2;
+		while (position < half) {
+			int childPosition = 2 * position + 1;
+			int rightPosition = childPosition + 1;
+			//Pick the smaller of the 2 children.
+			if (rightPosition < size && keys[rightPosition] < keys[childPosition]) {
+				childPosition = rightPosition;
+			}
+			if (key <= keys[childPosition]) {
+				break;
+			}
+			move(childPosition, position);
+			position = childPosition;
+		}
+		heap[position] = index;
+		keys[position] = key;
+		setPosition(index, position);
+	}
+
+	/**
+	 * Moves the element at a position in the heap array to another position.
+	 * @param from The position to move from.
+	 * @param to The position to move to.
+	 */
+	private void move(int from, int to) {
+		int index = heap[from];
+		heap[to] = index;
+		keys[to] = keys[from];
+		setPosition(index, to);
+	}
+
+	/**
+	 * Gets where a grid index is in the heap array.
+	 * @param index The grid index.
+	 * @return The position in the heap array, or NOT_IN_HEAP.
+	 */
+	private int getPosition(int index) {
+		return positions.get(index % gridWidth, index / gridWidth);
+	}
+
+	/**
+	 * Records where a grid index is in the heap array.
+	 * @param index The grid index.
+	 * @param position The position in the heap array, or NOT_IN_HEAP.
+	 */
+	private void setPosition(int index, int position) {
+		positions.set(index % gridWidth, index / gridWidth, position);
+	}
+
+	/**
+	 * Doubles the size of the heap array.
+	 */
+	private void grow() {
+		heap = Arrays.copyOf(heap, heap.length * 2);
+		keys = Arrays.copyOf(keys, keys.length * 2);
+	}
+}
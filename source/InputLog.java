@@ -0,0 +1,226 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+
+/**
+ * Records every input of a run through a level(from the start of the level until
+ * it's won or lost), so the run can be replayed exactly by RunReplayer
+ * (e.g. to check a high score or reproduce a bug).
+ * The run is appended to a log next to the save in the background as it's played
+ * so it carries on when the level is continued, and is kept in the profile's
+ * runs folder once the run is over. Like the save(see MoveJournal) the log isn't
+ * started until the first move, so the log of a save is never replaced by a run
+ * that hasn't been played.
+ * A run log file is:
+ * - The magic bytes "SJIL" and a version byte.
+ * - The map ID, a CRC32 hash of the map's layout file and the seed of the map's
+ *   random numbers.
+ * - Each input: a move code(see MoveJournal.getMoveCode, or WAIT_CODE for time passing
+ *   without a move, e.g. leaving the level) and the time taken since the last input.
+ * Numbers are written with VarIntUtils.
+ * @author Josiah Richards
+ * @version 1.2
+ */
+public class InputLog {
+
+	//The bytes every run log file starts with.
+	public static final byte[] MAGIC = {'S', 'J', 'I', 'L'};
+	//The version of the format written, readers reject newer versions.
+	public static final int VERSION = 1;
+	//The code for time passing without a move(the map isn't updated).
+	public static final int WAIT_CODE = 255;
+
+	//The size of the buffer for hashing map files.
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	//The run log file.
+	private String runLogFileLoc;
+	//The time(in milliseconds) on the map at the last input.
+	private long lastTime;
+	//If the run is being recorded(runs continued from saves made
+	//before runs were recorded can't be).
+	private boolean isRecording;
+	//Writes the log's header when the first move is made, null once it's been written.
+	private SaveService.SaveTask startTask = null;
+
+	/**
+	 * Creates a run log.
+	 * @param runLogFileLoc The run log file.
+	 * @param lastTime The time on the map at the last input.
+	 * @param isRecording If the run is being recorded.
+	 */
+	private InputLog(String runLogFileLoc, long lastTime, boolean isRecording) {
+		this.runLogFileLoc = runLogFileLoc;
+		this.lastTime = lastTime;
+		this.isRecording = isRecording;
+	}
+
+	/**
+	 * Starts recording a run of a level from the start, the run log's
+	 * header is written in the background when the first move is made.
+	 * @param runLogFileLoc The run log file(replaced if it exists).
+	 * @param mapID The ID of the level.
+	 * @param layoutFileLoc The layout file the map was loaded from.
+	 * @param map The map loaded from the layout.
+	 * @return The run log.
+	 */
+	public static InputLog startRun(String runLogFileLoc, int mapID, String layoutFileLoc, Map map) {
+		long seed = map.getSeed();
+		InputLog runLog = new InputLog(runLogFileLoc, map.getLastTime(), true);
+		runLog.startTask = () -> {
+			DataOutputStream data = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(runLogFileLoc)));
+			try {
+				data.write(MAGIC);
+				data.writeByte(VERSION);
+				VarIntUtils.writeVarInt(data, mapID);
+				data.writeLong(hashMapFile(layoutFileLoc));
+				data.writeLong(seed);
+			} finally {
+				data.close();
+			}
+		};
+		return runLog;
+	}
+
+	/**
+	 * Carries on recording a run continued from a save.
+	 * Pending saves must have finished.
+	 * @param runLogFileLoc The run log file.
+	 * @param map The map loaded from the save.
+	 * @return The run log.
+	 */
+	public static InputLog continueRun(String runLogFileLoc, Map map) {
+		return new InputLog(runLogFileLoc, map.getLastTime(), FileManager.fileExists(runLogFileLoc));
+	}
+
+	/**
+	 * Records a move in the background, before it's played.
+	 * @param playerMove The direction the player is moving(DIR_NONE if they aren't).
+	 * @param time The time(in milliseconds) on the map at the move.
+	 */
+	public void recordMove(Direction playerMove, long time) {
+		record(MoveJournal.getMoveCode(playerMove), time);
+	}
+
+	/**
+	 * Records time passing without a move in the background(e.g. leaving the level).
+	 * @param time The time(in milliseconds) on the map.
+	 */
+	public void recordWait(long time) {
+		record(WAIT_CODE, time);
+	}
+
+	/**
+	 * Gets the time on the map at the last input.
+	 * @return The time in milliseconds.
+	 */
+	public long getLastTime() {
+		return lastTime;
+	}
+
+	/**
+	 * Ends the run, moving the run log to where finished runs are kept
+	 * in the background(replacing the last run kept there).
+	 * @param finishedRunFileLoc Where to keep the finished run.
+	 */
+	public void finish(String finishedRunFileLoc) {
+		if (!isRecording || startTask != null) {
+			//Nothing to keep.
+			isRecording = false;
+			return;
+		}
+		isRecording = false;
+		SaveService.runInBackground(runLogFileLoc, () -> {
+			File runLogFile = new File(runLogFileLoc);
+			if (runLogFile.exists()) {
+				File finishedRunFile = new File(finishedRunFileLoc);
+				FileManager.createDirIfNeeded(finishedRunFile.getParent(), true);
+				FileManager.replaceFile(runLogFile, finishedRunFile);
+			}
+		});
+	}
+
+	/**
+	 * Stops recording the run and deletes its log in the background
+	 * (e.g. a move failed part way through, so the run can't be replayed).
+	 */
+	public void discard() {
+		if (!isRecording || startTask != null) {
+			//Nothing's been written(or the run's already been kept).
+			startTask = null;
+			isRecording = false;
+			return;
+		}
+		isRecording = false;
+		SaveService.deleteSave(runLogFileLoc);
+	}
+
+	/**
+	 * Hashes a map file, so a run can only be replayed on the map it was played on.
+	 * @param mapFileLoc The map file.
+	 * @return The CRC32 hash of the file.
+	 * @throws IOException If the file couldn't be read.
+	 */
+	public static long hashMapFile(String mapFileLoc) throws IOException {
+		CRC32 hash = new CRC32();
+		InputStream in = new BufferedInputStream(new FileInputStream(mapFileLoc), BUFFER_SIZE);
+		try {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int numRead = in.read(buffer);
+			while (numRead >= 0) {
+				hash.update(buffer, 0, numRead);
+				numRead = in.read(buffer);
+			}
+		} finally {
+			in.close();
+		}
+		return hash.getValue();
+	}
+
+	/**
+	 * Appends an input to the run log in the background.
+	 * @param code The input's code.
+	 * @param time The time(in milliseconds) on the map at the input.
+	 */
+	private void record(int code, long time) {
+		if (startTask != null) {
+			if (code == WAIT_CODE) {
+				//Nothing's been played yet, the first move's time includes this.
+				return;
+			}
+			SaveService.runInBackground(runLogFileLoc, startTask);
+			startTask = null;
+		}
+		long timeTaken = Math.max(0L, time - lastTime);
+		lastTime += timeTaken;
+		if (!isRecording) {
+			return;
+		}
+		ByteArrayOutputStream inputBytes = new ByteArrayOutputStream();
+		DataOutputStream data = new DataOutputStream(inputBytes);
+		try {
+			data.writeByte(code);
+			VarIntUtils.writeVarLong(data, timeTaken);
+		} catch (IOException e) {
+			//Can't happen writing to memory.
+			throw new IllegalStateException(e);
+		}
+		byte[] input = inputBytes.toByteArray();
+		SaveService.runInBackground(runLogFileLoc, () -> {
+			FileOutputStream out = new FileOutputStream(runLogFileLoc, true);
+			try {
+				out.write(input);
+			} finally {
+				out.close();
+			}
+		});
+	}
+}
@@ -8,7 +8,7 @@ import javafx.scene.control.cell.PropertyValueFactory;
 /**
  * Controls the Leaderboard scene.
  * @author Josiah Richards
- * @version 1.0
+ * @version 1.2
  */
 public class LeaderboardController extends Controller {
 
@@ -27,6 +27,11 @@ public class LeaderboardController extends Controller {
 	public void initialize() {
 	}
 
+	@Override
+	public void reset() {
+		tblScores.getItems().clear();
+	}
+
 	@Override
 	public void manualInitialize() {
 		//Setup back button
@@ -54,18 +59,19 @@ public class LeaderboardController extends Controller {
 			//Add a row for each high score
 			ProfileIDScorePair[] highScores = info.getHighScores();
 			for (int i = 0; i < highScores.length; i++) {
-				try {
-					//Try and get the profile for the high score
-					Profile profile = ProfileManager.loadProfile(highScores[i].getProfileID());
+				if (highScores[i] == null) {
+					//Fewer scores than places.
+					continue;
+				}
+				//Get the name of the profile for the high score(cached after the first time).
+				String name = ProfileManager.getProfileName(highScores[i].getProfileID());
+				if (name != null) {
 					//Format the milliseconds time nicely
 					String time = TimerFormatter.formatMilliseconds(highScores[i].getScore());
 					//Add the row (i+1 to make the rank start at 1)
-					LeaderboardRow newRow = new LeaderboardRow(i+1, profile.getName(), time);
+					LeaderboardRow newRow = new LeaderboardRow(i+1, name, time);
 					tblScores.getItems().add(newRow);
-				} catch (Exception e) {
-					e.printStackTrace();
 				}
-				
 			}
 		}
 		
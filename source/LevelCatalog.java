@@ -0,0 +1,266 @@
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps the information about every installed level in memory(its name,
+ * high scores and layout file info) so the level screens don't have to read it.
+ * The maps folder is scanned in the background, loading levels in parallel,
+ * and scanning again only reloads the levels whose files have changed.
+ * Levels are got as futures, so screens can show straight away and fill
+ * in the levels as they're loaded.
+ * @author Josiah Richards
+ * @version 1.0
+ */
+public class LevelCatalog {
+
+	/**
+	 * What the catalog knows about a level, never changes once loaded.
+	 */
+	public static class Level {
+
+		//The ID of the level's map.
+		private final int mapID;
+		//The name of the level.
+		private final String name;
+		//The high scores when the level was loaded.
+		private final ProfileIDScorePair[] highScores;
+		//The size of the layout file in bytes.
+		private final long layoutSize;
+		//If the layout file is in the binary format(see BinaryMapFormat).
+		private final boolean isBinaryLayout;
+		//When the info and layout files were last changed when the level was loaded.
+		private final long infoLastModified;
+		private final long layoutLastModified;
+
+		/**
+		 * Loads a level from its files.
+		 * @param mapID The ID of the level's map.
+		 * @throws ParsingException If the level's info couldn't be loaded.
+		 * @throws IOException If the level's layout couldn't be read.
+		 */
+		private Level(int mapID) throws ParsingException, IOException {
+			this.mapID = mapID;
+			File infoFile = new File(FileManager.getMapInfoFile(mapID));
+			File layoutFile = new File(FileManager.getMapLayoutFile(mapID));
+			//Check when the files changed first, so changes made while loading are picked up next scan.
+			infoLastModified = infoFile.lastModified();
+			layoutLastModified = layoutFile.lastModified();
+
+			MapInfo mapInfo = MapInfo.loadMapInfo(mapID);
+			name = mapInfo.getMapName();
+			highScores = new ProfileIDScorePair[mapInfo.getHighScores().length];
+			for (int i = 0; i < highScores.length; i++) {
+				ProfileIDScorePair highScore = mapInfo.getHighScores()[i];
+				if (highScore != null) {
+					highScores[i] = new ProfileIDScorePair(highScore.getProfileID(), highScore.getScore());
+				}
+			}
+
+			layoutSize = layoutFile.length();
+			InputStream in = new BufferedInputStream(new FileInputStream(layoutFile));
+			try {
+				isBinaryLayout = BinaryMapReader.isBinaryMap(in);
+			} finally {
+				in.close();
+			}
+		}
+
+		/**
+		 * Checks if the level's files have changed since it was loaded.
+		 * @return True if they haven't changed, false otherwise.
+		 */
+		private boolean isUpToDate() {
+			return new File(FileManager.getMapInfoFile(mapID)).lastModified() == infoLastModified
+					&& new File(FileManager.getMapLayoutFile(mapID)).lastModified() == layoutLastModified;
+		}
+
+		/**
+		 * Gets the ID of the level's map.
+		 * @return The map ID.
+		 */
+		public int getMapID() {
+			return mapID;
+		}
+
+		/**
+		 * Gets the name of the level.
+		 * @return The name.
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Gets the high scores of the level, leaving out profiles deleted since it was loaded.
+		 * @return The high scores, best first(null for places without a score).
+		 */
+		public ProfileIDScorePair[] getHighScores() {
+			ProfileIDScorePair[] currentScores = new ProfileIDScorePair[highScores.length];
+			int numScores = 0;
+			for (ProfileIDScorePair highScore : highScores) {
+				if (highScore != null && ProfileManager.profileExists(highScore.getProfileID())) {
+					currentScores[numScores++] = new ProfileIDScorePair(highScore.getProfileID(),
+																		highScore.getScore());
+				}
+			}
+			return currentScores;
+		}
+
+		/**
+		 * Gets the size of the level's layout file.
+		 * @return The size in bytes.
+		 */
+		public long getLayoutSize() {
+			return layoutSize;
+		}
+
+		/**
+		 * Checks if the level's layout file is in the binary format.
+		 * @return True if it's binary, false if it's text.
+		 */
+		public boolean isBinaryLayout() {
+			return isBinaryLayout;
+		}
+	}
+
+	//The threads levels are loaded on, daemon threads so they never keep the game open.
+	private static final ExecutorService LOAD_EXECUTOR = Executors.newFixedThreadPool(
+			Math.max(1, Runtime.getRuntime().availableProcessors()), task -> {
+				Thread loadThread = new Thread(task, "Level catalog");
+				loadThread.setDaemon(true);
+				return loadThread;
+			});
+
+	//The levels loaded or being loaded by map ID.
+	private static final HashMap<Integer, CompletableFuture<Level>> LEVELS =
+			new HashMap<Integer, CompletableFuture<Level>>();
+
+	//The IDs of the installed levels found by the last scan, null before the first scan.
+	private static CompletableFuture<List<Integer>> levelIDs = null;
+
+	/**
+	 * Scans the maps folder in the background, loading the levels that haven't been
+	 * loaded or have changed since they were and forgetting levels that have been removed.
+	 */
+	public static synchronized void scan() {
+		levelIDs = CompletableFuture.supplyAsync(() -> listLevelIDs(), LOAD_EXECUTOR);
+		levelIDs.thenAccept(installedIDs -> {
+			synchronized (LEVELS) {
+				LEVELS.keySet().retainAll(installedIDs);
+			}
+			for (int mapID : installedIDs) {
+				LOAD_EXECUTOR.execute(() -> loadIfChanged(mapID));
+			}
+		});
+	}
+
+	/**
+	 * Gets the IDs of the installed levels, scanning the maps folder if it hasn't been.
+	 * @return The IDs in order, once the maps folder has been listed.
+	 */
+	public static synchronized CompletableFuture<List<Integer>> getLevelIDs() {
+		if (levelIDs == null) {
+			scan();
+		}
+		return levelIDs;
+	}
+
+	/**
+	 * Gets a level, loading it in the background if it isn't loaded.
+	 * @param mapID The ID of the level's map.
+	 * @return The level once it's loaded, failing if it couldn't be.
+	 */
+	public static CompletableFuture<Level> getLevel(int mapID) {
+		synchronized (LEVELS) {
+			CompletableFuture<Level> level = LEVELS.get(mapID);
+			if (level == null) {
+				level = load(mapID);
+			}
+			return level;
+		}
+	}
+
+	/**
+	 * Loads a level again in the background(e.g. its high scores have changed).
+	 * @param mapID The ID of the level's map.
+	 */
+	public static void refresh(int mapID) {
+		synchronized (LEVELS) {
+			load(mapID);
+		}
+	}
+
+	/**
+	 * Starts loading a level in the background, replacing what was loaded before.
+	 * Must be called while holding LEVELS.
+	 * @param mapID The ID of the level's map.
+	 * @return The level once it's loaded.
+	 */
+	private static CompletableFuture<Level> load(int mapID) {
+		CompletableFuture<Level> level = CompletableFuture.supplyAsync(() -> {
+			try {
+				return new Level(mapID);
+			} catch (ParsingException | IOException e) {
+				throw new CompletionException(e);
+			}
+		}, LOAD_EXECUTOR);
+		LEVELS.put(mapID, level);
+		return level;
+	}
+
+	/**
+	 * Loads a level if it hasn't been loaded, failed to load or has changed since
+	 * it was loaded(called on the load threads).
+	 * @param mapID The ID of the level's map.
+	 */
+	private static void loadIfChanged(int mapID) {
+		CompletableFuture<Level> level;
+		synchronized (LEVELS) {
+			level = LEVELS.get(mapID);
+		}
+		if (level != null && !level.isDone()) {
+			//Already being loaded.
+			return;
+		}
+		if (level != null && !level.isCompletedExceptionally() && level.join().isUpToDate()) {
+			return;
+		}
+		synchronized (LEVELS) {
+			//Unless something else has started loading it since.
+			if (LEVELS.get(mapID) == level) {
+				load(mapID);
+			}
+		}
+	}
+
+	/**
+	 * Lists the IDs of the installed levels(the maps folders with an ID as their name).
+	 * @return The IDs in order.
+	 */
+	private static List<Integer> listLevelIDs() {
+		List<Integer> installedIDs = new ArrayList<Integer>();
+		File[] mapFolders = new File(FileManager.getMapsFolderPath()).listFiles();
+		if (mapFolders != null) {
+			for (File mapFolder : mapFolders) {
+				try {
+					installedIDs.add(Integer.parseInt(mapFolder.getName()));
+				} catch (NumberFormatException e) {
+					//Not a level.
+				}
+			}
+		}
+		Collections.sort(installedIDs);
+		return installedIDs;
+	}
+}
@@ -1,20 +1,27 @@
+import javafx.application.Platform;
+import javafx.event.EventHandler;
 import javafx.fxml.FXML;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
+import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.input.KeyEvent;
-import java.io.File;
 import java.io.FileNotFoundException;
 import java.net.MalformedURLException;
 
 /**
  * Controls the level scene.
+ * The level is played on a game loop: moves are played on the simulation thread
+ * and the UI renders the latest frame captured after a move, so a slow move never
+ * freezes the UI. Winning and losing are handled back on the JavaFX thread, the
+ * work that needs the map(e.g. saving it) is done on the simulation thread once
+ * the loop has stopped so the UI never waits for a move to finish.
  * @author Josiah Richards
- * @version 2.0
+ * @version 3.1
  */
-public class LevelController extends Controller {
+public class LevelController extends Controller implements LevelListener, GameLoop.Game<LevelController.LevelFrame> {
 
 	//Sounds to play when the player wins/loses
 	private static final String WIN_SOUND = "SantaWins.mp3";
@@ -28,6 +35,37 @@ public class LevelController extends Controller {
 	private static final String HINT_TEXT_FORMAT = "HINT: %s";
 	//The camera to use when rending the map.
 	private static final Camera MAP_CAMERA = new Camera(new Vector2(9,9));
+	//How many times a second the level is updated(moves are played at most this often).
+	private static final int TICK_RATE = GameLoop.DEFAULT_TICK_RATE;
+	
+	/**
+	 * What the level looked like after a move, captured on the simulation
+	 * thread for the UI to render.
+	 */
+	static class LevelFrame {
+		//What the camera could see.
+		private final MapView mapView;
+		//The number of tokens the player had collected.
+		private final int numTokensCollected;
+		//The images of the items in the player's inventory that can be displayed.
+		private final Image[] inventoryItems;
+		//The hint text.
+		private final String hintText;
+		
+		/**
+		 * Creates a level frame.
+		 * @param mapView What the camera could see.
+		 * @param numTokensCollected The number of tokens the player had collected.
+		 * @param inventoryItems The images of the items in the player's inventory.
+		 * @param hintText The hint text.
+		 */
+		LevelFrame(MapView mapView, int numTokensCollected, Image[] inventoryItems, String hintText) {
+			this.mapView = mapView;
+			this.numTokensCollected = numTokensCollected;
+			this.inventoryItems = inventoryItems;
+			this.hintText = hintText;
+		}
+	}
 	
 	//FXML UI elements
 	@FXML Button btnBack;
@@ -38,6 +76,8 @@ public class LevelController extends Controller {
 	
 	//The current map instance.
 	private Map mapMain;
+	//The renderer for the current map.
+	private MapRenderer mapRenderer;
 	//The current graphics context we're rendering the map onto.
 	private GraphicsContext graphicsContext;
 	//The total number of tokens that can be collected in the map.
@@ -46,13 +86,34 @@ public class LevelController extends Controller {
 	private Stopwatch timer;
 	//The image views for displaying the inventory items.
 	private ImageView[] inventoryImages;
-	//The current hint text.
-	private String curHintText;
+	//The current hint text(set on the simulation thread).
+	private volatile String curHintText;
+	//If the current map was loaded from a save.
+	private boolean loadedFromSave;
+	//The journal the moves made on the current map are autosaved to.
+	private MoveJournal journal;
+	//The log of every input in the current run through the level.
+	private InputLog runLog;
+	//Plays and renders the current map.
+	private GameLoop<LevelFrame> gameLoop;
+	//If the current map has been won or lost(set on the simulation thread).
+	private volatile boolean levelEnded;
+	//If the back button has been clicked and the level is being left.
+	private boolean leavingLevel;
+	//The last frame rendered.
+	private LevelFrame lastFrame;
+	//Handles key presses on the scene, kept so it can be removed when the scene is reused.
+	private final EventHandler<KeyEvent> keyFilter = event -> processKeyEvent(event);
 	
 	@Override
 	public void initialize() {
 	}
 
+	@Override
+	public void reset() {
+		main.getCurScene().removeEventFilter(KeyEvent.KEY_PRESSED, keyFilter);
+	}
+
 	@Override
 	public void manualInitialize() {
 		curHintText = "";
@@ -77,7 +138,7 @@ public class LevelController extends Controller {
 		});
 		
 		//Set up keyboard input handler.
-		main.getCurScene().addEventFilter(KeyEvent.KEY_PRESSED, event -> processKeyEvent(event));
+		main.getCurScene().addEventFilter(KeyEvent.KEY_PRESSED, keyFilter);
 		restart();
 	}
 	
@@ -85,6 +146,7 @@ public class LevelController extends Controller {
 	 * Changes the current hint text.
 	 * @param curHintText The new hunt text.
 	 */
+	@Override
 	public void setCurHintText(String curHintText) {
 		this.curHintText = curHintText;
 	}
@@ -92,9 +154,13 @@ public class LevelController extends Controller {
 	/**
 	 * Tries to restarts the level, if the map
 	 * couldn't be loaded it returns to the select level scene.
+	 * The game loop must have been stopped.
 	 */
 	public void restart() {
 		mapMain = null;
+		gameLoop = null;
+		levelEnded = false;
+		leavingLevel = false;
 		//Reload the map
 		if (loadMap()) {
 			//Recount the total number of tokens for this map.
@@ -107,10 +173,15 @@ public class LevelController extends Controller {
 			} catch (MalformedURLException e) {
 				e.printStackTrace();
 			}
-			//Create and start the timer 
+			//Replay the moves autosaved since the save, or start autosaving from the layout.
+			startJournal();
+			//Create the timer, it's started by the first input.
 			timer = new Stopwatch(mapMain.getLastTime());
-			//Redraw the UI.
-			redraw();
+			//Start playing and rendering the map.
+			lastFrame = null;
+			mapRenderer.markAllDirty();
+			gameLoop = new GameLoop<LevelFrame>(this, TICK_RATE);
+			gameLoop.start();
 		}else {
 			main.switchToScene(Main.SceneType.SelectLevel);
 		}
@@ -125,11 +196,12 @@ public class LevelController extends Controller {
 	public boolean loadMap() {
 		//If we succesfully loaded the map or not.
 		boolean loadedLevel = false;
+		loadedFromSave = false;
 		
 		//If the save file doesn't exist for this map and profile,
 		//disable continuing from a save file.
 		if (main.getGlobalInfo().getContinueLevel()) {
-			if (!FileManager.fileExists(FileManager.getSavedMapFile(
+			if (!SaveService.saveExists(FileManager.getSavedMapFile(
 							main.getGlobalInfo().getSelectedProfileID(), 
 							main.getGlobalInfo().getCurrentLevelID()))) {
 				main.getGlobalInfo().setContinueLevel(false);
@@ -144,6 +216,7 @@ public class LevelController extends Controller {
 			try {
 				loadSave(main.getGlobalInfo().getSelectedProfileID(), main.getGlobalInfo().getCurrentLevelID());
 				loadedLevel = true;
+				loadedFromSave = true;
 			} catch (Exception e) {
 				e.printStackTrace();
 				
@@ -159,7 +232,8 @@ public class LevelController extends Controller {
 		}
 		//Update the map's level controller.
 		if(loadedLevel) {
-			mapMain.setLevelController(this);
+			mapMain.setLevelListener(this);
+			mapRenderer = new MapRenderer(mapMain);
 		}
 		return loadedLevel;
 	}
@@ -183,9 +257,37 @@ public class LevelController extends Controller {
 	 * @throws ParsingException If the save file couldn't be parsed.
 	 */
 	public void loadSave(int profileID, int mapID) throws FileNotFoundException, ParsingException {
+		//Make sure the save has finished being written.
+		SaveService.waitForPendingSaves();
 		mapMain = MapReader.readMapFile(FileManager.getSavedMapFile(profileID, mapID));
 	}
 	
+	/**
+	 * Starts the journal the moves made on mapMain are autosaved to,
+	 * and the log of the run's inputs.
+	 * When continuing from a save the moves already in the journal are replayed,
+	 * otherwise the save is replaced by the level's layout and a new run is started
+	 * once the first move is made.
+	 */
+	private void startJournal() {
+		int profileID = main.getGlobalInfo().getSelectedProfileID();
+		int levelID = main.getGlobalInfo().getCurrentLevelID();
+		String saveFileLoc = FileManager.getSavedMapFile(profileID, levelID);
+		String journalFileLoc = FileManager.getSavedJournalFile(profileID, levelID);
+		String runLogFileLoc = FileManager.getSavedRunLogFile(profileID, levelID);
+		if (loadedFromSave) {
+			//The moves didn't win or lose when they were made so don't listen while replaying them.
+			mapMain.setLevelListener(null);
+			journal = MoveJournal.continueSave(saveFileLoc, journalFileLoc, mapMain);
+			mapMain.setLevelListener(this);
+			runLog = InputLog.continueRun(runLogFileLoc, mapMain);
+		} else {
+			String layoutFileLoc = FileManager.getMapLayoutFile(levelID);
+			journal = MoveJournal.startLevel(saveFileLoc, journalFileLoc, layoutFileLoc, mapMain);
+			runLog = InputLog.startRun(runLogFileLoc, levelID, layoutFileLoc, mapMain);
+		}
+	}
+	
 	/**
 	 * Recounts the total number of tokens available in the map
 	 * (and already in the players inventory).
@@ -211,75 +313,99 @@ public class LevelController extends Controller {
 	 * saving the game and going back to the level menu.
 	 */
 	private void handleBtnBackAction() {
-		//Update the last time to our current time on the map
-		mapMain.setLastTime(timer.getElapsedTime());
-		//Save the map
-		try {
-			MapWriter.saveMapToFile(FileManager.getSavedMapFile(main.getGlobalInfo().getSelectedProfileID(), 
-								main.getGlobalInfo().getCurrentLevelID()), mapMain);
-		}catch (Exception e){
-			e.printStackTrace();
+		if (levelEnded || leavingLevel) {
+			//The level is being restarted or left already, let that happen instead.
+			return;
+		}
+		leavingLevel = true;
+		//Save once the move being played has finished(on the simulation thread),
+		//then go back to the level menu.
+		gameLoop.stop(() -> {
+			if (levelEnded) {
+				//The last move won or lost the level, that's handled instead.
+				return;
+			}
+			//Update the last time to our current time on the map
+			mapMain.setLastTime(timer.getElapsedTime());
+			runLog.recordWait(mapMain.getLastTime());
+			//Save the whole map in the background(in the binary format, old text saves can still
+			//be loaded) and empty the journal, the map isn't used again so it can't change
+			//while it's being saved.
+			journal.saveMap(mapMain);
+			mapMain = null;
+		}, () -> {
+			//If the last move ended the level it's still ended here(it's restarted after this).
+			if (!levelEnded) {
+				//Switch to the level menu
+				main.switchToScene(Main.SceneType.LevelMenu);
+			}
+		});
+	}
+	
+	@Override
+	public LevelFrame captureFrame() {
+		//Only the items that can be displayed are captured.
+		Inventory inventory = mapMain.getPlayer().getInventory();
+		Image[] inventoryItems = new Image[MAX_INVENTORY_DISPLAY_SIZE];
+		int curInventIndex = 0;
+		for (Collectable item : inventory.getItems()) {
+			if(curInventIndex < MAX_INVENTORY_DISPLAY_SIZE && item != null) {
+				inventoryItems[curInventIndex] = item.getImage();
+				curInventIndex++;
+			}
+		}
+		return new LevelFrame(mapRenderer.captureView(), inventory.getNumTokens(),
+								inventoryItems, curHintText);
+	}
+	
+	@Override
+	public void renderFrame(LevelFrame frame) {
+		//The time taken changes every frame.
+		lblTimeTaken.setText(TimerFormatter.formatMilliseconds(timer.getElapsedTime()));
+		if (frame != lastFrame) {
+			redraw(frame);
+			lastFrame = frame;
 		}
-		//Switch to the level menu
-		main.switchToScene(Main.SceneType.LevelMenu);
 	}
 	
 	/**
 	 * Redraws the UI.
+	 * @param frame What the level looked like after the last move.
 	 */
-	public void redraw(){
-		//Clear the canvas.
-		graphicsContext.clearRect(0, 0, gameCanvas.getWidth(), gameCanvas.getHeight());
-		
+	public void redraw(LevelFrame frame){
 		//Update hint label.
-		if (curHintText != null && curHintText != "") {
-			lblHint.setText(String.format(HINT_TEXT_FORMAT, curHintText));
+		if (frame.hintText != null && !frame.hintText.isEmpty()) {
+			lblHint.setText(String.format(HINT_TEXT_FORMAT, frame.hintText));
 		} else {
 			lblHint.setText("");
 		}
 		
 		//Render the map and inventory.
-		if (mapMain != null) {
-			renderMap();
-			renderStats();
-		}
+		renderMap(frame.mapView);
+		renderStats(frame);
 	}
 	
 	/**
-	 * Displays all the items in the players inventory, the current
-	 * tokens collected and the current time taken on the UI.
+	 * Displays all the items in the players inventory and the current
+	 * tokens collected on the UI.
+	 * @param frame What the level looked like after the last move.
 	 */
-	public void renderStats() {
-		if (mapMain != null) {
-			//Get the players inventory
-			Inventory inventory = mapMain.getPlayer().getInventory();
-			
-			//Update the tokens collected out of the total tokens
-			lblTokensCollected.setText(inventory.getNumTokens() + "/" + numTokens);
-			//Update the current time taken
-			lblTimeTaken.setText(TimerFormatter.formatMilliseconds(timer.getElapsedTime()));
-			
-			//Display each inventory item in one of the inventory images
-			//image views.
-			int curInventIndex = 0;
-			for (Collectable item : inventory.getItems()) {
-				if(curInventIndex < MAX_INVENTORY_DISPLAY_SIZE && item != null) {
-					inventoryImages[curInventIndex].setImage(item.myImage);
-					curInventIndex++;
-				}
-			}
-			
-			//Clear the rest of the inventory images
-			for (int i = curInventIndex; i < MAX_INVENTORY_DISPLAY_SIZE; i++) {
-				inventoryImages[i].setImage(null);
-			}
+	public void renderStats(LevelFrame frame) {
+		//Update the tokens collected out of the total tokens
+		lblTokensCollected.setText(frame.numTokensCollected + "/" + numTokens);
+		
+		//Display each inventory item in one of the inventory images
+		//image views(clearing the rest).
+		for (int i = 0; i < MAX_INVENTORY_DISPLAY_SIZE; i++) {
+			inventoryImages[i].setImage(frame.inventoryItems[i]);
 		}
 	}
 	
 	/**
-	 * Renders the mapMain
+	 * Renders a view of mapMain.
+	 * @param mapView What the camera could see.
 	 */
-	public void renderMap(){
+	public void renderMap(MapView mapView){
 		//Centre map
 		double width = graphicsContext.getCanvas().getWidth();
 		double height = graphicsContext.getCanvas().getHeight();
@@ -287,24 +413,74 @@ public class LevelController extends Controller {
 								((MAP_CAMERA.getSize().getX() / 2d) * Map.GRID_DIMENSION));
 		int yOffset = (int) Math.round((height / 2d ) - 
 								((MAP_CAMERA.getSize().getY() / 2d) * Map.GRID_DIMENSION));
-		mapMain.setRenderOffset(new Vector2(xOffset, yOffset));
 		
-		//Tell the map to render itself on our graphics context.
-		mapMain.render(graphicsContext);
+		//Render the view on our graphics context
+		//(the renderer only repaints what's changed since the last render).
+		mapRenderer.render(graphicsContext, mapView, new Vector2(xOffset, yOffset));
 	}
 	
 	/**
-	 * Handle the player losing, play a sound
-	 * and restart the map.
+	 * Handle the player losing(on the simulation thread), the sound is played
+	 * straight away and the level is restarted on the JavaFX thread.
 	 */
+	@Override
 	public void lose() {
-		try {
-			GlobalInfo.playSound(LOSE_SOUND);
-		} catch (MalformedURLException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+		if (!levelEnded) {
+			levelEnded = true;
+			Platform.runLater(() -> handleLose());
+			playSound(LOSE_SOUND);
 		}
-		restart();
+	}
+	
+	/**
+	 * Handle the player winning(on the simulation thread), the sound is played
+	 * straight away and the next level is started on the JavaFX thread.
+	 */
+	@Override
+	public void win() {
+		if (!levelEnded) {
+			levelEnded = true;
+			Platform.runLater(() -> handleWin());
+			playSound(WIN_SOUND);
+		}
+	}
+	
+	/**
+	 * Called when a move failed part way through(on the simulation thread).
+	 * The map can't be saved or the run replayed from a part played move, so the
+	 * run is dropped and the player is sent back to the level menu, the save is
+	 * left as it was after the last whole move.
+	 * @param e What went wrong.
+	 */
+	@Override
+	public void turnFailed(RuntimeException e) {
+		e.printStackTrace();
+		if (!levelEnded) {
+			levelEnded = true;
+			Platform.runLater(() -> handleTurnFailed());
+		}
+	}
+	
+	/**
+	 * Handle a move failing, dropping the run and going back to the level menu.
+	 */
+	private void handleTurnFailed() {
+		gameLoop.stop(() -> {
+			runLog.discard();
+			mapMain = null;
+		}, () -> main.switchToScene(Main.SceneType.LevelMenu));
+	}
+	
+	/**
+	 * Handle the player losing, restarting the map.
+	 */
+	private void handleLose() {
+		gameLoop.stop(() -> {
+			//Keep the run(e.g. for reproducing bugs).
+			finishRun();
+			//The run's over, there's nothing to continue.
+			journal.delete();
+		}, () -> restart());
 	}
 	
 	/**
@@ -312,85 +488,122 @@ public class LevelController extends Controller {
 	 * Updates the highscores and highest level the player has won
 	 * before sending them to the next level.
 	 */
-	public void win() {
-		long score = timer.getElapsedTime();
-		mapMain = null;
-		//Save high score
-		try{
-			MapInfo mapInfo = MapInfo.loadMapInfo(main.getGlobalInfo().getCurrentLevelID());
-			mapInfo.tryAddScore(main.getGlobalInfo().getSelectedProfileID(), score);
-			mapInfo.save();
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
-		//Update highest level
-		try {
-			Profile loadedProfile = ProfileManager.loadProfile(main.getGlobalInfo().getSelectedProfileID());
-			if (loadedProfile.getHighestLevel() < main.getGlobalInfo().getCurrentLevelID()) {
-				loadedProfile.setHighestLevel(main.getGlobalInfo().getCurrentLevelID());
-				ProfileManager.saveProfile(loadedProfile);
+	private void handleWin() {
+		int profileID = main.getGlobalInfo().getSelectedProfileID();
+		int levelID = main.getGlobalInfo().getCurrentLevelID();
+		gameLoop.stop(() -> {
+			//The score is the time of the winning move, so replaying the run gives the same score.
+			long score = runLog.getLastTime();
+			mapMain = null;
+			//Keep the run so the score can be checked(see RunReplayer).
+			finishRun();
+			//Save high score
+			try{
+				MapInfo mapInfo = MapInfo.loadMapInfo(levelID);
+				mapInfo.tryAddScore(profileID, score);
+				mapInfo.save();
+			} catch (Exception e) {
+				e.printStackTrace();
 			}
-		}catch (Exception e) {
-			e.printStackTrace();
-		}
-		
-		//Delete any map save file as the level has been completed.
-		String saveLoc = FileManager.getSavedMapFile(
-				main.getGlobalInfo().getSelectedProfileID(), 
-				main.getGlobalInfo().getCurrentLevelID());
-		File saveFile = new File(saveLoc);
-		if(saveFile.exists()) {
-			saveFile.delete();
-		}
-		//Play the win sound.
+			//Update highest level
+			try {
+				Profile loadedProfile = ProfileManager.loadProfile(profileID);
+				if (loadedProfile.getHighestLevel() < levelID) {
+					loadedProfile.setHighestLevel(levelID);
+					ProfileManager.saveProfile(loadedProfile);
+				}
+			}catch (Exception e) {
+				e.printStackTrace();
+			}
+			
+			//Delete the map save file and its journal as the level has been completed
+			//(after any saves of it still being written).
+			journal.delete();
+		}, () -> {
+			//Send them to the next level
+			main.getGlobalInfo().setCurrentLevelID(levelID + 1);
+			restart();
+		});
+	}
+	
+	/**
+	 * Plays a sound effect.
+	 * @param soundName The name of the sound file with its extension.
+	 */
+	private void playSound(String soundName) {
 		try {
-			GlobalInfo.playSound(WIN_SOUND);
+			SoundManager.play(soundName);
 		} catch (MalformedURLException e) {
 			e.printStackTrace();
 		}
-		
-		//Send them to the next level
-		main.getGlobalInfo().setCurrentLevelID(main.getGlobalInfo().getCurrentLevelID() + 1);
-		restart();
 	}
 	
 	/**
-	 * Handle a key press, moving the player.
+	 * Keeps the log of the run that's just ended in the profile's runs folder.
+	 */
+	private void finishRun() {
+		runLog.finish(FileManager.getRunLogFile(main.getGlobalInfo().getSelectedProfileID(),
+								main.getGlobalInfo().getCurrentLevelID()));
+	}
+	
+	/**
+	 * Handle a key press, queuing the player's move for the next tick
+	 * (it's dropped if moves are already waiting).
 	 * @param event The key pressed event.
 	 */
 	public void processKeyEvent(KeyEvent event) {
-		//Reset the hint text
-		curHintText = "";
-		if (mapMain != null) {
-			timer.getElapsedTime();
-			timer.start();
+		if (mapMain != null && gameLoop != null) {
+			//The time starts with the first key press.
+			if (!timer.isTiming()) {
+				timer.start();
+			}
 			
 			//Move the player based on the key pressed.
+			Direction playerMove = Direction.DIR_NONE;
 			switch (event.getCode()) {
 			    case RIGHT:
-			    	mapMain.getPlayer().move(new Direction(Direction.DIR_RIGHT));
+			    	playerMove = Direction.DIR_RIGHT;
 		        	break;
 			    case LEFT:
-			    	mapMain.getPlayer().move(new Direction(Direction.DIR_LEFT));
+			    	playerMove = Direction.DIR_LEFT;
 		        	break;	
 			    case UP:
-			    	mapMain.getPlayer().move(new Direction(Direction.DIR_UP));
+			    	playerMove = Direction.DIR_UP;
 		        	break;	
 			    case DOWN:
-			    	mapMain.getPlayer().move(new Direction(Direction.DIR_DOWN));
+			    	playerMove = Direction.DIR_DOWN;
 		        	break;	
 		        default:
 		        	// Do nothing
 		        	break;
 			}
-			if (mapMain != null) {
-				mapMain.updateEnemies();
-				// Redraw game as the player may have moved.
-				redraw();
-			}
+			gameLoop.queueInput(playerMove);
 		}
 		// Consume the event. This means we mark it as dealt with. This stops other GUI nodes (buttons etc) responding to it.
 		event.consume();
 	}
 	
+	@Override
+	public void playTurn(Direction playerMove) {
+		if (levelEnded) {
+			//Moves queued after the level was won or lost.
+			return;
+		}
+		//Reset the hint text
+		curHintText = "";
+		//Record the move before it's played, it may end the run.
+		long moveTime = timer.getElapsedTime();
+		runLog.recordMove(playerMove, moveTime);
+		if (!playerMove.equals(Direction.DIR_NONE)) {
+			mapMain.getPlayer().move(new Direction(playerMove));
+		}
+		if (!levelEnded) {
+			mapMain.updateEnemies();
+		}
+		if (!levelEnded) {
+			//Autosave the move(the journal is started again when the level restarts).
+			journal.recordMove(playerMove, moveTime);
+		}
+	}
+	
 }
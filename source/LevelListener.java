@@ -0,0 +1,24 @@
+/**
+ * Something that reacts to the events of a level being played on a map
+ * (e.g. the level UI or a headless simulation).
+ * @author Josiah Richards
+ * @version 1.0
+ */
+public interface LevelListener {
+	
+	/**
+	 * Called when the player wins the level.
+	 */
+	void win();
+	
+	/**
+	 * Called when the player loses the level.
+	 */
+	void lose();
+	
+	/**
+	 * Called when the hint text to show the player changes.
+	 * @param hintText The new hint text.
+	 */
+	void setCurHintText(String hintText);
+}
@@ -1,3 +1,4 @@
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
@@ -5,7 +6,7 @@ import javafx.scene.control.Label;
 /**
  * Controls the Level Menu scene.
  * @author Josiah Richards
- * @version 1.0
+ * @version 1.3
  */
 public class LevelMenuController extends Controller {
 	//FXML UI objects
@@ -19,17 +20,25 @@ public class LevelMenuController extends Controller {
 	public void initialize() {
 	}
 
+	@Override
+	public void reset() {
+		//Continuing is only enabled if there's a save for the level.
+		btnContinue.setDisable(true);
+		btnContinue.setOnAction(null);
+	}
+
 	@Override
 	public void manualInitialize() {
-		//Tries to load the current level info
+		//Get the current level from the catalog(usually already loaded)
+		//and update the level name in the UI.
 		int curLevelID = main.getGlobalInfo().getCurrentLevelID();
-		try {
-			MapInfo mapInfo = MapInfo.loadMapInfo(curLevelID);
-			//Update the level name in the UI.
-			lblLvlName.setText(mapInfo.getMapName());
-		} catch (ParsingException e) {
-			e.printStackTrace();
-		}
+		LevelCatalog.getLevel(curLevelID).whenComplete((level, e) -> {
+			if (level != null) {
+				Platform.runLater(() -> lblLvlName.setText(level.getName()));
+			} else {
+				e.printStackTrace();
+			}
+		});
 		
 		//Set up the back button to go back to Select Level.
 		btnBack.setOnAction(e -> {
@@ -42,8 +51,8 @@ public class LevelMenuController extends Controller {
 			main.switchToScene(Main.SceneType.Level);
 		});
 		
-		//If a save file exists, enable the continue button
-		if (FileManager.fileExists(FileManager.getSavedMapFile(
+		//If a save file exists(or is being saved), enable the continue button
+		if (SaveService.saveExists(FileManager.getSavedMapFile(
 									main.getGlobalInfo().getSelectedProfileID(), curLevelID))) {
 			btnContinue.setDisable(false);
 			//Set up the continue button to continue the level.
@@ -1,4 +1,9 @@
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
@@ -7,8 +12,11 @@ import javafx.stage.Stage;
 
 /**
  * The first class to be run, handles switching between scenes.
+ * Each scene's FXML file is only loaded once, the scene and its controller are
+ * kept and reset when the scene is switched to again(see Controller.reset).
+ * The scenes are loaded in the background when the game starts.
  * @author Josiah Richards
- * @version 1.5
+ * @version 1.9
  */
 public class Main extends Application {
 
@@ -39,6 +47,23 @@ public class Main extends Application {
 		}
 	}
 	
+	/**
+	 * A scene loaded from its FXML file and the controller created for it.
+	 */
+	private static class LoadedScene {
+		//The root pane loaded from the FXML file.
+		private final Pane rootPane;
+		//The controller created by the FXML loader.
+		private final Controller controller;
+		//The scene showing the root pane, created the first time it's shown.
+		private Scene scene;
+		
+		private LoadedScene(Pane rootPane, Controller controller) {
+			this.rootPane = rootPane;
+			this.controller = controller;
+		}
+	}
+	
 	//Application constants.
 	private static final String WINDOW_TITLE = "Santa's Journey";
 	private static final SceneType STARTING_SCENE = SceneType.SelectProfile;
@@ -53,6 +78,16 @@ public class Main extends Application {
 	private SceneType currentSceneType;
 	private SceneType previousSceneType;
 	
+	//The thread scenes are loaded on in the background, a daemon thread so it never keeps the game open.
+	private final ExecutorService sceneLoader = Executors.newSingleThreadExecutor(task -> {
+		Thread loaderThread = new Thread(task, "Scene loader");
+		loaderThread.setDaemon(true);
+		return loaderThread;
+	});
+	//The scenes loaded or being loaded by type.
+	private final HashMap<SceneType, CompletableFuture<LoadedScene>> loadedScenes = 
+			new HashMap<SceneType, CompletableFuture<LoadedScene>>();
+	
 	/**
 	 * The method to run when the program stars.
 	 * @param args The arguments passed to this program.
@@ -66,6 +101,18 @@ public class Main extends Application {
 	public void start(Stage primaryStage) {
 		//Initialize
 		globalInfo = new GlobalInfo();
+		//Start loading the levels, sounds and scenes in the background.
+		LevelCatalog.scan();
+		SoundManager.preloadAll();
+		for (SceneType sceneType : SceneType.values()) {
+			loadedScenes.put(sceneType, CompletableFuture.supplyAsync(() -> {
+				try {
+					return loadScene(sceneType);
+				} catch (IOException e) {
+					throw new CompletionException(e);
+				}
+			}, sceneLoader));
+		}
 		currentSceneType = STARTING_SCENE;
 		
 		//Set up the stage
@@ -78,37 +125,83 @@ public class Main extends Application {
 		primaryStage.show();
 	}
 	
+	@Override
+	public void stop() {
+		//Finish any saves still being written before the game closes.
+		SaveService.waitForPendingSaves();
+	}
+	
 	/**
-	 * Loads a scene FXML file and switches the primary stage's scene to it.
+	 * Switches the primary stage's scene to a scene, loading its FXML file the first time
+	 * and resetting its controller each time after.
 	 * @param sceneName The name of the scene to switch to(should have a matching FXML file).
 	 */
 	public void switchToScene(SceneType sceneType) {
 		previousSceneType = currentSceneType;
 		currentSceneType = sceneType;
+		//Sounds from the last scene don't carry on into the next.
+		SoundManager.stopAll();
 		try {
-			//Get the file location of the scene's FXML file.
-			String pathUI = FileManager.getUIPath(sceneType.toString());
-			// Create a FXML loader for loading the FXML file.
-			FXMLLoader fxmlLoader = new FXMLLoader(FileManager.filePathToURL(pathUI));     
-			
-			// Load the scene.
-			curRootPane = (Pane)fxmlLoader.load();
-			curScene = new Scene(curRootPane, primaryStage.getWidth(), primaryStage.getHeight());
+			//Get the scene, waiting for it if it's still being loaded in the background.
+			LoadedScene loadedScene;
+			CompletableFuture<LoadedScene> loading = loadedScenes.get(sceneType);
+			try {
+				loadedScene = loading != null ? loading.join() : null;
+			} catch (CompletionException e) {
+				//Try again on this thread.
+				e.printStackTrace();
+				loadedScene = null;
+			}
+			if (loadedScene == null) {
+				loadedScene = loadScene(sceneType);
+				loadedScenes.put(sceneType, CompletableFuture.completedFuture(loadedScene));
+			}
+			boolean shownBefore = loadedScene.scene != null;
+			if (!shownBefore) {
+				loadedScene.scene = new Scene(loadedScene.rootPane, 
+						primaryStage.getWidth(), primaryStage.getHeight());
+			}
+			curRootPane = loadedScene.rootPane;
+			curScene = loadedScene.scene;
 			
-			// Access the controller that was created by the FXML loader.
-			Controller newController = fxmlLoader.<Controller>getController();
-			newController.setMain(this);
+			Controller controller = loadedScene.controller;
+			if (shownBefore) {
+				//Put the scene back how it was loaded.
+				controller.reset();
+			}
 			
 			//Switch to the new scene.
 			primaryStage.setScene(curScene);
 			
-			newController.manualInitialize();
+			controller.manualInitialize();
 			
 		} catch (IOException e) {
 			e.printStackTrace();
 		}  
 	}
 	
+	/**
+	 * Loads a scene's FXML file(can be called on any thread, the scene
+	 * mustn't be shown until it's loaded).
+	 * @param sceneType The type of scene to load.
+	 * @return The loaded scene.
+	 * @throws IOException If the FXML file couldn't be loaded.
+	 */
+	private LoadedScene loadScene(SceneType sceneType) throws IOException {
+		//Get the file location of the scene's FXML file.
+		String pathUI = FileManager.getUIPath(sceneType.toString());
+		// Create a FXML loader for loading the FXML file.
+		FXMLLoader fxmlLoader = new FXMLLoader(FileManager.filePathToURL(pathUI));     
+		
+		// Load the scene.
+		Pane rootPane = (Pane)fxmlLoader.load();
+		
+		// Access the controller that was created by the FXML loader.
+		Controller controller = fxmlLoader.<Controller>getController();
+		controller.setMain(this);
+		return new LoadedScene(rootPane, controller);
+	}
+	
 	/**
 	 * Get's the curScene private variable.
 	 * @return The curScene.
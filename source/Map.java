@@ -1,29 +1,63 @@
 import java.net.MalformedURLException;
 import java.util.ArrayList;
-import javafx.scene.canvas.GraphicsContext;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
 
 /**
  * Stores the state of a map.
  * x, y coordinates go from the top left of the map to the bottom right of the map.
+ * Doesn't depend on rendering so maps can be played headless,
+ * see MapRenderer for drawing a map.
  * @author Ryan Smith, Josiah Richards
- * @version 2.1
+ * @version 2.9
  */
 public class Map {
 	
 	//Meta keywords for reading/writing files.
 	public static final String START_META_KEYWORD = "start";
 	public static final String LAST_TIME_META_KEYWORD = "time";
+	public static final String TICK_META_KEYWORD = "tick";
+	public static final String SEED_META_KEYWORD = "seed";
 	
 	//The x/y size in pixels of each square on the grid.
 	public static final int GRID_DIMENSION = 50;
 	
+	//The tile value for a grid coordinate with no cell.
+	private static final int EMPTY_TILE = 0;
+	//The tile value for a grid coordinate with a cell of its own(e.g. a door).
+	private static final int OWN_CELL_TILE = 255;
+	//How far around the camera and each enemy tiles are kept in memory
+	//(for maps that don't keep all their tiles in memory).
+	private static final int ACTIVE_AREA_MARGIN = 8;
+	//The fewest enemies worth deciding their moves in parallel.
+	private static final int PARALLEL_ENEMIES_THRESHOLD = 64;
+	//Spreads the tick out over the bits of the seed when reseeding each tick.
+	private static final long TICK_SEED_MULTIPLIER = 0x9E3779B97F4A7C15L;
+	
 	//-Map Contents-
-	//The cells making up the basis of the map,
-	//1 cell per grid coordinate.
-	private Cell[][] grid;
+	//How many cells across and down the map is.
+	private int width;
+	private int height;
+	//The cells making up the basis of the map, 1 per grid coordinate,
+	//stored as the symbol of the cell at each grid index(y * width + x).
+	//Most cells(ground, walls e.c.t.) have no state of their own so 1 cell
+	//object is shared for every coordinate with that symbol.
+	//Symbols without a cell yet(maps loaded lazily) are turned into cells
+	//the first time they're looked at.
+	private TileStorage tiles;
+	//The shared cell for each tile symbol.
+	private Cell[] sharedCells;
+	//The cells that have state of their own(e.g. doors, teleporters),
+	//by grid index. Their tile is OWN_CELL_TILE.
+	private HashMap<Integer, Cell> ownCells;
 	//The entities on the map(including the player!)
 	//There can be multiple entities at 1 grid coordinate.
 	private ArrayList<Entity> entities;
+	//The entities on the map sorted by their grid coordinate
+	//for quick lookups.
+	private SpatialIndex entityIndex;
 	//Quick access reference to the player
 	private Player player;
 	//Spawn location of the player.
@@ -43,9 +77,27 @@ public class Map {
 	//The starting inventory of the player
 	private Inventory startInventory;
 	
-	//The level controller that's using this map.
-	//(Used for calling win and lose)
-	private LevelController levelController;
+	//The listener for the level being played on this map
+	//(e.g. the level controller, used for calling win and lose).
+	private LevelListener levelListener;
+	//The path finder shared by everything path finding on this map
+	//(created the first time it's needed).
+	private AStarPathFinder pathFinder;
+	//The distance fields to the player, 1 for each class of moving entity
+	//that chases the player (created the first time they're needed).
+	private HashMap<Class<?>, DistanceField> playerDistanceFields;
+	//Everything that's told when a grid coordinate of this map changes.
+	private ArrayList<MapChangeListener> changeListeners;
+	//How many times the enemies have been updated on this map.
+	private long tick;
+	//The seed for the random numbers used by this map's enemies.
+	private long seed;
+	//The random numbers used by this map's enemies, reseeded from the seed and
+	//the tick every tick so the same moves always play out the same way
+	//(see MoveJournal).
+	private Random random;
+	//If maps with lots of enemies decide their moves in parallel.
+	private boolean isParallelEnemyUpdate;
 	
 	/**
 	 * Creates a map of a set width and height and uses a camera.
@@ -54,14 +106,21 @@ public class Map {
 	 * @param camera The camera to use for rendering.
 	 */
 	public Map(int width, int height, Camera camera) {
-		grid = new Cell[width][height];
+		initialiseGrid(width, height, new ArrayTileStorage(width * height));
 		entities = new ArrayList<Entity>();
+		entityIndex = new SpatialIndex(width, height);
 		spawnLocation = new Vector2();
 		player = null;
 		this.camera = camera;
 		renderOffset = new Vector2();
 		startInventory = new Inventory();
-		levelController = null;
+		levelListener = null;
+		playerDistanceFields = new HashMap<Class<?>, DistanceField>();
+		changeListeners = new ArrayList<MapChangeListener>();
+		tick = 0L;
+		random = new Random();
+		seed = random.nextLong();
+		isParallelEnemyUpdate = true;
 	}
 	
 	/**
@@ -70,15 +129,47 @@ public class Map {
 	 * @param height How many cells down the map should be.
 	 */
 	public Map(int width, int height) {
-		grid = new Cell[width][height];
+		this(width, height, new ArrayTileStorage(width * height));
+	}
+	
+	/**
+	 * Creates a map of a set width and height with no camera assigned yet,
+	 * whose tiles have already been read(e.g. mapped from a file).
+	 * @param width How many cells across the map should be.
+	 * @param height How many cells down the map should be.
+	 * @param tiles The tile storage, holding the symbol of each cell.
+	 */
+	public Map(int width, int height, TileStorage tiles) {
+		initialiseGrid(width, height, tiles);
 		entities = new ArrayList<Entity>();
+		entityIndex = new SpatialIndex(width, height);
 		spawnLocation = new Vector2();
 		player = null;
 		lastTime = 0L;
 		camera = null;
 		renderOffset = new Vector2();
 		startInventory = new Inventory();
-		levelController = null;
+		levelListener = null;
+		playerDistanceFields = new HashMap<Class<?>, DistanceField>();
+		changeListeners = new ArrayList<MapChangeListener>();
+		tick = 0L;
+		random = new Random();
+		seed = random.nextLong();
+		isParallelEnemyUpdate = true;
+	}
+	
+	/**
+	 * Creates the grid of cells.
+	 * @param width How many cells across the map should be.
+	 * @param height How many cells down the map should be.
+	 * @param tiles The tile storage for the grid.
+	 */
+	private void initialiseGrid(int width, int height, TileStorage tiles) {
+		this.width = width;
+		this.height = height;
+		this.tiles = tiles;
+		sharedCells = new Cell[OWN_CELL_TILE + 1];
+		ownCells = new HashMap<Integer, Cell>();
 	}
 	
 	/**
@@ -112,39 +203,17 @@ public class Map {
 	 * End the game as a win.
 	 */
 	public void win() {
-		levelController.win();
+		if (levelListener != null) {
+			levelListener.win();
+		}
 	}
 	
 	/**
 	 * End the game as a loss.
 	 */
 	public void lose() {
-		levelController.lose();
-	}
-	
-	/**
-	 * Renders this map to a graphics context.
-	 * @param graphicsContext The graphics context to render to.
-	 */
-	public void render(GraphicsContext graphicsContext) {
-		centreCamOnPlayer();
-		
-		//Render all the cells that are in view of the camera.
-		for (int x = 0; x < grid.length; x++) {
-			for (int y = 0; y < grid[0].length; y++) {
-				if (grid[x][y] != null) {
-					if (camera.isPointInView(grid[x][y].getGridCoords())) {
-						grid[x][y].render(graphicsContext);
-					}
-				}
-			}
-		}
-		
-		//Render all the entities in view of the camera on top.
-		for (Entity entity : entities) {
-			if (camera.isPointInView(entity.getGridCoords())) {
-				entity.render(graphicsContext);
-			}
+		if (levelListener != null) {
+			levelListener.lose();
 		}
 	}
 	
@@ -176,21 +245,114 @@ public class Map {
 	 * @param hintText The new hint text.
 	 */
 	public void updateHintText(String hintText) {
-		levelController.setCurHintText(hintText);
+		if (levelListener != null) {
+			levelListener.setCurHintText(hintText);
+		}
+	}
+	
+	/**
+	 * Makes sure the tiles around the camera are in memory(and stay there)
+	 * for maps that don't keep all their tiles in memory.
+	 * Everything else that was pinned can be taken out of memory again.
+	 */
+	public void pinCameraArea() {
+		tiles.unpinAll();
+		if (camera != null) {
+			Vector2 topLeft = camera.getTopLeft();
+			Vector2 size = camera.getSize();
+			tiles.pin(topLeft.getX() - ACTIVE_AREA_MARGIN, topLeft.getY() - ACTIVE_AREA_MARGIN,
+					topLeft.getX() + size.getX() + ACTIVE_AREA_MARGIN,
+					topLeft.getY() + size.getY() + ACTIVE_AREA_MARGIN);
+		}
+	}
+	
+	/**
+	 * Makes sure the tiles around an entity are in memory(and stay there)
+	 * until the camera area is pinned again, if there's room in the memory budget.
+	 * @param entity The entity.
+	 * @return True if all the tiles around the entity are pinned,
+	 * 			false if some may be loaded when they're used.
+	 */
+	private boolean pinAround(Entity entity) {
+		Vector2 position = entity.getGridCoords();
+		return tiles.pin(position.getX() - ACTIVE_AREA_MARGIN, position.getY() - ACTIVE_AREA_MARGIN,
+				position.getX() + ACTIVE_AREA_MARGIN, position.getY() + ACTIVE_AREA_MARGIN);
 	}
 	
 	/**
 	 * Makes all the enemies on the map take their next move.
+	 * This is done in 2 phases: every enemy decides its move only looking at the map
+	 * (in parallel on the fork join pool when there are lots of enemies and the tiles
+	 * around all of them are in memory), then the moves are made and stepped on
+	 * one at a time in the order the enemies are on the map.
+	 * Enemies can walk on each other so a move never depends on the moves before it,
+	 * and the result is the same as moving each enemy in turn.
 	 */
 	public void updateEnemies() {
-		//Loop through all entities
+		tick++;
+		random.setSeed(seed ^ (tick * TICK_SEED_MULTIPLIER));
+		//Keep what's around the camera and the enemies in memory.
+		pinCameraArea();
+		//Find the enemies first, moves can change the entities on the map.
+		ArrayList<Enemy> enemies = new ArrayList<Enemy>();
 		for (Entity entity : entities) {
-			//If the entity is an enemy
 			if (entity instanceof Enemy) {
-				Enemy enemy = (Enemy) entity;
-				enemy.preformNextMove();
+				enemies.add((Enemy) entity);
 			}
 		}
+		
+		//Get everything the enemies share ready one at a time
+		//(the cells around them and e.g. the distance field).
+		boolean isAllPinned = true;
+		for (Enemy enemy : enemies) {
+			if (!pinAround(enemy)) {
+				isAllPinned = false;
+			}
+			loadCellsAround(enemy);
+			enemy.prepareNextMove();
+		}
+		
+		//Decide the moves, only in parallel if no tiles need loading
+		//(loading tiles can unload others, which can't be done at the same time as reading them).
+		Direction[] nextMoves = new Direction[enemies.size()];
+		if (isParallelEnemyUpdate && isAllPinned && enemies.size() >= PARALLEL_ENEMIES_THRESHOLD) {
+			IntStream.range(0, nextMoves.length).parallel()
+					.forEach(i -> nextMoves[i] = enemies.get(i).decideNextMove());
+		} else {
+			for (int i = 0; i < nextMoves.length; i++) {
+				nextMoves[i] = enemies.get(i).decideNextMove();
+			}
+		}
+		
+		//Make the moves.
+		for (int i = 0; i < nextMoves.length; i++) {
+			enemies.get(i).makeMove(nextMoves[i]);
+		}
+	}
+	
+	/**
+	 * Sets if enemies decide their moves in parallel when there are lots of them
+	 * (the moves are the same either way).
+	 * @param isParallelEnemyUpdate True to decide in parallel, false to decide one at a time.
+	 */
+	public void setParallelEnemyUpdate(boolean isParallelEnemyUpdate) {
+		this.isParallelEnemyUpdate = isParallelEnemyUpdate;
+	}
+	
+	/**
+	 * Looks at the cells next to an entity so any cells that are created
+	 * the first time they're looked at(maps loaded lazily) are created now,
+	 * before enemies look at them at the same time.
+	 * @param entity The entity.
+	 */
+	private void loadCellsAround(Entity entity) {
+		int x = entity.getGridCoords().getX();
+		int y = entity.getGridCoords().getY();
+		getCellAt(x, y);
+		getCellAt(x - 1, y);
+		getCellAt(x + 1, y);
+		getCellAt(x, y - 1);
+		getCellAt(x, y + 1);
 	}
 	
 	/**
@@ -199,6 +361,8 @@ public class Map {
 	 */
 	public void addEntity(Entity entity) {
 		entities.add(entity);
+		entityIndex.add(entity, entity.getGridCoords().getX(), entity.getGridCoords().getY());
+		notifyCellChanged(entity.getGridCoords().getX(), entity.getGridCoords().getY());
 	}
 	
 	/**
@@ -207,6 +371,41 @@ public class Map {
 	 */
 	public void removeEntity(Entity entity) {
 		entities.remove(entity);
+		entityIndex.remove(entity, entity.getGridCoords().getX(), entity.getGridCoords().getY());
+		notifyCellChanged(entity.getGridCoords().getX(), entity.getGridCoords().getY());
+	}
+	
+	/**
+	 * Moves an entity to a new grid position, keeping the map's
+	 * record of where each entity is up to date.
+	 * All changes to the position of an entity on the map should go through this.
+	 * @param entity The entity to move.
+	 * @param x The new x grid coordinate.
+	 * @param y The new y grid coordinate.
+	 */
+	public void moveEntity(Entity entity, int x, int y) {
+		Vector2 gridCoords = entity.getGridCoords();
+		//Only re-index the entity if it's actually on this map.
+		if (entityIndex.remove(entity, gridCoords.getX(), gridCoords.getY())) {
+			int oldX = gridCoords.getX();
+			int oldY = gridCoords.getY();
+			gridCoords.setXY(x, y);
+			entityIndex.add(entity, x, y);
+			notifyCellChanged(oldX, oldY);
+			notifyCellChanged(x, y);
+		} else {
+			gridCoords.setXY(x, y);
+		}
+	}
+	
+	/**
+	 * Moves an entity to a new grid position, keeping the map's
+	 * record of where each entity is up to date.
+	 * @param entity The entity to move.
+	 * @param position The new grid position.
+	 */
+	public void moveEntity(Entity entity, Vector2 position) {
+		moveEntity(entity, position.getX(), position.getY());
 	}
 	
 	/**
@@ -218,41 +417,41 @@ public class Map {
 	}
 	
 	/**
-	 * Gets a list of entities that are at the grid position (x, y).
+	 * Gets the entities that are at the grid position (x, y).
+	 * The list returned is the map's own record so it must not be modified,
+	 * use getEntitiesAt(position, ignore) for a copy that is safe to
+	 * use while changing the map.
 	 * @param x The x coordinate to check.
 	 * @param y The y coordinate to check.
-	 * @return A list of entities at the grid position (x, y).
+	 * @return The entities at the grid position (x, y).
 	 */
-	public ArrayList<Entity> getEntitiesAt(int x, int y) {
-		return getEntitiesAt(new Vector2(x, y));
+	public List<Entity> getEntitiesAt(int x, int y) {
+		return entityIndex.get(x, y);
 	}
 	
 	/**
-	 * Gets a list of entities that are at a given grid position.
+	 * Gets the entities that are at a given grid position.
+	 * The list returned is the map's own record so it must not be modified.
 	 * @param position The grid position to check.
-	 * @return A list of entities at the grid position.
+	 * @return The entities at the grid position.
 	 */
-	public ArrayList<Entity> getEntitiesAt(Vector2 position) {
-		return getEntitiesAt(position, null);
+	public List<Entity> getEntitiesAt(Vector2 position) {
+		return getEntitiesAt(position.getX(), position.getY());
 	}
 
 	/**
-	 * Gets a list of entities that are at a given grid position apart
+	 * Gets a new list of entities that are at a given grid position apart
 	 * from the entity, ignore.
 	 * @param position The grid position to check.
 	 * @param ignore The entity to exclude from the list.
 	 * @return A list of entities at the grid position(excluding ignore).
 	 */
 	public ArrayList<Entity> getEntitiesAt(Vector2 position, Entity ignore) {
-		ArrayList<Entity> foundEntities = new ArrayList<Entity>();
-		//Loop through all entities
-		for (Entity entity : entities) {
-			//If we find an entity at the position that shouldn't be ignored,
-			//add it to our found list.
+		List<Entity> entitiesAtPos = getEntitiesAt(position);
+		ArrayList<Entity> foundEntities = new ArrayList<Entity>(entitiesAtPos.size());
+		for (Entity entity : entitiesAtPos) {
 			if (entity != ignore) {
-				if (entity.getGridCoords().equals(position)) {
-					foundEntities.add(entity);
-				}
+				foundEntities.add(entity);
 			}
 		}
 		return foundEntities;
@@ -273,12 +472,56 @@ public class Map {
 	 * @return The cell at the position, null if out of bounds.
 	 */
 	public Cell getCellAt(int x, int y) {
-		if (grid != null) {
-			if(grid.length > x) {
-				if (grid[x].length > y) {
-					return grid[x][y];
-				}
+		if (x >= 0 && y >= 0 && x < width && y < height) {
+			int index = y * width + x;
+			int tile = tiles.getTile(index);
+			if (tile == OWN_CELL_TILE) {
+				return ownCells.get(index);
 			}
+			Cell cell = sharedCells[tile];
+			if (cell == null && tile != EMPTY_TILE) {
+				cell = decodeTile(x, y, tile);
+			}
+			return cell;
+		}
+		return null;
+	}
+	
+	/**
+	 * Creates the cell for a tile symbol that hasn't been turned into a cell yet.
+	 * Shared cells are kept for the symbol, other cells are kept for the coordinate.
+	 * @param x The x grid coordinate.
+	 * @param y The y grid coordinate.
+	 * @param tile The tile symbol.
+	 * @return The cell, null if the symbol isn't a cell.
+	 */
+	private Cell decodeTile(int x, int y, int tile) {
+		Cell cell;
+		try {
+			cell = MapReader.createCell((char) tile, x, y, this);
+		} catch (ParsingException e) {
+			e.printStackTrace();
+			return null;
+		}
+		if (cell.isShareable()) {
+			sharedCells[tile] = cell;
+		} else {
+			int index = y * width + x;
+			cell.gridCoords = new Vector2(x, y);
+			ownCells.put(index, cell);
+			tiles.setTile(index, OWN_CELL_TILE);
+		}
+		return cell;
+	}
+	
+	/**
+	 * Gets the cell shared by every grid coordinate with a given symbol.
+	 * @param symbol The symbol of the cell.
+	 * @return The shared cell, null if there isn't one on this map yet.
+	 */
+	public Cell getSharedCell(char symbol) {
+		if (symbol < OWN_CELL_TILE) {
+			return sharedCells[symbol];
 		}
 		return null;
 	}
@@ -332,11 +575,11 @@ public class Map {
 	}
 	
 	/**
-	 * Sets the level controller that will be controlling this map.
-	 * @param levelController The new level controller.
+	 * Sets the listener for the level being played on this map.
+	 * @param levelListener The new level listener(e.g. the level controller).
 	 */
-	public void setLevelController(LevelController levelController) {
-		this.levelController = levelController;
+	public void setLevelListener(LevelListener levelListener) {
+		this.levelListener = levelListener;
 	}
 	
 	/**
@@ -371,8 +614,105 @@ public class Map {
 		return player;
 	}
 	
+	/**
+	 * Gets the path finder for this map.
+	 * The path finder keeps its working memory between searches
+	 * so it's shared rather than created for every search.
+	 * @return The path finder for this map.
+	 */
+	public AStarPathFinder getPathFinder() {
+		if (pathFinder == null) {
+			pathFinder = new AStarPathFinder(this);
+		}
+		return pathFinder;
+	}
+	
+	/**
+	 * Gets the distance field to the player for a kind of moving entity,
+	 * made sure to be up to date for the player's current position.
+	 * Every moving entity of the same class shares the same field,
+	 * and the field only repairs what changed since it was last used.
+	 * @param mover The moving entity that wants to get to the player.
+	 * @return The distance field to the player.
+	 */
+	public DistanceField getPlayerDistanceField(Moving mover) {
+		DistanceField field = playerDistanceFields.get(mover.getClass());
+		if (field == null) {
+			field = new DistanceField(this, mover);
+			playerDistanceFields.put(mover.getClass(), field);
+		}
+		if (player != null) {
+			field.update(player.getGridCoords().getX(), player.getGridCoords().getY());
+		}
+		return field;
+	}
+	
+	/**
+	 * Gets how many times the enemies have been updated on this map.
+	 * @return The current tick of this map.
+	 */
+	public long getTick() {
+		return tick;
+	}
+	
+	/**
+	 * Sets how many times the enemies have been updated on this map
+	 * (e.g. when continuing from a save).
+	 * @param tick The current tick of this map.
+	 */
+	public void setTick(long tick) {
+		this.tick = tick;
+	}
+	
+	/**
+	 * Gets the seed for the random numbers used by this map's enemies.
+	 * @return The seed.
+	 */
+	public long getSeed() {
+		return seed;
+	}
+	
+	/**
+	 * Sets the seed for the random numbers used by this map's enemies.
+	 * @param seed The seed.
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+	
+	/**
+	 * Gets a random number for an enemy's move.
+	 * The numbers only depend on the seed, the tick and the order they're asked for in,
+	 * so replaying the same moves from the same tick gives the same numbers.
+	 * @param bound The upper bound(exclusive), must be positive.
+	 * @return A random number between 0(inclusive) and bound(exclusive).
+	 */
+	public int randomInt(int bound) {
+		return random.nextInt(bound);
+	}
+	
+	/**
+	 * Gets how many cells across and down this map is.
+	 * @return The width and height of this map.
+	 */
 	public Vector2 getGridDimensions() {
-		return new Vector2(grid.length, grid[0].length);
+		return new Vector2(getWidth(), getHeight());
+	}
+	
+	/**
+	 * Gets how many cells across this map is.
+	 * @return The width of this map.
+	 */
+	public int getWidth() {
+		return width;
+	}
+	
+	/**
+	 * Gets how many cells down this map is.
+	 * @return The height of this map.
+	 */
+	public int getHeight() {
+		return height;
 	}
 	
 	/**
@@ -394,18 +734,71 @@ public class Map {
 	
 	/**
 	 * Sets the cell at a given grid position.
+	 * Cells that can be shared only have their symbol stored, if this map
+	 * already has a shared cell for that symbol it's used instead of the given cell.
 	 * @param x The x grid coordinate.
 	 * @param y The y grid coordinate.
 	 * @param cell The cell to put at the position.
 	 */
 	public void setCellAt(int x, int y, Cell cell) {
-		if (grid != null) {
-			if(grid.length > x) {
-				if (grid[x].length > y) {
-					cell.gridCoords = new Vector2(x, y);
-					grid[x][y] = cell;
+		if (x >= 0 && y >= 0 && x < width && y < height) {
+			int index = y * width + x;
+			ownCells.remove(index);
+			if (cell == null) {
+				tiles.setTile(index, EMPTY_TILE);
+			} else if (cell.isShareable() && canShareAs(cell, cell.getSymbol())) {
+				char symbol = cell.getSymbol();
+				if (sharedCells[symbol] == null) {
+					sharedCells[symbol] = cell;
 				}
+				tiles.setTile(index, symbol);
+			} else {
+				cell.gridCoords = new Vector2(x, y);
+				ownCells.put(index, cell);
+				tiles.setTile(index, OWN_CELL_TILE);
 			}
+			notifyCellChanged(x, y);
+		}
+	}
+	
+	/**
+	 * Adds something to be told whenever a grid coordinate of this map changes.
+	 * @param listener The listener to add.
+	 */
+	public void addMapChangeListener(MapChangeListener listener) {
+		changeListeners.add(listener);
+	}
+	
+	/**
+	 * Stops something being told when grid coordinates of this map change.
+	 * @param listener The listener to remove.
+	 */
+	public void removeMapChangeListener(MapChangeListener listener) {
+		changeListeners.remove(listener);
+	}
+	
+	/**
+	 * Tells all the change listeners that a grid coordinate has changed.
+	 * @param x The x coordinate that changed.
+	 * @param y The y coordinate that changed.
+	 */
+	private void notifyCellChanged(int x, int y) {
+		for (int i = 0; i < changeListeners.size(); i++) {
+			changeListeners.get(i).cellChanged(x, y);
+		}
+	}
+	
+	/**
+	 * Checks if a cell can be stored as just a symbol.
+	 * @param cell The cell to check.
+	 * @param symbol The symbol of the cell.
+	 * @return True if the symbol isn't used or is used by a shared cell 
+	 * 		   of the same type, false otherwise.
+	 */
+	private boolean canShareAs(Cell cell, char symbol) {
+		if (symbol == EMPTY_TILE || symbol >= OWN_CELL_TILE) {
+			return false;
 		}
+		return sharedCells[symbol] == null || sharedCells[symbol].getClass() == cell.getClass();
 	}
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+/**
+ * Something that needs to know when what's at a grid coordinate of a map
+ * changes (e.g. a door opening or an entity moving), so it can update
+ * only what's affected instead of looking at the whole map again.
+ * @author Josiah Richards
+ * @version 1.0
+ */
+public interface MapChangeListener {
+	
+	/**
+	 * Called after the cell or the entities at a grid coordinate change.
+	 * @param x The x coordinate that changed.
+	 * @param y The y coordinate that changed.
+	 */
+	void cellChanged(int x, int y);
+}
@@ -0,0 +1,65 @@
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Converts map files between the text format(for editing by hand)
+ * and the binary format(for small, fast loading files).
+ * Either format can be read, the output format is chosen.
+ * The mapped format is the binary format with uncompressed tiles, for very
+ * large maps that should be loaded lazily.
+ * Usage: MapConverter input output [text|binary|mapped]
+ * (defaults to binary).
+ * @author Josiah Richards
+ * @version 1.1
+ */
+public class MapConverter {
+
+	//The names of the output formats.
+	private static final String TEXT_FORMAT = "text";
+	private static final String BINARY_FORMAT = "binary";
+	private static final String MAPPED_FORMAT = "mapped";
+	private static final String USAGE_MSG = "Usage: MapConverter input output ["
+											+ TEXT_FORMAT + "|" + BINARY_FORMAT + "|" + MAPPED_FORMAT + "]";
+
+	/**
+	 * Converts a map file.
+	 * @param args The input file, the output file and optionally the output format.
+	 */
+	public static void main(String[] args) {
+		if (args.length < 2 || args.length > 3) {
+			System.out.println(USAGE_MSG);
+			System.exit(1);
+		}
+		String format = args.length == 3 ? args[2].toLowerCase() : BINARY_FORMAT;
+		if (!format.equals(TEXT_FORMAT) && !format.equals(BINARY_FORMAT) 
+				&& !format.equals(MAPPED_FORMAT)) {
+			System.out.println(USAGE_MSG);
+			System.exit(1);
+		}
+
+		try {
+			convert(args[0], args[1], format);
+		} catch (ParsingException | IOException e) {
+			System.out.println("Failed to convert " + args[0] + ": " + e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Converts a map file to the text, binary or mapped format.
+	 * @param inputFile The map file to read(in any format).
+	 * @param outputFile The file to write to.
+	 * @param format The format to write("text", "binary" or "mapped").
+	 * @throws ParsingException If the map file couldn't be parsed.
+	 * @throws IOException If the map file couldn't be read or written.
+	 */
+	public static void convert(String inputFile, String outputFile, String format)
+			throws ParsingException, IOException {
+		Map map = MapReader.readMapFile(inputFile);
+		if (format.equals(TEXT_FORMAT)) {
+			MapWriter.saveMapToFile(outputFile, map);
+		} else {
+			BinaryMapWriter.saveMapToFile(new File(outputFile), map, format.equals(MAPPED_FORMAT));
+		}
+	}
+}
@@ -1,12 +1,14 @@
-import java.io.File;
-import java.io.FileWriter;
+import java.io.BufferedReader;
+import java.io.FileReader;
 import java.io.IOException;
-import java.util.Scanner;
 
 /**
  * Stores basic information about a map(its name and highscores).
+ * The name is read from the map's info file, the high scores are kept in
+ * the game's record store(see RecordStore) under "scores/mapID",
+ * a "profileID,score" line for each.
  * @author Josiah Richards
- * @version 1.0
+ * @version 2.1
  */
 public class MapInfo {
 	//How many highscores to store.
@@ -14,6 +16,10 @@ public class MapInfo {
 	
 	private static final String INFO_FILE_DELIMITER = ",";
 	private static final String LOAD_ERROR_MSG = "Failed to load map info.";
+	//The prefix of the keys high scores are stored under.
+	private static final String SCORES_KEY_PREFIX = "scores/";
+	//The lines of the stored high scores.
+	private static final String LINE_SEPARATOR_REGEX = "\\R";
 	
 	//The name of this map.
 	private String mapName;
@@ -40,40 +46,39 @@ public class MapInfo {
 	public static MapInfo loadMapInfo(int mapID) throws ParsingException {
 		
 		try {
-			//Open the map info file
-			File infoFile = new File(FileManager.getMapInfoFile(mapID));
-			Scanner in = new Scanner(infoFile);
-			
 			MapInfo newInfo = new MapInfo(mapID);
-			//Read map name
-			newInfo.setMapName(in.nextLine());
+			//Read map name(the first line of the info file).
+			BufferedReader in = new BufferedReader(new FileReader(FileManager.getMapInfoFile(mapID)));
+			try {
+				String mapName = in.readLine();
+				if (mapName == null) {
+					throw new ParsingException(LOAD_ERROR_MSG);
+				}
+				newInfo.setMapName(mapName);
+			} finally {
+				in.close();
+			}
+			
 			//Read highscores
-			while (in.hasNextLine()) {
-				String line = in.nextLine();
-				//Parse this score
-				String[] args = line.split(INFO_FILE_DELIMITER);
-				if (args.length == 2){
-					//Parse profile ID
-					int id = Integer.parseInt(args[0]);
-					
-					//Check profile exists
-					boolean profileExists = false;
-					try {
-						ProfileManager.loadProfile(id);
-						profileExists = true;
-					} catch (ParsingException e) {
-						profileExists = false;
-					}
-					//If the profile no longer exists, ignore this score.
-					if (profileExists) {
-						//Parse score(time taken in milliseconds)
-						long score = Long.parseLong(args[1]);
-						//Add this score to the correct place in the highscores array.
-						newInfo.tryAddScore(id, score);
+			RecordStore store = RecordStore.getGameStore();
+			String scores = store.get(SCORES_KEY_PREFIX + mapID);
+			if (scores != null) {
+				for (String line : scores.split(LINE_SEPARATOR_REGEX)) {
+					//Parse this score
+					String[] args = line.split(INFO_FILE_DELIMITER);
+					if (args.length == 2){
+						//Parse profile ID
+						int id = Integer.parseInt(args[0]);
+						//If the profile no longer exists, ignore this score.
+						if (ProfileManager.profileExists(store, id)) {
+							//Parse score(time taken in milliseconds)
+							long score = Long.parseLong(args[1]);
+							//Add this score to the correct place in the highscores array.
+							newInfo.tryAddScore(id, score);
+						}
 					}
 				}
 			}
-			in.close();
 			return newInfo;
 		} catch (Exception e) {
 			throw new ParsingException(LOAD_ERROR_MSG);
@@ -81,47 +86,34 @@ public class MapInfo {
 	}
 	
 	/**
-	 * Saves this map info to the correct info file.
+	 * Saves this map's high scores.
 	 */
 	public void save() {
-		//Create the map directory if needed(shouldn't ever happen really)
-		String mapFolder = FileManager.getMapFolderPath(mapID);
-		FileManager.createDirIfNeeded(mapFolder, true);
-		
-		File infoFile = new File(FileManager.getMapInfoFile(mapID));
-		//Overwrite existing by deleting an existing infoFile.
-		if (infoFile.exists()) {
-			infoFile.delete();
-		}
-		FileWriter writer;
 		try {
-			writer = new FileWriter(infoFile);
-			//Write map name
-			writer.write(mapName);
-			writer.write(GlobalInfo.NEW_LINE);
-			//Write highscores
-			for (int i = 0; i < highScores.length; i++){
-				if (highScores[i] != null) {
-					//Check profile exists
-					boolean profileExists = false;
-					try {
-						ProfileManager.loadProfile(highScores[i].getProfileID());
-						profileExists = true;
-					} catch (ParsingException e) {
-						profileExists = false;
-					}
-					//If the profile no longer exists, ignore this score.
-					if (profileExists) {
-						writer.write(highScores[i].toString());
-						writer.write(GlobalInfo.NEW_LINE);
-					}
-				}
-			}
-			writer.close();
+			writeScores(RecordStore.getGameStore());
 		} catch (IOException e) {
-			//If somehow infoFile is a folder
 			e.printStackTrace();
 		}
+		//Update the high scores in the level catalog.
+		LevelCatalog.refresh(mapID);
+	}
+	
+	/**
+	 * Writes this map's high scores to a store,
+	 * leaving out scores of profiles that no longer exist.
+	 * @param store The store.
+	 * @throws IOException If the scores couldn't be written.
+	 */
+	void writeScores(RecordStore store) throws IOException {
+		StringBuilder scores = new StringBuilder();
+		for (int i = 0; i < highScores.length; i++){
+			if (highScores[i] != null
+					&& ProfileManager.profileExists(store, highScores[i].getProfileID())) {
+				scores.append(highScores[i].toString());
+				scores.append(GlobalInfo.NEW_LINE);
+			}
+		}
+		store.put(SCORES_KEY_PREFIX + mapID, scores.toString());
 	}
 	
 	
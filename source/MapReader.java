@@ -1,63 +1,157 @@
 import java.awt.Color;
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.net.MalformedURLException;
-import java.util.Scanner;
 
 /**
  * Class that parses a text file set out in the layout in our DesignDoc to create a map
+ * The file is read in a single pass a character at a time (see MapTokenizer),
+ * each line of metadata is passed to the handler for its keyword.
+ * Binary map files (see BinaryMapReader) are recognised and read too.
  * @author Ryan Smith, Josiah Richards
- * @version 2.0
+ * @version 3.4
  */
 public class MapReader {
 
-	//The character separating data on the same line in map files
-	private static final String DATA_DELIMITER = ",";
-
 	//Error messages
 	private static final String DIMENSIONS_ERROR_MSG = "Failed to read map dimensions.";
 	private static final String CELLS_ERROR_MSG = "Failed to read map cells.";
-	private static final String METADATA_ERROR_MSG = "Failed to read map metadata. Error parsing %s";
+	private static final String METADATA_ERROR_MSG = "Failed to read map metadata. Error parsing \"%s\"";
+	private static final String MISSING_FIELD_ERROR_MSG = "Failed to read map metadata. Missing %s";
+	private static final String READ_ERROR_MSG = "Failed to read map file: %s";
+	
+	//The keywords that start each kind of metadata, and the handler for each
+	//(at the same index).
+	private static final String[] METADATA_KEYWORDS = {
+		Map.START_META_KEYWORD,
+		Token.META_KEYWORD,
+		Teleporter.META_KEYWORD,
+		Door.META_KEYWORD,
+		Key.META_KEYWORD,
+		Map.LAST_TIME_META_KEYWORD,
+		Boot.META_KEYWORD,
+		PushBlock.META_KEYWORD,
+		HintBlock.META_KEYWORD,
+		Inventory.META_ITEM_KEYWORD,
+		Inventory.META_TOKEN_KEYWORD,
+		Enemy.META_KEYWORD,
+		Map.TICK_META_KEYWORD,
+		Map.SEED_META_KEYWORD
+	};
+	private static final MetadataHandler[] METADATA_HANDLERS = {
+		MapReader::parseStart,
+		MapReader::parseToken,
+		MapReader::parseTeleporter,
+		MapReader::parseDoor,
+		MapReader::parseKey,
+		MapReader::parseLastTime,
+		MapReader::parseBoot,
+		MapReader::parsePushBlock,
+		MapReader::parseHintBlock,
+		MapReader::parseInventoryItem,
+		MapReader::parseInventoryTokens,
+		MapReader::parseEnemy,
+		MapReader::parseTick,
+		MapReader::parseSeed
+	};
+	
+	//The words for colours, directions and boot types in metadata,
+	//and what they mean(at the same index).
+	private static final Color[] COLOURS = {Color.RED, Color.GREEN, Color.BLUE, Color.YELLOW};
+	private static final String[] COLOUR_WORDS = new String[COLOURS.length];
+	private static final String[] DIRECTION_WORDS = {Direction.LEFT_WORD, Direction.RIGHT_WORD,
+											Direction.UP_WORD, Direction.DOWN_WORD, Direction.NONE_WORD};
+	private static final Direction[] DIRECTIONS = {Direction.DIR_LEFT, Direction.DIR_RIGHT,
+											Direction.DIR_UP, Direction.DIR_DOWN, Direction.DIR_NONE};
+	private static final Boot.BootType[] BOOT_TYPES = Boot.BootType.values();
+	private static final String[] BOOT_TYPE_WORDS = new String[BOOT_TYPES.length];
+	//The kinds of enemy movement.
+	private static final String[] ENEMY_MOVEMENT_WORDS = {StraightLineEnemy.META_MOVEMENT_KEYWORD,
+											WallFollowEnemy.META_MOVEMENT_KEYWORD,
+											SmartTargetEnemy.META_MOVEMENT_KEYWORD,
+											DumbTargetEnemy.META_MOVEMENT_KEYWORD};
 	
+	static {
+		for (int i = 0; i < COLOURS.length; i++) {
+			COLOUR_WORDS[i] = ColourUtils.colourToString(COLOURS[i]);
+		}
+		for (int i = 0; i < BOOT_TYPES.length; i++) {
+			BOOT_TYPE_WORDS[i] = BOOT_TYPES[i].toString();
+		}
+	}
+	
+	/**
+	 * Parses the rest of a line of metadata after its coordinates and keyword.
+	 */
+	private interface MetadataHandler {
+		/**
+		 * Parses the rest of a line of metadata.
+		 * @param tokens The tokenizer positioned after the keyword.
+		 * @param x The x coordinate the metadata is for.
+		 * @param y The y coordinate the metadata is for.
+		 * @param map The map the metadata is for.
+		 * @return The new entity that was created, if any.
+		 * @throws ParsingException If the metadata couldn't be parsed.
+		 * @throws MalformedURLException If an entity's sprite is invalid.
+		 */
+		Entity parse(MapTokenizer tokens, int x, int y, Map map) 
+				throws ParsingException, MalformedURLException;
+	}
 	
 	/**
 	 * Parses a cell character and adds the cell to the given map.
+	 * Cells that can be shared are only created once per map.
 	 * @param cellCharacter The cell character to parse.
 	 * @param map The map to add the cell that we've parsed to.
 	 * @param x The x coordinate of the cell on the map.
 	 * @param y The y coordinate of the cell on the map.
 	 * @throws ParsingException If the character was unrecognised.
 	 */
-	private static void parseCellOnToMap(char cellCharacter, int x, int y, Map map) throws ParsingException {
+	public static void parseCellOnToMap(char cellCharacter, int x, int y, Map map) throws ParsingException {
+		Cell cell = map.getSharedCell(cellCharacter);
+		if (cell == null) {
+			cell = createCell(cellCharacter, x, y, map);
+		}
+		map.setCellAt(x, y, cell);
+	}
+	
+	/**
+	 * Creates a new cell for a cell character
+	 * (also used by maps to create cells for tiles loaded lazily).
+	 * @param cellCharacter The cell character to parse.
+	 * @param x The x coordinate of the cell on the map.
+	 * @param y The y coordinate of the cell on the map.
+	 * @param map The map the cell is for.
+	 * @return The new cell.
+	 * @throws ParsingException If the character was unrecognised.
+	 */
+	public static Cell createCell(char cellCharacter, int x, int y, Map map) throws ParsingException {
 		try {
-			//Create the appropriate cell on the map for the given character.
+			//Create the appropriate cell for the given character.
 			switch (cellCharacter) {
 				case Goal.SYMBOL:
-					map.setCellAt(x, y, new Goal(x, y, map));
-					break;
+					return new Goal(x, y, map);
 				case Ground.SYMBOL:
-					map.setCellAt(x, y, new Ground(x, y, map));
-					break;
+					return new Ground(x, y, map);
 				case PushBlockInWater.SYMBOL:
-					map.setCellAt(x, y, new PushBlockInWater(map));
-					break;
+					return new PushBlockInWater(map);
 				case Teleporter.SYMBOL:
-					map.setCellAt(x, y, new Teleporter(x, y, map));
-					break;
+					return new Teleporter(x, y, map);
 				case Door.SYMBOL:
-					//Ignore and create wall placeholder as it will be created specially in the meta data.
+					//Create wall placeholder as it will be created specially in the meta data.
 					//(as theres 2 types coloured and token doors)
-					map.setCellAt(x, y, new Wall(x, y, map));
-					break;
+					return new Wall(x, y, map);
 				case Water.SYMBOL:
-					map.setCellAt(x, y, new Water(x, y, map));
-					break;
+					return new Water(x, y, map);
 				case Fire.SYMBOL:
-					map.setCellAt(x, y, new Fire(x, y, map));
-					break;
+					return new Fire(x, y, map);
 				case Wall.SYMBOL:
-					map.setCellAt(x, y, new Wall(x, y, map));
-					break;
+					return new Wall(x, y, map);
 				default:
 					throw new ParsingException(CELLS_ERROR_MSG);
 			}
@@ -68,248 +162,406 @@ public class MapReader {
 	}
 	
 	/**
-	 * 
-	 * @param metadataStr The single line of metadata to parse.
+	 * Parses a line of metadata, creating anything it describes on the map.
+	 * Lines with fewer than 3 fields(coordinates and a keyword) are ignored.
+	 * @param tokens The tokenizer positioned at the start of the metadata.
 	 * @param map The map the metadata is for.
 	 * @return The new entity that was created, if any.
 	 * @throws ParsingException If this line of metadata couldn't be parsed.
 	 */
-	private static Entity parseMapMetadataStr(String metadataStr, Map map) throws ParsingException {
-		String[] metadataArgs = metadataStr.split(DATA_DELIMITER);
-		//If we create a new object, store it here to return
-		Entity newEntity = null;
+	private static Entity parseMetadata(MapTokenizer tokens, Map map) throws ParsingException {
+		//All metadata starts with coords
+		//(can use coords 0,0 for extra non grid related data in the future)
+		if (!tokens.nextField()) {
+			return null;
+		}
+		//Bad coordinates are only an error if this turns out
+		//to be a full line of metadata.
+		ParsingException coordsError = null;
+		int x = 0;
 		try {
-			if (metadataArgs.length > 2) {
-				int curArgsBase = 0;
-				
-				//All metadata starts with coords
-				//(can use coords 0,0 for extra non grid related data in the future)
-				Vector2 coords = new Vector2(Integer.parseInt(metadataArgs[curArgsBase]), 
-	    					             Integer.parseInt(metadataArgs[curArgsBase + 1]));
-
-	    		curArgsBase = 2;
-	    		switch (metadataArgs[curArgsBase].toLowerCase()) {
-	    			case Map.START_META_KEYWORD: //Set Spawn location
-	    				map.setSpawnLocation(coords);
-	    				break;
-	    			case Token.META_KEYWORD: //Spawn token entity
-	    				int tokenAmount = Integer.parseInt(metadataArgs[curArgsBase + 1]);
-	    				
-	    				Token newToken = new Token(map, tokenAmount);
-	    				newToken.getGridCoords().setXY(coords);
-	    				newEntity = newToken;
-	    				break;
-	    			case Teleporter.META_KEYWORD: //Link 2 teleporters
-	    				//Coords of 2nd teleporter
-	    				Vector2 tp2Coords = new Vector2(Integer.parseInt(metadataArgs[curArgsBase + 1]), 
-	    	    									  Integer.parseInt(metadataArgs[curArgsBase + 2]));
+			x = tokens.fieldAsInt();
+		} catch (ParsingException e) {
+			coordsError = e;
+		}
+		if (!tokens.nextField()) {
+			return null;
+		}
+		int y = 0;
+		try {
+			y = tokens.fieldAsInt();
+		} catch (ParsingException e) {
+			if (coordsError == null) {
+				coordsError = e;
+			}
+		}
+		if (!tokens.nextField()) {
+			return null;
+		}
+		if (coordsError != null) {
+			throw coordsError;
+		}
+		
+		//Pass the rest of the line on to the handler for the keyword.
+		int keywordIndex = tokens.matchField(METADATA_KEYWORDS);
+		if (keywordIndex == MapTokenizer.END) {
+			throw tokens.error(String.format(METADATA_ERROR_MSG, tokens.fieldToString()));
+		}
+		try {
+			return METADATA_HANDLERS[keywordIndex].parse(tokens, x, y, map);
+		} catch (MalformedURLException e) {
+			throw tokens.error(String.format(METADATA_ERROR_MSG, e.getMessage()));
+		}
+	}
 	
-	    				//Check there is a teleport at both coords and the 
-	    				//tp2 coords
-	    	    		if (map.getCellAt(coords) != null && map.getCellAt(coords) instanceof Teleporter) {
-	    	    			if (map.getCellAt(tp2Coords) != null && map.getCellAt(tp2Coords) instanceof Teleporter) {
-		    	    			Teleporter tp1 = (Teleporter) map.getCellAt(coords);
-		    	    			tp1.setTeleportTo((Teleporter) map.getCellAt(tp2Coords));
-		    	    		} else {
-		    	    			throw new ParsingException(String.format(METADATA_ERROR_MSG, metadataStr));
-		    	    		}
-	    	    		} else {
-	    	    			throw new ParsingException(String.format(METADATA_ERROR_MSG, metadataStr));
-	    	    		}
-	    	    		break;
-	    			case Door.META_KEYWORD: //Create door cell
-    					String doorTypeStr = metadataArgs[curArgsBase + 1].toLowerCase();
-    					
-    					if (doorTypeStr.equals(Token.META_KEYWORD)) { //Token door
-    						int tokensRequired = Integer.parseInt(metadataArgs[curArgsBase + 2]);
-    						TokenDoor newDoor = new TokenDoor(tokensRequired, map);
-    						map.setCellAt(coords, newDoor);
-    						
-    					} else { //Coloured door
-    						Color colour = ColourUtils.stringToColour(doorTypeStr);
-	    					if (colour != null) {
-	    						ColouredDoor newDoor = new ColouredDoor(colour, map);
-	    						map.setCellAt(coords, newDoor);
-	    					} else {
-		    					throw new ParsingException(String.format(METADATA_ERROR_MSG, metadataStr));
-		    				}
-    					}
-	    				break;
-	    			case Key.META_KEYWORD: //Spawn key entity
-    					Color colour = ColourUtils.stringToColour(metadataArgs[curArgsBase + 1]);
-    					if (colour != null) {
-    						Key newKey = new Key(map, colour);
-    						newKey.getGridCoords().setXY(coords);
-    						newEntity = newKey;
-    					} else {
-	    					throw new ParsingException(String.format(METADATA_ERROR_MSG, metadataStr));
-	    				}
-	    				break;
-	    			case Map.LAST_TIME_META_KEYWORD: //Sets the last time for this map
-	    				long lastTime;
-	    	    		lastTime = Long.parseLong(metadataArgs[curArgsBase + 1]);
-	    	    		map.setLastTime(lastTime);
-	    				break;
-	    			case Boot.META_KEYWORD: //Spawn boot entity
-    					String bootTypeString = metadataArgs[curArgsBase + 1].toLowerCase();
-    					Boot.BootType bootType = Boot.BootType.valueOf(bootTypeString);
-    					
-    					Boot newBoot = new Boot(map, bootType);
-    					newBoot.getGridCoords().setXY(coords);
-    					newEntity = newBoot;
-	    				break;
-	    			case PushBlock.META_KEYWORD:
-	    				PushBlock newPushBlock = new PushBlock(map);
-	    				newPushBlock.getGridCoords().setXY(coords);
-    					newEntity = newPushBlock;
-    					break;
-	    			case HintBlock.META_KEYWORD:
-	    				HintBlock newHintBlock = new HintBlock(map);
-	    				newHintBlock.getGridCoords().setXY(coords);
-	    				newHintBlock.setHint(metadataArgs[curArgsBase + 1]);
-    					newEntity = newHintBlock;
-    					break;
-	    			case Inventory.META_ITEM_KEYWORD: //Add item to starting inventory
-	    				//Get the item meta information on its own by taking away 0,0,invitem,
-	    				int itemMetaLength = String.format(Inventory.META_ITEM_FORMAT, coords.toString(),
-	    										Inventory.META_ITEM_KEYWORD,"").length();
-	    				String itemMeta = metadataStr.substring(itemMetaLength);
-	    				Entity itemEntity = parseMapMetadataStr(itemMeta, map);
-	    				if (itemEntity != null && itemEntity instanceof Collectable) {
-	    					map.getStartInventory().addItem((Collectable) itemEntity);
-	    				}
-	    				break;
-	    			case Inventory.META_TOKEN_KEYWORD: //Set the num tokens in the starting inventory
-	    				int numTokens = Integer.parseInt(metadataArgs[curArgsBase + 1]);
-	    				map.getStartInventory().setNumTokens(numTokens);
-	    				break;
-	    			case Enemy.META_KEYWORD: //Spawn enemy entity
-	    					Direction facingDir = null;
-	    					//Check if a facing direction is given,
-	    					//Otherwise default to facing right
-	    					if (metadataArgs.length > curArgsBase + 2) {
-	    						facingDir = Direction.createFromString(metadataArgs[curArgsBase + 2].toLowerCase());
-	    					} else {
-	    						facingDir = new Direction(Direction.DIR_RIGHT);
-	    					}
-	    					if (facingDir != null) {
-	    						//Get the type of enemy
-	    						switch (metadataArgs[curArgsBase + 1].toLowerCase()) {
-	    							case StraightLineEnemy.META_MOVEMENT_KEYWORD://Straight line enemy
-	    								StraightLineEnemy lineEnemy = new StraightLineEnemy(0, 0, map, facingDir);
-	    								lineEnemy.getGridCoords().setXY(coords);
-	    								newEntity = lineEnemy;
-	    								break;
-	    							case WallFollowEnemy.META_MOVEMENT_KEYWORD://Wall follow enemy
-	    								boolean followRight = false;
-	    								//Check if the side to follow left or right is specified, 
-	    								//defaulting to left if not
-	    								if (metadataArgs.length > curArgsBase + 3) {
-	    									if (metadataArgs[curArgsBase + 3].toLowerCase().equals(Direction.RIGHT_WORD)) {
-	    										followRight = true;
-	    									} else {
-	    										followRight = false;
-	    									}
-	    								}
-	    								WallFollowEnemy followEnemy = new WallFollowEnemy(followRight, 0, 0, map, facingDir);
-	    								followEnemy.getGridCoords().setXY(coords);
-	    								newEntity = followEnemy;
-	    								break;
-	    							case SmartTargetEnemy.META_MOVEMENT_KEYWORD:
-	    								SmartTargetEnemy smartEnemy = new SmartTargetEnemy(0, 0, map, facingDir);
-	    								smartEnemy.getGridCoords().setXY(coords);
-	    								newEntity = smartEnemy;
-	    			    				break;
-	    							case DumbTargetEnemy.META_MOVEMENT_KEYWORD:
-	    								DumbTargetEnemy dumbEnemy = new DumbTargetEnemy(0, 0, map, facingDir);
-	    								dumbEnemy.getGridCoords().setXY(coords);
-	    								newEntity = dumbEnemy;
-	    								break;
-	    							default:
-	    								throw new ParsingException(String.format(METADATA_ERROR_MSG, metadataStr));
-	    						}
-	    						break;
-	    					}else {
-	    						throw new ParsingException(String.format(METADATA_ERROR_MSG, metadataStr));
-	    					}
-				default:
-	    				throw new ParsingException(String.format(METADATA_ERROR_MSG, metadataStr));
-	    		}
-	    		
+	/**
+	 * Reads the next field of a line of metadata, which must be there.
+	 * @param tokens The tokenizer to read from.
+	 * @param fieldName What the field is(for the error message).
+	 * @throws ParsingException If there isn't another field.
+	 */
+	private static void requireField(MapTokenizer tokens, String fieldName) throws ParsingException {
+		if (!tokens.nextField()) {
+			throw tokens.error(String.format(MISSING_FIELD_ERROR_MSG, fieldName));
+		}
+	}
+	
+	/**
+	 * Reads a colour from the next field of a line of metadata.
+	 * @param tokens The tokenizer to read from.
+	 * @return The colour.
+	 * @throws ParsingException If the field is missing or isn't a colour.
+	 */
+	private static Color readColour(MapTokenizer tokens) throws ParsingException {
+		requireField(tokens, "colour");
+		int colourIndex = tokens.matchField(COLOUR_WORDS);
+		if (colourIndex == MapTokenizer.END) {
+			throw tokens.error(String.format(METADATA_ERROR_MSG, tokens.fieldToString()));
+		}
+		return COLOURS[colourIndex];
+	}
+	
+	/**
+	 * Sets the spawn location.
+	 */
+	private static Entity parseStart(MapTokenizer tokens, int x, int y, Map map) {
+		map.setSpawnLocation(new Vector2(x, y));
+		return null;
+	}
+	
+	/**
+	 * Creates a token entity.
+	 */
+	private static Entity parseToken(MapTokenizer tokens, int x, int y, Map map) 
+			throws ParsingException, MalformedURLException {
+		requireField(tokens, "token amount");
+		Token newToken = new Token(map, tokens.fieldAsInt());
+		newToken.getGridCoords().setXY(x, y);
+		return newToken;
+	}
+	
+	/**
+	 * Links a teleporter to another teleporter.
+	 */
+	private static Entity parseTeleporter(MapTokenizer tokens, int x, int y, Map map) 
+			throws ParsingException {
+		//Coords of 2nd teleporter
+		requireField(tokens, "teleporter x");
+		int toX = tokens.fieldAsInt();
+		requireField(tokens, "teleporter y");
+		int toY = tokens.fieldAsInt();
+		
+		//Check there is a teleport at both coords
+		Cell from = map.getCellAt(x, y);
+		Cell to = map.getCellAt(toX, toY);
+		if (from instanceof Teleporter && to instanceof Teleporter) {
+			((Teleporter) from).setTeleportTo((Teleporter) to);
+		} else {
+			throw tokens.error(String.format(METADATA_ERROR_MSG, Teleporter.META_KEYWORD));
+		}
+		return null;
+	}
+	
+	/**
+	 * Creates a token door or coloured door cell.
+	 */
+	private static Entity parseDoor(MapTokenizer tokens, int x, int y, Map map) 
+			throws ParsingException, MalformedURLException {
+		requireField(tokens, "door type");
+		if (tokens.fieldEquals(Token.META_KEYWORD)) { //Token door
+			requireField(tokens, "tokens required");
+			map.setCellAt(x, y, new TokenDoor(tokens.fieldAsInt(), map));
+		} else { //Coloured door
+			int colourIndex = tokens.matchField(COLOUR_WORDS);
+			if (colourIndex == MapTokenizer.END) {
+				throw tokens.error(String.format(METADATA_ERROR_MSG, tokens.fieldToString()));
 			}
-		} catch (Exception e) {
-			throw new ParsingException(String.format(METADATA_ERROR_MSG, metadataStr));
+			map.setCellAt(x, y, new ColouredDoor(COLOURS[colourIndex], map));
+		}
+		return null;
+	}
+	
+	/**
+	 * Creates a key entity.
+	 */
+	private static Entity parseKey(MapTokenizer tokens, int x, int y, Map map) 
+			throws ParsingException, MalformedURLException {
+		Key newKey = new Key(map, readColour(tokens));
+		newKey.getGridCoords().setXY(x, y);
+		return newKey;
+	}
+	
+	/**
+	 * Sets the last time for the map.
+	 */
+	private static Entity parseLastTime(MapTokenizer tokens, int x, int y, Map map) 
+			throws ParsingException {
+		requireField(tokens, "time");
+		map.setLastTime(tokens.fieldAsLong());
+		return null;
+	}
+	
+	/**
+	 * Sets the tick for the map.
+	 */
+	private static Entity parseTick(MapTokenizer tokens, int x, int y, Map map) 
+			throws ParsingException {
+		requireField(tokens, "tick");
+		map.setTick(tokens.fieldAsLong());
+		return null;
+	}
+	
+	/**
+	 * Sets the seed of the map's random numbers.
+	 */
+	private static Entity parseSeed(MapTokenizer tokens, int x, int y, Map map) 
+			throws ParsingException {
+		requireField(tokens, "seed");
+		map.setSeed(tokens.fieldAsLong());
+		return null;
+	}
+	
+	/**
+	 * Creates a boot entity.
+	 */
+	private static Entity parseBoot(MapTokenizer tokens, int x, int y, Map map) 
+			throws ParsingException, MalformedURLException {
+		requireField(tokens, "boot type");
+		int bootIndex = tokens.matchField(BOOT_TYPE_WORDS);
+		if (bootIndex == MapTokenizer.END) {
+			throw tokens.error(String.format(METADATA_ERROR_MSG, tokens.fieldToString()));
+		}
+		Boot newBoot = new Boot(map, BOOT_TYPES[bootIndex]);
+		newBoot.getGridCoords().setXY(x, y);
+		return newBoot;
+	}
+	
+	/**
+	 * Creates a push block entity.
+	 */
+	private static Entity parsePushBlock(MapTokenizer tokens, int x, int y, Map map) 
+			throws MalformedURLException {
+		PushBlock newPushBlock = new PushBlock(map);
+		newPushBlock.getGridCoords().setXY(x, y);
+		return newPushBlock;
+	}
+	
+	/**
+	 * Creates a hint block entity.
+	 */
+	private static Entity parseHintBlock(MapTokenizer tokens, int x, int y, Map map) 
+			throws ParsingException, MalformedURLException {
+		requireField(tokens, "hint");
+		HintBlock newHintBlock = new HintBlock(map);
+		newHintBlock.getGridCoords().setXY(x, y);
+		newHintBlock.setHint(tokens.fieldToString());
+		return newHintBlock;
+	}
+	
+	/**
+	 * Adds an item to the starting inventory,
+	 * the rest of the line is the item's own metadata.
+	 */
+	private static Entity parseInventoryItem(MapTokenizer tokens, int x, int y, Map map) 
+			throws ParsingException {
+		Entity itemEntity = parseMetadata(tokens, map);
+		if (itemEntity instanceof Collectable) {
+			map.getStartInventory().addItem((Collectable) itemEntity);
+		}
+		return null;
+	}
+	
+	/**
+	 * Sets the number of tokens in the starting inventory.
+	 */
+	private static Entity parseInventoryTokens(MapTokenizer tokens, int x, int y, Map map) 
+			throws ParsingException {
+		requireField(tokens, "number of tokens");
+		map.getStartInventory().setNumTokens(tokens.fieldAsInt());
+		return null;
+	}
+	
+	/**
+	 * Creates an enemy entity.
+	 */
+	private static Entity parseEnemy(MapTokenizer tokens, int x, int y, Map map) 
+			throws ParsingException, MalformedURLException {
+		requireField(tokens, "enemy movement");
+		int movement = tokens.matchField(ENEMY_MOVEMENT_WORDS);
+		if (movement == MapTokenizer.END) {
+			throw tokens.error(String.format(METADATA_ERROR_MSG, tokens.fieldToString()));
 		}
 		
-		return newEntity;
+		//Check if a facing direction is given,
+		//Otherwise default to facing right
+		Direction facingDir = new Direction(Direction.DIR_RIGHT);
+		if (tokens.nextOptionalField()) {
+			int directionIndex = tokens.matchField(DIRECTION_WORDS);
+			if (directionIndex == MapTokenizer.END) {
+				throw tokens.error(String.format(METADATA_ERROR_MSG, tokens.fieldToString()));
+			}
+			facingDir = new Direction(DIRECTIONS[directionIndex]);
+		}
+		
+		//Get the type of enemy
+		Enemy newEnemy;
+		switch (ENEMY_MOVEMENT_WORDS[movement]) {
+			case StraightLineEnemy.META_MOVEMENT_KEYWORD://Straight line enemy
+				newEnemy = new StraightLineEnemy(0, 0, map, facingDir);
+				break;
+			case WallFollowEnemy.META_MOVEMENT_KEYWORD://Wall follow enemy
+				//Check if the side to follow left or right is specified, 
+				//defaulting to left if not
+				boolean followRight = tokens.nextOptionalField() 
+										&& tokens.fieldEquals(Direction.RIGHT_WORD);
+				newEnemy = new WallFollowEnemy(followRight, 0, 0, map, facingDir);
+				break;
+			case SmartTargetEnemy.META_MOVEMENT_KEYWORD:
+				newEnemy = new SmartTargetEnemy(0, 0, map, facingDir);
+				break;
+			default:
+				newEnemy = new DumbTargetEnemy(0, 0, map, facingDir);
+				break;
+		}
+		newEnemy.getGridCoords().setXY(x, y);
+		return newEnemy;
 	}
 	
 	/**
-	 * Parses a map file from a given scanner and creates
+	 * Parses a map file from a given reader and creates
 	 * a new Map object set up with the information read.
-	 * @param in The scanner containing the map file data.
+	 * The reader is closed once the map has been read.
+	 * @param in The reader containing the map file data.
 	 * @return A new Map object set up with the information read.
 	 * @throws ParsingException If the map data couldn't be parsed.
 	 */
-    public static Map readMapFile(Scanner in) throws ParsingException {
-        
+    public static Map readMapFile(Reader in) throws ParsingException {
+    	MapTokenizer tokens = new MapTokenizer(in);
+    	try {
+    		return readMap(tokens);
+    	} finally {
+    		tokens.close();
+    	}
+    }
+    
+    /**
+     * Parses the dimensions, cells and metadata of a map.
+     * @param tokens The tokenizer to read the map from.
+     * @return A new Map object set up with the information read.
+     * @throws ParsingException If the map data couldn't be parsed.
+     */
+    private static Map readMap(MapTokenizer tokens) throws ParsingException {
     	//Check there is a line for the map dimensions
-    	if (in.hasNextLine()) {
-    		
-    		//Parse the map dimensions
-    		String[] dimStrs = in.nextLine().split(DATA_DELIMITER);
-    		//Check there are exactly 2 arguments(x and y)
-    		if (dimStrs.length != 2) {
-    			throw new ParsingException(DIMENSIONS_ERROR_MSG);
-    		}
-    		int xDim = 0;
-    		int yDim = 0;
-    		try {
-	    		xDim = Integer.parseInt(dimStrs[0]);
-	    		yDim = Integer.parseInt(dimStrs[1]);
-    		} catch (NumberFormatException e) {
-    			throw new ParsingException(DIMENSIONS_ERROR_MSG);
-    		}
-    		//Create a new map with the read dimensions.
-    		Map newMap = new Map(xDim, yDim);
-    		
-    		//Parse the cells.
-    		for (int y = 0; y < yDim; y++) {
-    			if (in.hasNextLine()) {
-    				//Read a line of cells
-    				String cellLineStr = in.nextLine().toLowerCase();
-    				for (int x = 0; x < cellLineStr.length(); x++) {
-    					parseCellOnToMap(cellLineStr.charAt(x), x, y, newMap);
-    				}
-    				
-    			} else { //There's a row of cells missing from the file
-    				throw new ParsingException(CELLS_ERROR_MSG);
-    			}
-    		}
-    		
-    		//Parse the metadata/entities
-    		while (in.hasNextLine()) {
-    			String metadataStr = in.nextLine();
-    			Entity newEntity = parseMapMetadataStr(metadataStr, newMap);
-    			if (newEntity != null) {
-    				newMap.addEntity(newEntity);
-    			}
-    		}
-    		
-    		in.close();
-    		
-    		//We've reached here without throwing an error,
-    		//return our new map!
-    		return newMap;
-    		
-    	} else {
-    		in.close();
+    	if (!tokens.hasMoreLines()) {
     		throw new ParsingException(DIMENSIONS_ERROR_MSG);
     	}
+    	
+		//Parse the map dimensions, there must be exactly 2(x and y)
+    	int xDim = 0;
+    	int yDim = 0;
+    	tokens.nextField();
+    	try {
+    		xDim = tokens.fieldAsInt();
+    		if (!tokens.nextField()) {
+    			throw tokens.error(DIMENSIONS_ERROR_MSG);
+    		}
+    		yDim = tokens.fieldAsInt();
+    	} catch (ParsingException e) {
+    		throw tokens.error(DIMENSIONS_ERROR_MSG);
+    	}
+    	if (tokens.nextOptionalField()) {
+    		throw tokens.error(DIMENSIONS_ERROR_MSG);
+    	}
+    	tokens.endLine();
+    	
+		//Create a new map with the read dimensions.
+		Map newMap = new Map(xDim, yDim);
+		
+		//Parse the cells.
+		for (int y = 0; y < yDim; y++) {
+			//There's a row of cells missing from the file
+			if (!tokens.hasMoreLines()) {
+				throw tokens.errorAt(CELLS_ERROR_MSG, 1);
+			}
+			//Read a row of cells
+			int x = 0;
+			int cellChar = tokens.readLineChar();
+			while (cellChar != MapTokenizer.END) {
+				try {
+					parseCellOnToMap(Character.toLowerCase((char) cellChar), x, y, newMap);
+				} catch (ParsingException e) {
+					throw tokens.errorAt(CELLS_ERROR_MSG, x + 1);
+				}
+				x++;
+				cellChar = tokens.readLineChar();
+			}
+			tokens.endLine();
+		}
+		
+		//Parse the metadata/entities
+		readMetadata(tokens, newMap);
+		
+		//We've reached here without throwing an error,
+		//return our new map!
+		return newMap;
     }
     
     /**
-     * Parses a map file from a given scanner and creates
+     * Parses lines of metadata, creating anything they describe on a map.
+     * (Used for metadata that isn't part of a whole map file).
+     * The reader is closed once the metadata has been read.
+     * @param in The reader containing the lines of metadata.
+     * @param map The map the metadata is for.
+     * @throws ParsingException If the metadata couldn't be parsed.
+     */
+    public static void readMetadata(Reader in, Map map) throws ParsingException {
+    	MapTokenizer tokens = new MapTokenizer(in);
+    	try {
+    		readMetadata(tokens, map);
+    	} finally {
+    		tokens.close();
+    	}
+    }
+    
+    /**
+     * Parses lines of metadata until the end of the file,
+     * adding any entities created to the map.
+     * @param tokens The tokenizer positioned at the first line of metadata.
+     * @param map The map the metadata is for.
+     * @throws ParsingException If the metadata couldn't be parsed.
+     */
+    private static void readMetadata(MapTokenizer tokens, Map map) throws ParsingException {
+    	while (tokens.hasMoreLines()) {
+			Entity newEntity = parseMetadata(tokens, map);
+			if (newEntity != null) {
+				map.addEntity(newEntity);
+			}
+			tokens.endLine();
+		}
+    }
+    
+    /**
+     * Parses a map file(text or binary) and creates
 	 * a new Map object set up with the information read.
      * @param filename The full path to the map file.
      * @return The newly created Map object set up with the information read.
@@ -317,12 +569,23 @@ public class MapReader {
      * @throws ParsingException If the map file couldn't be parsed.
      */
     public static Map readMapFile(String filename) throws FileNotFoundException, ParsingException {
-		
-		File file = new File (filename);
-		Scanner in = new Scanner(file); 
-		
-		return readMapFile(in);
+    	BufferedInputStream in = new BufferedInputStream(new FileInputStream(new File(filename)));
+    	try {
+    		if (BinaryMapReader.isBinaryMap(in)) {
+    			//Binary maps are read from the file itself so their tiles can be mapped.
+    			in.close();
+    			return BinaryMapReader.readMapFile(filename);
+    		}
+    	} catch (IOException e) {
+    		try {
+    			in.close();
+    		} catch (IOException closeError) {
+    			closeError.printStackTrace();
+    		}
+    		throw new ParsingException(String.format(READ_ERROR_MSG, e.getMessage()));
+    	}
+		return readMapFile(new InputStreamReader(in));
 	}
 
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,135 @@
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+
+/**
+ * Renders a map onto a graphics context.
+ * Kept separate from the map so that maps can be loaded and simulated
+ * without anything to render to, sprites are only loaded once
+ * a renderer draws them.
+ * The map is rendered from views captured from it(see MapView), so the map can
+ * be updated on another thread while the last view is being drawn.
+ * Only the grid coordinates in view that look different from the last render
+ * are repainted, everything in view is only repainted when the camera moves.
+ * @author Josiah Richards
+ * @version 2.0
+ */
+public class MapRenderer {
+
+	//The map being rendered.
+	private Map map;
+	//If everything in view has to be repainted on the next render.
+	private boolean needsFullRepaint;
+	//The view drawn in the last render, null before the first render.
+	private MapView lastView;
+	//The render offset used in the last render.
+	private int lastOffsetX;
+	private int lastOffsetY;
+
+	/**
+	 * Creates a renderer for a map.
+	 * @param map The map to render.
+	 */
+	public MapRenderer(Map map) {
+		this.map = map;
+		needsFullRepaint = true;
+		lastView = null;
+	}
+
+	/**
+	 * Makes the next render repaint everything in view
+	 * (e.g. if the canvas has been cleared).
+	 */
+	public void markAllDirty() {
+		needsFullRepaint = true;
+	}
+
+	/**
+	 * Centres the camera on the player and captures what it can see.
+	 * Must be called on the thread that updates the map.
+	 * @return The view to render.
+	 */
+	public MapView captureView() {
+		map.centreCamOnPlayer();
+		return MapView.capture(map);
+	}
+
+	/**
+	 * Renders the map as it is now to a graphics context
+	 * (when the map is updated on the same thread it's rendered on).
+	 * @param graphicsContext The graphics context to render to.
+	 */
+	public void render(GraphicsContext graphicsContext) {
+		render(graphicsContext, captureView(), map.getRenderOffset());
+	}
+
+	/**
+	 * Renders a view of the map to a graphics context.
+	 * Repaints everything if the camera has moved since the last render,
+	 * otherwise only what looks different.
+	 * @param graphicsContext The graphics context to render to.
+	 * @param view The view to render.
+	 * @param offset Where the top left of the view is drawn on the graphics context.
+	 */
+	public void render(GraphicsContext graphicsContext, MapView view, Vector2 offset) {
+		if (view == lastView && !needsFullRepaint
+				&& offset.getX() == lastOffsetX && offset.getY() == lastOffsetY) {
+			//Nothing has changed since the last render.
+			return;
+		}
+
+		//Anything that's moved on screen means everything needs repainting.
+		if (!view.isSameArea(lastView) || offset.getX() != lastOffsetX
+				|| offset.getY() != lastOffsetY) {
+			needsFullRepaint = true;
+		}
+
+		if (needsFullRepaint) {
+			graphicsContext.clearRect(0, 0, graphicsContext.getCanvas().getWidth(),
+										graphicsContext.getCanvas().getHeight());
+		}
+		for (int viewY = 0; viewY < view.getHeight(); viewY++) {
+			for (int viewX = 0; viewX < view.getWidth(); viewX++) {
+				int viewIndex = viewY * view.getWidth() + viewX;
+				if (needsFullRepaint || !view.looksSameAt(lastView, viewIndex)) {
+					renderAt(graphicsContext, view, viewIndex,
+							offset.getX() + viewX * Map.GRID_DIMENSION,
+							offset.getY() + viewY * Map.GRID_DIMENSION, !needsFullRepaint);
+				}
+			}
+		}
+
+		//Remember what this render looked like.
+		lastView = view;
+		lastOffsetX = offset.getX();
+		lastOffsetY = offset.getY();
+		needsFullRepaint = false;
+	}
+
+	/**
+	 * Paints a grid coordinate in view: the cell with the entities on top.
+	 * @param graphicsContext The graphics context to render to.
+	 * @param view The view being rendered.
+	 * @param viewIndex The index of the coordinate in view.
+	 * @param x The x position to draw at.
+	 * @param y The y position to draw at.
+	 * @param clear If the old contents of the coordinate need clearing first.
+	 */
+	private void renderAt(GraphicsContext graphicsContext, MapView view, int viewIndex,
+							int x, int y, boolean clear) {
+		if (clear) {
+			graphicsContext.clearRect(x, y, Map.GRID_DIMENSION, Map.GRID_DIMENSION);
+		}
+		Image[] images = view.getImagesAt(viewIndex);
+		for (int i = 0; i < images.length; i++) {
+			graphicsContext.drawImage(images[i], x, y);
+		}
+	}
+
+	/**
+	 * Gets the map being rendered.
+	 * @return The map being rendered.
+	 */
+	public Map getMap() {
+		return map;
+	}
+}
@@ -0,0 +1,334 @@
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Splits the text of a map file into lines and comma separated fields
+ * in a single pass over a reader, a character at a time.
+ * Fields are read into a reusable character buffer and compared or converted
+ * in place, so nothing is created per line or per field unless asked for.
+ * Keeps track of the line and column being read for error messages.
+ * @author Josiah Richards
+ * @version 1.0
+ */
+public class MapTokenizer {
+
+	//The value returned when the end of the line or file has been reached.
+	public static final int END = -1;
+
+	//The character separating fields on the same line.
+	private static final char FIELD_DELIMITER = ',';
+	//How many characters are read from the reader at once.
+	private static final int BUFFER_SIZE = 64 * 1024;
+	//The starting size of the field buffer(it grows if needed).
+	private static final int FIELD_BUFFER_SIZE = 64;
+
+	//The format of errors, with the line and column they happened at.
+	private static final String POSITION_FORMAT = "%s (line %d, column %d)";
+	//Error messages.
+	private static final String NUMBER_ERROR_MSG = "Expected a number but found \"%s\"";
+	private static final String READ_ERROR_MSG = "Failed to read map file: %s";
+
+	//The reader the text comes from.
+	private Reader in;
+	//The characters read from the reader but not tokenised yet.
+	private char[] buffer;
+	private int bufferPos;
+	private int bufferEnd;
+	//The current field's characters.
+	private char[] field;
+	private int fieldLength;
+	//The line(from 1) and column(from 1) of the next character.
+	private int line;
+	private int column;
+	//The line and column the current field started at.
+	private int fieldLine;
+	private int fieldColumn;
+	//If all of the current line has been read.
+	private boolean lineEnded;
+
+	/**
+	 * Creates a tokenizer reading from a reader.
+	 * @param in The reader to tokenise.
+	 */
+	public MapTokenizer(Reader in) {
+		this.in = in;
+		buffer = new char[BUFFER_SIZE];
+		bufferPos = 0;
+		bufferEnd = 0;
+		field = new char[FIELD_BUFFER_SIZE];
+		fieldLength = 0;
+		line = 1;
+		column = 1;
+		fieldLine = 1;
+		fieldColumn = 1;
+		lineEnded = false;
+	}
+
+	/**
+	 * Checks if there's anything left to read.
+	 * @return True if there's another line, false at the end of the file.
+	 * @throws ParsingException If the reader failed.
+	 */
+	public boolean hasMoreLines() throws ParsingException {
+		return peek() != END;
+	}
+
+	/**
+	 * Reads the next character on the current line.
+	 * @return The next character, or END if the line has ended
+	 * 			(the line break is consumed).
+	 * @throws ParsingException If the reader failed.
+	 */
+	public int readLineChar() throws ParsingException {
+		if (lineEnded) {
+			return END;
+		}
+		int c = read();
+		if (c == '\n' || c == '\r' || c == END) {
+			consumeLineBreak(c);
+			return END;
+		}
+		return c;
+	}
+
+	/**
+	 * Reads the next comma separated field on the current line.
+	 * @return True if a field was read, false if the line has no more fields.
+	 * @throws ParsingException If the reader failed.
+	 */
+	public boolean nextField() throws ParsingException {
+		if (lineEnded) {
+			return false;
+		}
+		fieldLength = 0;
+		fieldLine = line;
+		fieldColumn = column;
+		int c = read();
+		while (c != FIELD_DELIMITER && c != '\n' && c != '\r' && c != END) {
+			if (fieldLength == field.length) {
+				char[] biggerField = new char[field.length * 2];
+				System.arraycopy(field, 0, biggerField, 0, fieldLength);
+				field = biggerField;
+			}
+			field[fieldLength++] = (char) c;
+			c = read();
+		}
+		if (c != FIELD_DELIMITER) {
+			consumeLineBreak(c);
+		}
+		return true;
+	}
+
+	/**
+	 * Checks if there's another non empty field on the current line and reads it.
+	 * (Used for optional fields, where an empty field counts as missing).
+	 * @return True if a non empty field was read, false otherwise.
+	 * @throws ParsingException If the reader failed.
+	 */
+	public boolean nextOptionalField() throws ParsingException {
+		return nextField() && fieldLength > 0;
+	}
+
+	/**
+	 * Skips whatever is left of the current line and moves on to the next.
+	 * @throws ParsingException If the reader failed.
+	 */
+	public void endLine() throws ParsingException {
+		while (!lineEnded) {
+			int c = read();
+			if (c == '\n' || c == '\r' || c == END) {
+				consumeLineBreak(c);
+			}
+		}
+		lineEnded = false;
+	}
+
+	/**
+	 * Gets the length of the current field.
+	 * @return The number of characters in the current field.
+	 */
+	public int getFieldLength() {
+		return fieldLength;
+	}
+
+	/**
+	 * Converts the current field to an int.
+	 * @return The value of the current field.
+	 * @throws ParsingException If the field isn't a whole number.
+	 */
+	public int fieldAsInt() throws ParsingException {
+		long value = fieldAsLong();
+		if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+			throw error(String.format(NUMBER_ERROR_MSG, fieldToString()));
+		}
+		return (int) value;
+	}
+
+	/**
+	 * Converts the current field to a long.
+	 * @return The value of the current field.
+	 * @throws ParsingException If the field isn't a whole number.
+	 */
+	public long fieldAsLong() throws ParsingException {
+		int i = 0;
+		boolean negative = false;
+		if (fieldLength > 0 && (field[0] == '-' || field[0] == '+')) {
+			negative = field[0] == '-';
+			i++;
+		}
+		if (i == fieldLength) {
+			throw error(String.format(NUMBER_ERROR_MSG, fieldToString()));
+		}
+		long value = 0;
+		for (; i < fieldLength; i++) {
+			int digit = field[i] - '0';
+			//Stop before the value could overflow(no map needs numbers this big).
+			if (digit < 0 || digit > 9 || value > (Long.MAX_VALUE - digit) / 10) {
+				throw error(String.format(NUMBER_ERROR_MSG, fieldToString()));
+			}
+			value = value * 10 + digit;
+		}
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Checks if the current field is a word, ignoring case.
+	 * @param word The word(in lower case) to compare with.
+	 * @return True if the field is the word, false otherwise.
+	 */
+	public boolean fieldEquals(String word) {
+		if (word.length() != fieldLength) {
+			return false;
+		}
+		for (int i = 0; i < fieldLength; i++) {
+			if (Character.toLowerCase(field[i]) != word.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Finds which of a list of words the current field is, ignoring case.
+	 * @param words The words(in lower case) to compare with.
+	 * @return The index of the matching word, or END if there's no match.
+	 */
+	public int matchField(String[] words) {
+		for (int i = 0; i < words.length; i++) {
+			if (fieldEquals(words[i])) {
+				return i;
+			}
+		}
+		return END;
+	}
+
+	/**
+	 * Creates a string of the current field
+	 * (for fields that are kept as text such as hints).
+	 * @return The current field as a string.
+	 */
+	public String fieldToString() {
+		return new String(field, 0, fieldLength);
+	}
+
+	/**
+	 * Creates a parsing exception for an error at the current field,
+	 * with the line and column of the field.
+	 * @param errorMsg What went wrong.
+	 * @return The exception to throw.
+	 */
+	public ParsingException error(String errorMsg) {
+		return new ParsingException(String.format(POSITION_FORMAT, errorMsg, fieldLine, fieldColumn));
+	}
+
+	/**
+	 * Creates a parsing exception for an error at a column of the current line.
+	 * @param errorMsg What went wrong.
+	 * @param errorColumn The column(from 1) the error is at.
+	 * @return The exception to throw.
+	 */
+	public ParsingException errorAt(String errorMsg, int errorColumn) {
+		return new ParsingException(String.format(POSITION_FORMAT, errorMsg, line, errorColumn));
+	}
+
+	/**
+	 * Gets the line(from 1) being read.
+	 * @return The current line number.
+	 */
+	public int getLine() {
+		return line;
+	}
+
+	/**
+	 * Closes the reader.
+	 */
+	public void close() {
+		try {
+			in.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Marks the current line as ended after reading the character that
+	 * ended it, treating \r\n as a single line break.
+	 * @param c The character that ended the line(or END).
+	 * @throws ParsingException If the reader failed.
+	 */
+	private void consumeLineBreak(int c) throws ParsingException {
+		if (c == '\r' && peek() == '\n') {
+			read();
+		}
+		lineEnded = true;
+		if (c != END) {
+			line++;
+			column = 1;
+		}
+	}
+
+	/**
+	 * Reads the next character.
+	 * @return The next character, or END at the end of the file.
+	 * @throws ParsingException If the reader failed.
+	 */
+	private int read() throws ParsingException {
+		if (bufferPos == bufferEnd && !fillBuffer()) {
+			return END;
+		}
+		column++;
+		return buffer[bufferPos++];
+	}
+
+	/**
+	 * Gets the next character without reading it.
+	 * @return The next character, or END at the end of the file.
+	 * @throws ParsingException If the reader failed.
+	 */
+	private int peek() throws ParsingException {
+		if (bufferPos == bufferEnd && !fillBuffer()) {
+			return END;
+		}
+		return buffer[bufferPos];
+	}
+
+	/**
+	 * Reads the next block of characters into the buffer.
+	 * @return True if anything was read, false at the end of the file.
+	 * @throws ParsingException If the reader failed.
+	 */
+	private boolean fillBuffer() throws ParsingException {
+		try {
+			int numRead = in.read(buffer, 0, buffer.length);
+			//Readers can return 0 characters, keep trying until they don't.
+			while (numRead == 0) {
+				numRead = in.read(buffer, 0, buffer.length);
+			}
+			bufferPos = 0;
+			bufferEnd = Math.max(numRead, 0);
+			return numRead > 0;
+		} catch (IOException e) {
+			throw new ParsingException(String.format(READ_ERROR_MSG, e.getMessage()));
+		}
+	}
+}
@@ -0,0 +1,148 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javafx.scene.image.Image;
+
+/**
+ * What a map's camera could see at one moment: the images at each grid
+ * coordinate in view(the cell with the entities on top).
+ * A map view never changes after it's captured, so a map can be updated
+ * on one thread while the last view captured from it is rendered on another.
+ * @author Josiah Richards
+ * @version 1.0
+ */
+public class MapView {
+
+	//The images at a coordinate with nothing to draw.
+	private static final Image[] NO_IMAGES = new Image[0];
+
+	//The top left grid coordinate in view.
+	private final int topLeftX;
+	private final int topLeftY;
+	//The size of the view in cells.
+	private final int width;
+	private final int height;
+	//The images at each coordinate in view in the order they're drawn,
+	//indexed by (viewY * width + viewX).
+	private final Image[][] images;
+
+	/**
+	 * Creates a map view.
+	 * @param topLeftX The top left x grid coordinate in view.
+	 * @param topLeftY The top left y grid coordinate in view.
+	 * @param width The width of the view in cells.
+	 * @param height The height of the view in cells.
+	 * @param images The images at each coordinate in view.
+	 */
+	private MapView(int topLeftX, int topLeftY, int width, int height, Image[][] images) {
+		this.topLeftX = topLeftX;
+		this.topLeftY = topLeftY;
+		this.width = width;
+		this.height = height;
+		this.images = images;
+	}
+
+	/**
+	 * Captures what a map's camera can see.
+	 * Must be called on the thread that updates the map.
+	 * @param map The map.
+	 * @return The view of the map.
+	 */
+	public static MapView capture(Map map) {
+		Camera camera = map.getCamera();
+		int topLeftX = camera.getTopLeft().getX();
+		int topLeftY = camera.getTopLeft().getY();
+		int width = camera.getSize().getX();
+		int height = camera.getSize().getY();
+		Image[][] images = new Image[width * height][];
+		//Reused for collecting the images at each coordinate.
+		List<Image> imagesAt = new ArrayList<Image>();
+
+		for (int viewY = 0; viewY < height; viewY++) {
+			for (int viewX = 0; viewX < width; viewX++) {
+				int x = topLeftX + viewX;
+				int y = topLeftY + viewY;
+				imagesAt.clear();
+				if (x >= 0 && y >= 0 && x < map.getWidth() && y < map.getHeight()) {
+					Cell cell = map.getCellAt(x, y);
+					if (cell != null && cell.getImage() != null) {
+						imagesAt.add(cell.getImage());
+					}
+					List<Entity> entities = map.getEntitiesAt(x, y);
+					for (int i = 0; i < entities.size(); i++) {
+						Image image = entities.get(i).getImage();
+						if (image != null) {
+							imagesAt.add(image);
+						}
+					}
+				}
+				images[viewY * width + viewX] = imagesAt.isEmpty() ? NO_IMAGES
+												: imagesAt.toArray(new Image[imagesAt.size()]);
+			}
+		}
+		return new MapView(topLeftX, topLeftY, width, height, images);
+	}
+
+	/**
+	 * Checks if another view shows the same part of the map
+	 * (so only the coordinates that look different need repainting).
+	 * @param other The other view, may be null.
+	 * @return True if both views have the same position and size, false otherwise.
+	 */
+	public boolean isSameArea(MapView other) {
+		return other != null && other.topLeftX == topLeftX && other.topLeftY == topLeftY
+				&& other.width == width && other.height == height;
+	}
+
+	/**
+	 * Checks if a coordinate looks the same in another view of the same area.
+	 * @param other The other view.
+	 * @param viewIndex The index of the coordinate in view(viewY * width + viewX).
+	 * @return True if the same images are drawn there, false otherwise.
+	 */
+	public boolean looksSameAt(MapView other, int viewIndex) {
+		return Arrays.equals(images[viewIndex], other.images[viewIndex]);
+	}
+
+	/**
+	 * Gets the images at a coordinate in view in the order they're drawn.
+	 * The array mustn't be changed.
+	 * @param viewIndex The index of the coordinate in view(viewY * width + viewX).
+	 * @return The images, empty if there's nothing there.
+	 */
+	public Image[] getImagesAt(int viewIndex) {
+		return images[viewIndex];
+	}
+
+	/**
+	 * Gets the top left x grid coordinate in view.
+	 * @return The x coordinate.
+	 */
+	public int getTopLeftX() {
+		return topLeftX;
+	}
+
+	/**
+	 * Gets the top left y grid coordinate in view.
+	 * @return The y coordinate.
+	 */
+	public int getTopLeftY() {
+		return topLeftY;
+	}
+
+	/**
+	 * Gets the width of the view.
+	 * @return The width in cells.
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Gets the height of the view.
+	 * @return The height in cells.
+	 */
+	public int getHeight() {
+		return height;
+	}
+}
@@ -1,18 +1,25 @@
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 
 /**
  * Class for saving a map to a Map save file.
+ * The map is streamed out through a buffered writer in a single pass
+ * over the grid(plus the cells with meta info).
  * @author Josiah Richards
- * @version 1.0
+ * @version 2.3
  */
 public class MapWriter {
 
+	//The size of the write buffer.
+	private static final int BUFFER_SIZE = 64 * 1024;
+
 	/**
 	 * Saves all the necessary information about a map to
-	 * a given save file. 
+	 * a given save file.
 	 * Sets the spawn location to the position of the player.
 	 * @param saveFile The file to save to.
 	 * @param map The map to save.
@@ -21,65 +28,108 @@ public class MapWriter {
 	public static void saveMapToFile(File saveFile, Map map) throws IOException
 	{
 		//Create the save file
-		FileWriter writer = new FileWriter(saveFile);
-		
+		Writer writer = new BufferedWriter(new FileWriter(saveFile), BUFFER_SIZE);
+		try {
+			writeMap(writer, map);
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Writes a map in the text format.
+	 * The writer is left open.
+	 * @param writer The writer to write to.
+	 * @param map The map to write.
+	 * @throws IOException If writing fails.
+	 */
+	public static void writeMap(Writer writer, Map map) throws IOException {
 		//Write map dimensions
 		Vector2 dimensions = map.getGridDimensions();
 		writer.write(dimensions.toString());
 		writer.write(GlobalInfo.NEW_LINE);
-		
-		String cellMetaInfos = "";
-		
+
+		//The cells with meta info, written after the grid.
+		ArrayList<Cell> cellsWithMetaInfo = new ArrayList<Cell>();
+
 		//Write cells by looping through the map grid
 		for (int y = 0; y < dimensions.getY(); y++) {
-			for (int x = 0; x < dimensions.getX(); x++) {
+			//Rows can be shorter than the map(no cells at the end),
+			//the text format can only leave cells out at the end of a row.
+			int rowLength = dimensions.getX();
+			while (rowLength > 0 && map.getCellAt(rowLength - 1, y) == null) {
+				rowLength--;
+			}
+			for (int x = 0; x < rowLength; x++) {
 				Cell cell = map.getCellAt(x, y);
+				if (cell == null) {
+					writer.write(Ground.SYMBOL);
+					continue;
+				}
 				writer.write(cell.getSymbol());
-				//If theres meta info for this cell add it to the cell meta infos
-				//string for later
-				String cellMetaInfo = cell.getMetaInfo();
-				if (cellMetaInfo != null) {
-					cellMetaInfos += cellMetaInfo;
-					cellMetaInfos += GlobalInfo.NEW_LINE;
+				//Shared cells(ground, walls e.c.t.) never have meta info.
+				if (!cell.isShareable()) {
+					cellsWithMetaInfo.add(cell);
 				}
 			}
 			writer.write(GlobalInfo.NEW_LINE);
 		}
 		//Write meta infos of cells
-		writer.write(cellMetaInfos);
-		
+		for (Cell cell : cellsWithMetaInfo) {
+			writeMetaInfo(writer, cell.getMetaInfo());
+		}
+
 		//Write meta info of entities
-		ArrayList<Entity> entities = map.getEntities();
-		for (Entity entity : entities) {
-			//If theres meta info for this entity, write it
-			String entityMetaInfo = entity.getMetaInfo();
-			if (entityMetaInfo != null){
-				writer.write(entityMetaInfo);
-				writer.write(GlobalInfo.NEW_LINE);
-			}
+		for (Entity entity : map.getEntities()) {
+			writeMetaInfo(writer, entity.getMetaInfo());
+		}
+
+		//Without a player, keep the spawn location and starting inventory
+		//(e.g. converting a level layout).
+		if (map.getPlayer() == null) {
+			writer.write(String.format("%s,%s", map.getSpawnLocation().toString(), Map.START_META_KEYWORD));
+			writer.write(GlobalInfo.NEW_LINE);
+			writeMetaInfo(writer, map.getStartInventory().getMetaInfo());
+		}
+
+		//Write the tick and seed if the map has been played(so journaled moves
+		//and the run can be replayed on top of the save, see MoveJournal and InputLog).
+		if (map.getTick() > 0) {
+			writer.write(String.format("0,0,%s,%d", Map.TICK_META_KEYWORD, map.getTick()));
+			writer.write(GlobalInfo.NEW_LINE);
+			writer.write(String.format("0,0,%s,%d", Map.SEED_META_KEYWORD, map.getSeed()));
+			writer.write(GlobalInfo.NEW_LINE);
 		}
-		
+
 		//Finally write the last time
 		long lastTime = map.getLastTime();
 		writer.write(String.format("0,0,%s,%d", Map.LAST_TIME_META_KEYWORD, lastTime));
-		
-		writer.close();
 	}
-	
+
+	/**
+	 * Writes a line of meta info if there is any.
+	 * @param writer The writer to write to.
+	 * @param metaInfo The meta info, nothing is written if it's null.
+	 * @throws IOException If writing fails.
+	 */
+	private static void writeMetaInfo(Writer writer, String metaInfo) throws IOException {
+		if (metaInfo != null) {
+			writer.write(metaInfo);
+			writer.write(GlobalInfo.NEW_LINE);
+		}
+	}
+
 	/**
 	 * Saves all the necessary information about a map to
-	 * a given save file. 
+	 * a given save file.
+	 * The map is written to a temporary file first which then replaces
+	 * the save file, so the old save is kept if saving fails part way through.
 	 * @param saveFileLoc The file to save to.
 	 * @param map The map to save.
 	 * @throws IOException If the save file is a folder.
 	 */
 	public static void saveMapToFile(String saveFileLoc, Map map) throws IOException {
-		File saveFile = new File(saveFileLoc);
-		//Overwrite by deleting any existing file
-		if(saveFile.exists()) {
-			saveFile.delete();
-		}
-		saveMapToFile(saveFile, map);
+		FileManager.writeAndReplaceFile(saveFileLoc, tempFile -> saveMapToFile(tempFile, map));
 	}
-	
+
 }
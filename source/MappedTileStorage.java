@@ -0,0 +1,70 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Stores the tiles of a map as a memory mapped region of a map file,
+ * 1 byte per grid coordinate.
+ * Only the pages of the file that are actually looked at are read into memory
+ * (by the operating system), so very large maps can be opened without reading
+ * all their tiles first.
+ * The file is mapped read only, when a tile is changed the page of tiles
+ * around it is copied into memory and changed there, so changes are only seen
+ * by this map and are never written back to the file.
+ * @author Josiah Richards
+ * @version 1.0
+ */
+public class MappedTileStorage implements TileStorage {
+
+	//Pages of changed tiles are PAGE_SIZE tiles(PAGE_SIZE = 1 << PAGE_SHIFT).
+	private static final int PAGE_SHIFT = 12;
+	private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+	private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+	//The mapped tiles.
+	private MappedByteBuffer tiles;
+	//The number of tiles.
+	private int size;
+	//The copied pages of tiles that have been changed(by page index),
+	//null for pages that are still only in the file.
+	private byte[][] changedPages;
+
+	/**
+	 * Maps the tiles from a region of a file.
+	 * The mapping stays valid after the channel is closed.
+	 * @param channel The channel of the file holding the tiles.
+	 * @param position Where in the file the tiles start.
+	 * @param size The number of grid coordinates.
+	 * @throws IOException If the file couldn't be mapped.
+	 */
+	public MappedTileStorage(FileChannel channel, long position, int size) throws IOException {
+		tiles = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+		this.size = size;
+		changedPages = new byte[(size + PAGE_MASK) >> PAGE_SHIFT][];
+	}
+
+	@Override
+	public int getTile(int index) {
+		byte[] page = changedPages[index >> PAGE_SHIFT];
+		if (page != null) {
+			return page[index & PAGE_MASK] & 0xFF;
+		}
+		return tiles.get(index) & 0xFF;
+	}
+
+	@Override
+	public void setTile(int index, int tile) {
+		int pageIndex = index >> PAGE_SHIFT;
+		byte[] page = changedPages[pageIndex];
+		//Copy the page out of the file the first time it's changed.
+		if (page == null) {
+			int pageStart = pageIndex << PAGE_SHIFT;
+			page = new byte[Math.min(PAGE_SIZE, size - pageStart)];
+			for (int i = 0; i < page.length; i++) {
+				page[i] = tiles.get(pageStart + i);
+			}
+			changedPages[pageIndex] = page;
+		}
+		page[index & PAGE_MASK] = (byte) tile;
+	}
+}
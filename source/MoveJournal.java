@@ -0,0 +1,374 @@
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+
+/**
+ * An append only journal of the moves made on a map since it was last saved,
+ * kept next to the save file so the game can be saved after every move
+ * without rewriting the whole map.
+ * Continuing a level loads the save and replays the moves in the journal on top of it
+ * (enemies use the map's seeded random numbers so they move the same way again).
+ * When the journal gets long it's compacted in the background: the save is
+ * replaced by the save with the journal's moves played and the journal starts again.
+ * A journal file is:
+ * - The magic bytes "SJMJ" and a version byte.
+ * - The tick of the save it follows on from and the seed of the map's random numbers.
+ * - Each move: the player's move(a byte, see PLAYER_MOVES) and the time
+ *   taken since the last move.
+ * Numbers are written with VarIntUtils.
+ * A journal that doesn't follow on from its save(e.g. the game stopped between
+ * replacing the save and starting the journal again) is ignored.
+ * A level played from the start doesn't touch the save or journal until the
+ * first move is made, so just opening a level never replaces a save.
+ * @author Josiah Richards
+ * @version 1.2
+ */
+public class MoveJournal {
+
+	//The bytes every journal file starts with.
+	private static final byte[] MAGIC = {'S', 'J', 'M', 'J'};
+	//The version of the format written, newer versions are ignored.
+	private static final int VERSION = 1;
+	//How many moves can be journaled before the journal is compacted.
+	private static final int MAX_MOVES = 1024;
+	//The player's moves, written as their index.
+	private static final Direction[] PLAYER_MOVES = {Direction.DIR_NONE, Direction.DIR_UP,
+			Direction.DIR_DOWN, Direction.DIR_LEFT, Direction.DIR_RIGHT};
+	//Returned by replay when the journal doesn't follow on from the map.
+	private static final int NOT_REPLAYED = -1;
+
+	//The save file the journal follows on from.
+	private String saveFileLoc;
+	//The journal file.
+	private String journalFileLoc;
+	//The seed of the map's random numbers.
+	private long seed;
+	//How many moves are in the journal.
+	private int numMoves;
+	//The time(in milliseconds) on the map at the last move.
+	private long lastTime;
+	//The layout to replace the save with when the first move is made,
+	//null once the save has been started(or if the save was continued).
+	private String layoutFileLoc = null;
+	//The tick of the map when the level was started.
+	private long startTick;
+
+	/**
+	 * Creates a journal for a map.
+	 * @param saveFileLoc The save file the journal follows on from.
+	 * @param journalFileLoc The journal file.
+	 * @param map The map being journaled.
+	 * @param numMoves How many moves are already in the journal.
+	 */
+	private MoveJournal(String saveFileLoc, String journalFileLoc, Map map, int numMoves) {
+		this.saveFileLoc = saveFileLoc;
+		this.journalFileLoc = journalFileLoc;
+		this.seed = map.getSeed();
+		this.numMoves = numMoves;
+		this.lastTime = map.getLastTime();
+	}
+
+	/**
+	 * Starts journaling a level being played from the start, the save is replaced
+	 * by the level's layout in the background when the first move is made.
+	 * @param saveFileLoc The save file.
+	 * @param journalFileLoc The journal file.
+	 * @param layoutFileLoc The layout file the map was loaded from.
+	 * @param map The map loaded from the layout(with the player spawned).
+	 * @return The journal.
+	 */
+	public static MoveJournal startLevel(String saveFileLoc, String journalFileLoc,
+											String layoutFileLoc, Map map) {
+		MoveJournal journal = new MoveJournal(saveFileLoc, journalFileLoc, map, 0);
+		journal.layoutFileLoc = layoutFileLoc;
+		journal.startTick = map.getTick();
+		return journal;
+	}
+
+	/**
+	 * Continues journaling a map loaded from its save, first replaying
+	 * the moves in the journal(if it follows on from the save).
+	 * Pending saves must have finished and the map shouldn't have a level
+	 * listener(the moves didn't win or lose the level when they were made).
+	 * @param saveFileLoc The save file the map was loaded from.
+	 * @param journalFileLoc The journal file.
+	 * @param map The map loaded from the save(with the player spawned).
+	 * @return The journal.
+	 */
+	public static MoveJournal continueSave(String saveFileLoc, String journalFileLoc, Map map) {
+		int numMoves;
+		try {
+			numMoves = replay(journalFileLoc, map, true);
+		} catch (IOException e) {
+			e.printStackTrace();
+			numMoves = NOT_REPLAYED;
+		}
+		if (numMoves == NOT_REPLAYED) {
+			//The save is everything there is, start the journal again from it.
+			MoveJournal journal = new MoveJournal(saveFileLoc, journalFileLoc, map, 0);
+			journal.restartJournal(map.getTick());
+			return journal;
+		}
+		return new MoveJournal(saveFileLoc, journalFileLoc, map, numMoves);
+	}
+
+	/**
+	 * Adds a move to the journal in the background, compacting the journal
+	 * if it's got too long.
+	 * @param playerMove The direction the player moved(DIR_NONE if they didn't).
+	 * @param time The time(in milliseconds) on the map after the move.
+	 */
+	public void recordMove(Direction playerMove, long time) {
+		startSaveIfNeeded();
+		ByteArrayOutputStream moveBytes = new ByteArrayOutputStream();
+		DataOutputStream data = new DataOutputStream(moveBytes);
+		try {
+			data.writeByte(getMoveCode(playerMove));
+			VarIntUtils.writeVarLong(data, Math.max(0L, time - lastTime));
+		} catch (IOException e) {
+			//Can't happen writing to memory.
+			throw new IllegalStateException(e);
+		}
+		lastTime = time;
+		byte[] move = moveBytes.toByteArray();
+		SaveService.runInBackground(journalFileLoc, () -> {
+			FileOutputStream out = new FileOutputStream(journalFileLoc, true);
+			try {
+				out.write(move);
+			} finally {
+				out.close();
+			}
+		});
+
+		numMoves++;
+		if (numMoves >= MAX_MOVES) {
+			SaveService.runInBackground(saveFileLoc, () -> compact(saveFileLoc, journalFileLoc));
+			numMoves = 0;
+		}
+	}
+
+	/**
+	 * Saves the whole map and starts the journal again in the background
+	 * (e.g. when leaving the level).
+	 * If no moves have been made since the level was started nothing is saved,
+	 * so any save there already is stays.
+	 * The map mustn't be changed after this is called.
+	 * @param map The map to save.
+	 */
+	public void saveMap(Map map) {
+		if (layoutFileLoc != null) {
+			return;
+		}
+		SaveService.saveMap(saveFileLoc, map);
+		restartJournal(map.getTick());
+		numMoves = 0;
+		lastTime = map.getLastTime();
+	}
+
+	/**
+	 * Deletes the save and the journal in the background
+	 * (e.g. when the level has been completed).
+	 */
+	public void delete() {
+		SaveService.deleteSave(saveFileLoc);
+		SaveService.deleteSave(journalFileLoc);
+	}
+
+	/**
+	 * Replaces the save with the level's layout and starts the journal from it
+	 * in the background, if the level was started and that hasn't been done yet.
+	 */
+	private void startSaveIfNeeded() {
+		if (layoutFileLoc != null) {
+			SaveService.copyToSave(saveFileLoc, layoutFileLoc);
+			restartJournal(startTick);
+			layoutFileLoc = null;
+		}
+	}
+
+	/**
+	 * Starts the journal again in the background, following on from the save
+	 * at a tick.
+	 * @param tick The tick of the save.
+	 */
+	private void restartJournal(long tick) {
+		SaveService.runInBackground(journalFileLoc, () -> writeHeader(journalFileLoc, tick, seed));
+	}
+
+	/**
+	 * Replays the moves in a journal on a map loaded from the journal's save.
+	 * @param journalFileLoc The journal file.
+	 * @param map The map(with the player spawned).
+	 * @param cutOffPartialMove If a move that was only partly written(the game stopped
+	 * 			while writing it) should be cut off the end of the journal in the background.
+	 * @return The number of moves replayed, or NOT_REPLAYED if the journal
+	 * 			doesn't follow on from the map.
+	 * @throws IOException If the journal couldn't be read.
+	 */
+	private static int replay(String journalFileLoc, Map map, boolean cutOffPartialMove)
+			throws IOException {
+		File journalFile = new File(journalFileLoc);
+		if (!journalFile.exists()) {
+			return NOT_REPLAYED;
+		}
+		//Journals are never long so read it all at once.
+		byte[] journalBytes = Files.readAllBytes(journalFile.toPath());
+		ByteArrayInputStream bytesIn = new ByteArrayInputStream(journalBytes);
+		DataInputStream data = new DataInputStream(bytesIn);
+		if (!readHeader(data, map)) {
+			return NOT_REPLAYED;
+		}
+
+		int numMoves = 0;
+		long time = map.getLastTime();
+		//The length of the journal up to the end of the last whole move.
+		int wholeLength = journalBytes.length - bytesIn.available();
+		int moveCode = data.read();
+		while (moveCode >= 0 && moveCode < PLAYER_MOVES.length) {
+			long timeTaken;
+			try {
+				timeTaken = VarIntUtils.readVarLong(data);
+			} catch (EOFException e) {
+				break;
+			}
+			playMove(map, PLAYER_MOVES[moveCode]);
+			time += timeTaken;
+			numMoves++;
+			wholeLength = journalBytes.length - bytesIn.available();
+			moveCode = data.read();
+		}
+		map.setLastTime(time);
+
+		//Cut off anything after the last whole move so new moves
+		//follow on from the moves replayed.
+		if (cutOffPartialMove && wholeLength < journalBytes.length) {
+			long length = wholeLength;
+			SaveService.runInBackground(journalFileLoc, () -> {
+				RandomAccessFile journal = new RandomAccessFile(journalFileLoc, "rw");
+				try {
+					journal.setLength(length);
+				} finally {
+					journal.close();
+				}
+			});
+		}
+		return numMoves;
+	}
+
+	/**
+	 * Plays a move the same way the level does, the player moves and then the enemies.
+	 * @param map The map to play the move on.
+	 * @param playerMove The direction the player moved(DIR_NONE if they didn't).
+	 */
+	public static void playMove(Map map, Direction playerMove) {
+		if (!playerMove.equals(Direction.DIR_NONE) && map.getPlayer() != null) {
+			map.getPlayer().move(new Direction(playerMove));
+		}
+		map.updateEnemies();
+	}
+
+	/**
+	 * Reads the header of a journal, setting the map's seed if the journal
+	 * follows on from it.
+	 * @param data The journal.
+	 * @param map The map loaded from the journal's save.
+	 * @return True if the journal follows on from the map, false otherwise.
+	 * @throws IOException If the journal couldn't be read.
+	 */
+	private static boolean readHeader(DataInputStream data, Map map) throws IOException {
+		try {
+			for (int i = 0; i < MAGIC.length; i++) {
+				if (data.readByte() != MAGIC[i]) {
+					return false;
+				}
+			}
+			if (data.readUnsignedByte() > VERSION) {
+				return false;
+			}
+			long tick = VarIntUtils.readVarLong(data);
+			long seed = data.readLong();
+			if (tick != map.getTick()) {
+				return false;
+			}
+			map.setSeed(seed);
+			return true;
+		} catch (EOFException e) {
+			//The game stopped while the journal was being started.
+			return false;
+		}
+	}
+
+	/**
+	 * Empties a journal, writing just its header.
+	 * @param journalFileLoc The journal file.
+	 * @param tick The tick of the save the journal follows on from.
+	 * @param seed The seed of the map's random numbers.
+	 * @throws IOException If the journal couldn't be written.
+	 */
+	private static void writeHeader(String journalFileLoc, long tick, long seed) throws IOException {
+		DataOutputStream data = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(journalFileLoc)));
+		try {
+			data.write(MAGIC);
+			data.writeByte(VERSION);
+			VarIntUtils.writeVarLong(data, tick);
+			data.writeLong(seed);
+		} finally {
+			data.close();
+		}
+	}
+
+	/**
+	 * Replaces a save with the save with its journal's moves played,
+	 * and starts the journal again(done in the background).
+	 * @param saveFileLoc The save file.
+	 * @param journalFileLoc The journal file.
+	 * @throws IOException If the save or journal couldn't be read or written.
+	 * @throws ParsingException If the save couldn't be parsed.
+	 */
+	private static void compact(String saveFileLoc, String journalFileLoc)
+			throws IOException, ParsingException {
+		//Load the save the same way the level does when continuing.
+		Map map = MapReader.readMapFile(saveFileLoc);
+		map.respawnPlayer();
+		if (replay(journalFileLoc, map, false) == NOT_REPLAYED) {
+			return;
+		}
+		SaveService.writeSave(saveFileLoc, map);
+		writeHeader(journalFileLoc, map.getTick(), map.getSeed());
+	}
+
+	/**
+	 * Gets the player's move a code stands for.
+	 * @param moveCode The move's code.
+	 * @return The direction the player moved, or null if the code isn't a move.
+	 */
+	public static Direction getPlayerMove(int moveCode) {
+		if (moveCode < 0 || moveCode >= PLAYER_MOVES.length) {
+			return null;
+		}
+		return PLAYER_MOVES[moveCode];
+	}
+
+	/**
+	 * Gets the code a player's move is written as.
+	 * @param playerMove The direction the player moved.
+	 * @return The move's code(0 for no move).
+	 */
+	public static int getMoveCode(Direction playerMove) {
+		for (int i = 0; i < PLAYER_MOVES.length; i++) {
+			if (PLAYER_MOVES[i].equals(playerMove)) {
+				return i;
+			}
+		}
+		return 0;
+	}
+}
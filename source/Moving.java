@@ -1,9 +1,9 @@
-import java.util.ArrayList;
+import java.util.List;
 
 /**
  * An entity that can move.
  * @author Josiah Richards
- * @version 1.2
+ * @version 1.3
  */
 public class Moving extends Entity {
 
@@ -47,6 +47,14 @@ public class Moving extends Entity {
 		this(0, 0, map);
 	}
 	
+	/**
+	 * Gets the direction this entity is currently facing.
+	 * @return The direction this is facing.
+	 */
+	public Direction getCurrentDirection() {
+		return currentDirection;
+	}
+	
 	/**
 	 * Checks if this is allowed to walk on an object on the grid.
 	 * @param gridObject The OnGrid object in question.
@@ -65,34 +73,45 @@ public class Moving extends Entity {
 	 * Checks if this can walk on a given coordinate.
 	 * That is if it can walk on the cell and all the entities
 	 * at that coordinate.
-	 * @param point
+	 * @param point The grid coordinate to check.
 	 * @return True if this is allowed to walk on the coordinate, false otherwise.
 	 */
 	public boolean canWalkOn(Vector2 point) {
+		return canWalkOn(point.getX(), point.getY());
+	}
+	
+	/**
+	 * Checks if this can walk on a given coordinate.
+	 * That is if it can walk on the cell and all the entities
+	 * at that coordinate.
+	 * @param x The x grid coordinate to check.
+	 * @param y The y grid coordinate to check.
+	 * @return True if this is allowed to walk on the coordinate, false otherwise.
+	 */
+	public boolean canWalkOn(int x, int y) {
 		//If the point is outside the map, return false
-		if (point.getX() < 0 || point.getX() >= map.getGridDimensions().getX()) {
+		if (x < 0 || x >= map.getWidth()) {
 			return false;
 		}
-		if (point.getY() < 0 || point.getY() >= map.getGridDimensions().getY()) {
+		if (y < 0 || y >= map.getHeight()) {
 			return false;
 		}
 		
 		//If we can't walk on the cell at the new position, return false.
-		Cell obstacleCell = map.getCellAt(point);
+		Cell obstacleCell = map.getCellAt(x, y);
 		if(obstacleCell != null) {
 			if(!canWalkOn(obstacleCell)) {
 				return false;
 			}
 		}
 		
-		//Get all the entities at the new position(excluding this),
+		//Check all the entities at the new position(excluding this),
 		//if we can't walk on ANY of those entities, return false.
-		ArrayList<Entity> obstacleEntities = map.getEntitiesAt(point, this);
-		if(obstacleEntities != null) {
-			for (Entity entity : obstacleEntities) {
-				if (!canWalkOn(entity)) {
-					return false;
-				}
+		List<Entity> obstacleEntities = map.getEntitiesAt(x, y);
+		for (int i = 0; i < obstacleEntities.size(); i++) {
+			Entity entity = obstacleEntities.get(i);
+			if (entity != this && !canWalkOn(entity)) {
+				return false;
 			}
 		}
 		
@@ -135,7 +154,8 @@ public class Moving extends Entity {
 	 */
 	public void move(Direction direction) {
 		if (canMove(direction)) {
-			gridCoords.addXY(direction);
+			map.moveEntity(this, gridCoords.getX() + direction.getX(),
+							gridCoords.getY() + direction.getY());
 			
 			map.triggerStepOns(this, direction);
 		}
@@ -95,11 +95,22 @@ public class OnGrid extends ImageBox {
 	
 	@Override
 	public void render(GraphicsContext graphicsContext) {
+		renderAt(graphicsContext, gridCoords.getX(), gridCoords.getY());
+	}
+	
+	/**
+	 * Renders this object as if it was at a given grid coordinate.
+	 * (Used for rendering cells that are shared between grid coordinates).
+	 * @param graphicsContext The GraphicsContext to render onto.
+	 * @param gridX The x grid coordinate to render at.
+	 * @param gridY The y grid coordinate to render at.
+	 */
+	public void renderAt(GraphicsContext graphicsContext, int gridX, int gridY) {
 		//Calculate the x position to render at.
 		//This is the x offset  + ((x - camera top left x) * the size of 1 cell)
 		renderPos.setX(map.getRenderOffset().getX() 
 						+ (
-							(gridCoords.getX() - map.getCamera().getTopLeft().getX())
+							(gridX - map.getCamera().getTopLeft().getX())
 								* Map.GRID_DIMENSION
 						  )
 		);
@@ -107,7 +118,7 @@ public class OnGrid extends ImageBox {
 		//This is the y offset  + ((y - camera top left y) * the size of 1 cell)
 		renderPos.setY(map.getRenderOffset().getY() 
 				+ (
-					(gridCoords.getY() - map.getCamera().getTopLeft().getY())
+					(gridY - map.getCamera().getTopLeft().getY())
 						* Map.GRID_DIMENSION
 				  )
 		);
@@ -0,0 +1,186 @@
+import java.util.Arrays;
+
+/**
+ * Stores an int for each grid coordinate in an area of a grid(e.g. the area a
+ * search is allowed to cover), so that the area can be kept small however big the grid is.
+ * The area is split into square pages of the grid, and pages are only created once
+ * a value is set in them, so the memory used depends on which coordinates are used
+ * rather than the size of the area. Coordinates that haven't been set(or are outside
+ * of the area) have the default value.
+ * Pages are kept when the grid is cleared and used again, so after the first few
+ * uses clearing or moving the area creates no garbage.
+ * @author Josiah Richards
+ * @version 1.0
+ */
+public class PagedIntGrid {
+
+	//Pages are PAGE_SIZE x PAGE_SIZE grid coordinates(PAGE_SIZE = 1 << PAGE_SHIFT).
+	private static final int PAGE_SHIFT = 4;
+	private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+	private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+	//The value of coordinates that haven't been set.
+	private int defaultValue;
+	//The area the grid covers(inclusive).
+	private int minX;
+	private int minY;
+	private int maxX;
+	private int maxY;
+	//The page coordinates of the top left page of the area.
+	private int firstPageX;
+	private int firstPageY;
+	//How many pages across the largest area is
+	//(an area that isn't lined up with the pages can go into an extra page).
+	private int pagesAcross;
+	//The pages of the area by page index, null if nothing's been set in the page.
+	private int[][] pages;
+	//The page indices of the pages being used.
+	private int[] usedPages;
+	private int numUsedPages;
+	//Pages that were cleared, ready to be used again.
+	private int[][] freePages;
+	private int numFreePages;
+
+	/**
+	 * Creates an empty grid covering an area in the top left of the grid.
+	 * @param areaWidth The width of the largest area the grid will cover.
+	 * @param areaHeight The height of the largest area the grid will cover.
+	 * @param defaultValue The value of coordinates that haven't been set.
+	 */
+	public PagedIntGrid(int areaWidth, int areaHeight, int defaultValue) {
+		this.defaultValue = defaultValue;
+		pagesAcross = ((areaWidth + PAGE_MASK) >> PAGE_SHIFT) + 1;
+		int pagesDown = ((areaHeight + PAGE_MASK) >> PAGE_SHIFT) + 1;
+		int maxPages = pagesAcross * pagesDown;
+		pages = new int[maxPages][];
+		usedPages = new int[maxPages];
+		numUsedPages = 0;
+		freePages = new int[maxPages][];
+		numFreePages = 0;
+		setArea(0, 0, areaWidth - 1, areaHeight - 1);
+	}
+
+	/**
+	 * Empties the grid and moves the area it covers.
+	 * The area can't be bigger than the area the grid was created with.
+	 * @param minX The left of the area.
+	 * @param minY The top of the area.
+	 * @param maxX The right of the area(inclusive).
+	 * @param maxY The bottom of the area(inclusive).
+	 */
+	public void setArea(int minX, int minY, int maxX, int maxY) {
+		clear();
+		this.minX = minX;
+		this.minY = minY;
+		this.maxX = maxX;
+		this.maxY = maxY;
+		firstPageX = minX >> PAGE_SHIFT;
+		firstPageY = minY >> PAGE_SHIFT;
+	}
+
+	/**
+	 * Sets every coordinate back to the default value.
+	 * Only touches the pages that have been used.
+	 */
+	public void clear() {
+		for (int i = 0; i < numUsedPages; i++) {
+			int pageIndex = usedPages[i];
+			freePages[numFreePages++] = pages[pageIndex];
+			pages[pageIndex] = null;
+		}
+		numUsedPages = 0;
+	}
+
+	/**
+	 * Checks if a grid coordinate is inside the area the grid covers.
+	 * @param x The x coordinate to check.
+	 * @param y The y coordinate to check.
+	 * @return True if the coordinate is inside the area, false otherwise.
+	 */
+	public boolean isInArea(int x, int y) {
+		return x >= minX && y >= minY && x <= maxX && y <= maxY;
+	}
+
+	/**
+	 * Gets the value at a grid coordinate.
+	 * @param x The x coordinate.
+	 * @param y The y coordinate.
+	 * @return The value, or the default value if it hasn't been set
+	 * 			or the coordinate is outside of the area.
+	 */
+	public int get(int x, int y) {
+		if (isInArea(x, y)) {
+			int[] page = pages[getPageIndex(x, y)];
+			if (page != null) {
+				return page[getIndexInPage(x, y)];
+			}
+		}
+		return defaultValue;
+	}
+
+	/**
+	 * Sets the value at a grid coordinate inside the area.
+	 * @param x The x coordinate.
+	 * @param y The y coordinate.
+	 * @param value The new value.
+	 * @throws IndexOutOfBoundsException If the coordinate is outside of the area.
+	 */
+	public void set(int x, int y, int value) {
+		if (!isInArea(x, y)) {
+			throw new IndexOutOfBoundsException("(" + x + ", " + y + ") is outside of the grid's area");
+		}
+		int pageIndex = getPageIndex(x, y);
+		int[] page = pages[pageIndex];
+		if (page == null) {
+			//Create the page the first time something is set in it.
+			page = createPage();
+			pages[pageIndex] = page;
+			usedPages[numUsedPages++] = pageIndex;
+		}
+		page[getIndexInPage(x, y)] = value;
+	}
+
+	/**
+	 * Gets how many pages are being used.
+	 * @return The number of pages with values set in them.
+	 */
+	public int getNumPages() {
+		return numUsedPages;
+	}
+
+	/**
+	 * Gets the index of the page holding a grid coordinate in the area.
+	 * @param x The x coordinate.
+	 * @param y The y coordinate.
+	 * @return The page index.
+	 */
+	private int getPageIndex(int x, int y) {
+		return ((y >> PAGE_SHIFT) - firstPageY) * pagesAcross + ((x >> PAGE_SHIFT) - firstPageX);
+	}
+
+	/**
+	 * Gets the index of a grid coordinate's value within its page.
+	 * @param x The x coordinate.
+	 * @param y The y coordinate.
+	 * @return The index within the page.
+	 */
+	private int getIndexInPage(int x, int y) {
+		return ((y & PAGE_MASK) << PAGE_SHIFT) + (x & PAGE_MASK);
+	}
+
+	/**
+	 * Gets an empty page(of default values), using a cleared page if there is one.
+	 * @return The empty page.
+	 */
+	private int[] createPage() {
+		int[] page;
+		if (numFreePages > 0) {
+			page = freePages[--numFreePages];
+			freePages[numFreePages] = null;
+		} else {
+			page = new int[PAGE_SIZE * PAGE_SIZE];
+		}
+		Arrays.fill(page, defaultValue);
+		return page;
+	}
+}
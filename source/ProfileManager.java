@@ -1,115 +1,256 @@
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.util.Scanner;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.regex.Pattern;
 
 /**
  * Manages the reading and writing of profiles.
+ * Profiles are kept in the game's record store(see RecordStore) under
+ * "profile/ID", as the name, highest level and image on a line each.
+ * Each profile still has a folder for its saves and runs.
+ * The names of profiles are cached as they're loaded and saved, so showing
+ * the names of lots of profiles(e.g. on a leaderboard) doesn't read each one.
  * @author Josiah Richards
- * @version 1.1
+ * @version 2.1
  */
 public class ProfileManager {
-	
+
 	//Error message
 	private static final String PROFILE_READ_ERROR_MSG = "Unable to load profile info file.";
+	//The prefix of the keys profiles are stored under.
+	private static final String PROFILE_KEY_PREFIX = "profile/";
+	//The lines of a stored profile.
+	private static final Pattern LINE_SEPARATOR = Pattern.compile("\\R");
+	private static final int NUM_PROFILE_LINES = 3;
 	
+	//The names of the profiles that have been loaded or saved by ID,
+	//kept up to date when profiles are saved or deleted.
+	private static final HashMap<Integer, String> PROFILE_NAMES = new HashMap<Integer, String>();
+
 	/**
 	 * Loads all the profiles as a list of Profiles.
-	 * @return A list of all the profiles.
+	 * @return A list of all the profiles, in order of ID.
 	 * @throws ParsingException If there was an error parsing one of the profiles' information.
 	 */
 	public static ArrayList<Profile> loadAllProfiles() throws ParsingException {
 		ArrayList<Profile> loadedProfiles = new ArrayList<Profile>();
-		
-		//Loop through all the folders in the profiles folder.
-		File[] profileFolders = FileManager.getProfileFolders();
-		for (int i = 0; i < profileFolders.length; i++) {
-			//Try loading the profile information file(info.dat) in this folder.
-			try {
-				Profile loadedProfile = loadProfile(Integer.parseInt(profileFolders[i].getName()));
-				//Add the successfully parsed profile to the list.
-				loadedProfiles.add(loadedProfile);
-			} catch (Exception e) {
-				//Failed to parse the profile.
-				throw new ParsingException(PROFILE_READ_ERROR_MSG);
+		try {
+			RecordStore store = RecordStore.getGameStore();
+			//Read all the profiles in one go.
+			HashMap<String, String> storedProfiles = store.getAll(PROFILE_KEY_PREFIX);
+			for (java.util.Map.Entry<String, String> storedProfile : storedProfiles.entrySet()) {
+				try {
+					int profileID = Integer.parseInt(storedProfile.getKey().substring(PROFILE_KEY_PREFIX.length()));
+					loadedProfiles.add(parseProfile(storedProfile.getValue(), profileID));
+				} catch (NumberFormatException e) {
+					//Not a profile.
+				}
 			}
+			loadedProfiles.sort(Comparator.comparingInt(Profile::getID));
+		} catch (IOException e) {
+			throw new ParsingException(PROFILE_READ_ERROR_MSG);
 		}
-		
 		return loadedProfiles;
 	}
-	
+
 	/**
 	 * Loads a profile of a given profile ID.
 	 * @param profileID The ID of the profile to load.
 	 * @return A Profile object containing the data read.
-	 * @throws ParsingException If the profile information file couldn't be parsed.
+	 * @throws ParsingException If the profile doesn't exist or couldn't be parsed.
 	 */
 	public static Profile loadProfile(int profileID) throws ParsingException {
-		
 		try {
-			String profileInfoPath = FileManager.getProfileInfoFile(profileID);
-			File file = new File (profileInfoPath);
-			Scanner in = new Scanner(file); 
-	
-			
-			String readName = in.nextLine();
-			int readHighestLevel = Integer.parseInt(in.nextLine());
-			String readImage = in.nextLine();
-			in.close();
-			
-			Profile readProfile = new Profile(profileID);
-			readProfile.setName(readName);
-			readProfile.setHighestLevel(readHighestLevel);
-			readProfile.setImage(readImage);
-			
-			return readProfile;
-		} catch (Exception e) {
+			return readProfile(RecordStore.getGameStore(), profileID);
+		} catch (IOException e) {
 			throw new ParsingException(PROFILE_READ_ERROR_MSG);
 		}
 	}
+
+	/**
+	 * Gets the name of a profile, only reading the profile
+	 * the first time its name is needed.
+	 * @param profileID The ID of the profile.
+	 * @return The profile's name, null if the profile doesn't exist.
+	 */
+	public static String getProfileName(int profileID) {
+		synchronized (PROFILE_NAMES) {
+			String name = PROFILE_NAMES.get(profileID);
+			if (name != null) {
+				return name;
+			}
+		}
+		try {
+			return loadProfile(profileID).getName();
+		} catch (ParsingException e) {
+			return null;
+		}
+	}
 	
 	/**
-	 * Saves a profile object to file.
+	 * Checks if a profile exists.
+	 * @param profileID The ID of the profile.
+	 * @return True if the profile exists, false otherwise(or if the profiles couldn't be read).
+	 */
+	public static boolean profileExists(int profileID) {
+		try {
+			return profileExists(RecordStore.getGameStore(), profileID);
+		} catch (IOException e) {
+			return false;
+		}
+	}
+	
+	/**
+	 * Checks if a profile is in a store.
+	 * @param store The store.
+	 * @param profileID The ID of the profile.
+	 * @return True if the profile exists, false otherwise.
+	 */
+	static boolean profileExists(RecordStore store, int profileID) {
+		return store.contains(PROFILE_KEY_PREFIX + profileID);
+	}
+
+	/**
+	 * Saves a profile object.
 	 * @param profile The profile to save.
-	 * @throws IOException If somehow the profileFile path we generate is a folder.
+	 * @throws IOException If the profile couldn't be saved.
 	 */
 	public static void saveProfile(Profile profile) throws IOException {
-		//Get the folder for the ID of this profile
-		String profileInfoPath = FileManager.getProfileInfoFile(profile.getID());
 		//Get the saves folder
 		String profileSavesFolder = FileManager.getProfileSavesFolder(profile.getID());
 		//Create the profile folder and saves folder if needed
 		FileManager.createDirIfNeeded(profileSavesFolder, true);
-		
-		File profileFile = new File(profileInfoPath);
-		//Overwrite existing profile file.
-		if (profileFile.exists()) {
-			profileFile.delete();
-		}
-		//Write the profile data
-		FileWriter writer = new FileWriter(profileFile);
-		writer.write(profile.getName());
-		writer.write(GlobalInfo.NEW_LINE);
-		writer.write(""+profile.getHighestLevel()); //convert to string
-		writer.write(GlobalInfo.NEW_LINE);
-		writer.write(profile.getImage());
-		writer.write(GlobalInfo.NEW_LINE);
-		
-		writer.close();
+		writeProfile(RecordStore.getGameStore(), profile);
 	}
-	
+
 	/**
 	 * Creates a new default profile with the next available profile ID.
-	 * This new profile is automatically saved to file after being created.
+	 * This new profile is automatically saved after being created.
 	 * @return The newly created profile.
-	 * @throws IOException If somehow the profileFile path we generate is a folder.
+	 * @throws IOException If the profile couldn't be saved.
 	 */
 	public static Profile createNewProfile() throws IOException {
-		int newID = FileManager.getNextAvailableProfileID();
+		int newID = getNextAvailableProfileID(RecordStore.getGameStore());
 		Profile profile = new Profile(newID);
 		saveProfile(profile);
 		return profile;
 	}
+
+	/**
+	 * Deletes a profile along with its folder(its saves and runs).
+	 * Saves still being written should have finished.
+	 * @param profileID The ID of the profile to delete.
+	 * @throws IOException If the profile couldn't be deleted.
+	 */
+	public static void deleteProfile(int profileID) throws IOException {
+		String profileFolderPath = FileManager.getProfileFolderPath(profileID);
+		File profileFolder = new File(profileFolderPath);
+		if (profileFolder.exists()) {
+			FileManager.deleteFolder(profileFolder);
+		}
+		RecordStore store = RecordStore.getGameStore();
+		store.delete(PROFILE_KEY_PREFIX + profileID);
+		synchronized (PROFILE_NAMES) {
+			PROFILE_NAMES.remove(profileID);
+		}
+		SaveService.forgetSaves(profileFolderPath);
+	}
+
+	/**
+	 * Writes a profile to a store.
+	 * @param store The store.
+	 * @param profile The profile.
+	 * @throws IOException If the profile couldn't be written.
+	 */
+	static void writeProfile(RecordStore store, Profile profile) throws IOException {
+		store.put(PROFILE_KEY_PREFIX + profile.getID(), profile.getName() + GlobalInfo.NEW_LINE
+				+ profile.getHighestLevel() + GlobalInfo.NEW_LINE + profile.getImage());
+		cacheName(profile);
+	}
+
+	/**
+	 * Reads a profile from a store.
+	 * @param store The store.
+	 * @param profileID The ID of the profile.
+	 * @return The profile.
+	 * @throws ParsingException If the profile doesn't exist or couldn't be parsed.
+	 * @throws IOException If the profile couldn't be read.
+	 */
+	private static Profile readProfile(RecordStore store, int profileID) throws ParsingException, IOException {
+		return parseProfile(store.get(PROFILE_KEY_PREFIX + profileID), profileID);
+	}
+	
+	/**
+	 * Parses a stored profile.
+	 * @param stored The stored profile(null if it doesn't exist).
+	 * @param profileID The ID of the profile.
+	 * @return The profile.
+	 * @throws ParsingException If the profile doesn't exist or couldn't be parsed.
+	 */
+	private static Profile parseProfile(String stored, int profileID) throws ParsingException {
+		if (stored == null) {
+			throw new ParsingException(PROFILE_READ_ERROR_MSG);
+		}
+		String[] lines = LINE_SEPARATOR.split(stored, NUM_PROFILE_LINES);
+		if (lines.length < NUM_PROFILE_LINES) {
+			throw new ParsingException(PROFILE_READ_ERROR_MSG);
+		}
+		try {
+			Profile readProfile = new Profile(profileID);
+			readProfile.setName(lines[0]);
+			readProfile.setHighestLevel(Integer.parseInt(lines[1]));
+			readProfile.setImage(lines[2]);
+			cacheName(readProfile);
+			return readProfile;
+		} catch (NumberFormatException e) {
+			throw new ParsingException(PROFILE_READ_ERROR_MSG);
+		}
+	}
+
+	/**
+	 * Remembers the name of a profile.
+	 * @param profile The profile.
+	 */
+	private static void cacheName(Profile profile) {
+		synchronized (PROFILE_NAMES) {
+			PROFILE_NAMES.put(profile.getID(), profile.getName());
+		}
+	}
 	
+	/**
+	 * Gets the IDs of all the profiles in a store.
+	 * @param store The store.
+	 * @return The IDs in order.
+	 */
+	private static ArrayList<Integer> getProfileIDs(RecordStore store) {
+		ArrayList<Integer> profileIDs = new ArrayList<Integer>();
+		for (String key : store.getKeys(PROFILE_KEY_PREFIX)) {
+			try {
+				profileIDs.add(Integer.parseInt(key.substring(PROFILE_KEY_PREFIX.length())));
+			} catch (NumberFormatException e) {
+				//Not a profile.
+			}
+		}
+		//The keys are sorted as text.
+		profileIDs.sort(null);
+		return profileIDs;
+	}
+
+	/**
+	 * Gets the next available profile ID(after the highest ID in use,
+	 * skipping any left over profile folders).
+	 * @param store The store.
+	 * @return The next available profile ID.
+	 */
+	private static int getNextAvailableProfileID(RecordStore store) {
+		ArrayList<Integer> profileIDs = getProfileIDs(store);
+		int curProfileID = profileIDs.isEmpty() ? 1 : profileIDs.get(profileIDs.size() - 1) + 1;
+		while (FileManager.fileExists(FileManager.getProfileFolderPath(curProfileID))) {
+			curProfileID++;
+		}
+		return curProfileID;
+	}
+
 }
@@ -38,11 +38,11 @@ public class PushBlock extends Entity {
 			//Potenital position is our position + direction player pushed us.
 			Vector2 potentialPos = gridCoords.addXYCreateNew(fromDir);
 			//Can't push over entities
-			if (map.getEntitiesAt(potentialPos).size() == 0) {
+			if (map.getEntitiesAt(potentialPos).isEmpty()) {
 				//If pushed over ground, just get pushed.
 				if (map.getCellAt(potentialPos) instanceof Ground) {
 					sendPlayerBack = false;
-					gridCoords = potentialPos;
+					map.moveEntity(this, potentialPos);
 				//If pushed into water, transfom.
 				} else if (map.getCellAt(potentialPos) instanceof Water) {
 					sendPlayerBack = false;
@@ -0,0 +1,118 @@
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Scanner;
+
+/**
+ * Moves the records the game kept in text files before it had a record store
+ * (the info file in each profile folder and the high scores in each map's info file)
+ * into the game's record store, once.
+ * The old files are left where they are, the store is used from then on.
+ * @author Josiah Richards
+ * @version 1.0
+ */
+public class RecordMigrator {
+
+	//The key recording that the old files have been moved into the store.
+	private static final String MIGRATED_KEY = "meta/migrated";
+	//The delimiter between the profile ID and score in old map info files.
+	private static final String SCORE_DELIMITER = ",";
+
+	/**
+	 * Moves the old files into a store if they haven't been already.
+	 * Profiles or scores that can't be read are skipped.
+	 * @param store The store.
+	 * @throws IOException If the store couldn't be written.
+	 */
+	public static void migrateIfNeeded(RecordStore store) throws IOException {
+		if (store.contains(MIGRATED_KEY)) {
+			return;
+		}
+		migrateProfiles(store);
+		migrateScores(store);
+		store.put(MIGRATED_KEY, "1");
+	}
+
+	/**
+	 * Moves every profile folder's info file into a store.
+	 * @param store The store.
+	 * @throws IOException If the store couldn't be written.
+	 */
+	private static void migrateProfiles(RecordStore store) throws IOException {
+		File[] profileFolders = FileManager.getProfileFolders();
+		if (profileFolders == null) {
+			return;
+		}
+		for (File profileFolder : profileFolders) {
+			try {
+				int profileID = Integer.parseInt(profileFolder.getName());
+				Profile profile = readProfileFile(profileID);
+				if (profile != null) {
+					ProfileManager.writeProfile(store, profile);
+				}
+			} catch (NumberFormatException e) {
+				//Not a profile folder.
+			}
+		}
+	}
+
+	/**
+	 * Reads a profile from its old info file(the name, highest level and image on a line each).
+	 * @param profileID The profile's ID.
+	 * @return The profile, null if it couldn't be read.
+	 */
+	private static Profile readProfileFile(int profileID) {
+		try {
+			Scanner in = new Scanner(new File(FileManager.getProfileInfoFile(profileID)));
+			try {
+				Profile profile = new Profile(profileID);
+				profile.setName(in.nextLine());
+				profile.setHighestLevel(Integer.parseInt(in.nextLine()));
+				profile.setImage(in.nextLine());
+				return profile;
+			} finally {
+				in.close();
+			}
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Moves the high scores in every map's info file into a store.
+	 * The maps are numbered from 1 so stop at the first missing one.
+	 * @param store The store.
+	 * @throws IOException If the store couldn't be written.
+	 */
+	private static void migrateScores(RecordStore store) throws IOException {
+		int mapID = 1;
+		while (FileManager.fileExists(FileManager.getMapInfoFile(mapID))) {
+			MapInfo mapInfo = new MapInfo(mapID);
+			try {
+				Scanner in = new Scanner(new File(FileManager.getMapInfoFile(mapID)));
+				try {
+					//Skip the map name.
+					if (in.hasNextLine()) {
+						in.nextLine();
+					}
+					while (in.hasNextLine()) {
+						String[] args = in.nextLine().split(SCORE_DELIMITER);
+						if (args.length == 2) {
+							try {
+								mapInfo.tryAddScore(Integer.parseInt(args[0]), Long.parseLong(args[1]));
+							} catch (NumberFormatException e) {
+								//Skip scores that can't be read.
+							}
+						}
+					}
+				} finally {
+					in.close();
+				}
+			} catch (FileNotFoundException e) {
+				e.printStackTrace();
+			}
+			mapInfo.writeScores(store);
+			mapID++;
+		}
+	}
+}
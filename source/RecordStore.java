@@ -0,0 +1,480 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+/**
+ * A small embedded key value store kept in a single append only file
+ * (used for profiles, high scores and save info instead of a text file each).
+ * Every change is appended to the end of the file and an index in memory
+ * remembers where the latest value of each key is, so reading a value is a single
+ * read and nothing is ever rewritten in place. When most of the file is old
+ * values it's compacted: the values still in use are written to a new file
+ * which replaces the old one in a single step.
+ * A store file is:
+ * - The magic bytes "SJRS" and a version byte.
+ * - Each change: its type(a put or a delete), the key, the value(puts only)
+ *   and a CRC32 of the change, so a change the game stopped while writing
+ *   is cut off when the store is opened.
+ * Keys and values are UTF-8 text written with their length(see VarIntUtils).
+ * @author Josiah Richards
+ * @version 1.0
+ */
+public class RecordStore {
+
+	//The bytes every store file starts with.
+	private static final byte[] MAGIC = {'S', 'J', 'R', 'S'};
+	//The version of the format written, newer versions are rejected.
+	private static final int VERSION = 1;
+	//The types of change.
+	private static final int PUT = 1;
+	private static final int DELETE = 2;
+	//The store is compacted once there's at least this much(in bytes) of old values
+	//and they take up more of the file than the values in use.
+	private static final long MIN_COMPACT_SIZE = 64 * 1024;
+	//The size of the buffer for reading the whole store.
+	private static final int BUFFER_SIZE = 64 * 1024;
+	//Error messages.
+	private static final String HEADER_ERROR_MSG = "%s is not a record store.";
+	private static final String VERSION_ERROR_MSG = "Unsupported record store version %d (newest supported is %d).";
+
+	//The store the game keeps its records in, null until it's first needed.
+	private static RecordStore gameStore;
+
+	/**
+	 * Where the latest value of a key is in the store file.
+	 */
+	private static class Location {
+		//Where the value starts.
+		private final long valueOffset;
+		//The length of the value in bytes.
+		private final int valueLength;
+		//The length of the whole change the value was written in.
+		private final int recordLength;
+
+		/**
+		 * Creates a location.
+		 * @param valueOffset Where the value starts.
+		 * @param valueLength The length of the value.
+		 * @param recordLength The length of the change.
+		 */
+		private Location(long valueOffset, int valueLength, int recordLength) {
+			this.valueOffset = valueOffset;
+			this.valueLength = valueLength;
+			this.recordLength = recordLength;
+		}
+	}
+
+	//The store file.
+	private String storeFileLoc;
+	//The store file, open for reading and appending.
+	private RandomAccessFile file;
+	//Where the latest value of each key is.
+	private HashMap<String, Location> index;
+	//How many bytes of the file are changes that have since been replaced.
+	private long oldBytes;
+
+	/**
+	 * Creates a store for a file.
+	 * @param storeFileLoc The store file.
+	 */
+	private RecordStore(String storeFileLoc) {
+		this.storeFileLoc = storeFileLoc;
+		index = new HashMap<String, Location>();
+		oldBytes = 0;
+	}
+
+	/**
+	 * Opens a store, creating it if it doesn't exist.
+	 * @param storeFileLoc The store file.
+	 * @return The store.
+	 * @throws IOException If the store couldn't be read or created.
+	 * @throws ParsingException If the file isn't a store.
+	 */
+	public static RecordStore open(String storeFileLoc) throws IOException, ParsingException {
+		RecordStore store = new RecordStore(storeFileLoc);
+		File storeFile = new File(storeFileLoc);
+		if (!storeFile.exists()) {
+			writeHeader(storeFile);
+		}
+		long validLength = store.loadIndex(storeFile);
+		store.file = new RandomAccessFile(storeFile, "rw");
+		if (validLength < store.file.length()) {
+			//Cut off a change the game stopped while writing.
+			store.file.setLength(validLength);
+		}
+		return store;
+	}
+
+	/**
+	 * Gets the store the game keeps its records in, opening it the first time
+	 * (and moving records kept in older files into it, see RecordMigrator).
+	 * @return The store.
+	 * @throws IOException If the store couldn't be read or created.
+	 */
+	public static synchronized RecordStore getGameStore() throws IOException {
+		if (gameStore == null) {
+			RecordStore store;
+			try {
+				store = open(FileManager.getRecordStoreFile());
+			} catch (ParsingException e) {
+				throw new IOException(e.getMessage(), e);
+			}
+			try {
+				RecordMigrator.migrateIfNeeded(store);
+			} catch (IOException e) {
+				store.close();
+				throw e;
+			}
+			gameStore = store;
+		}
+		return gameStore;
+	}
+
+	/**
+	 * Gets the value of a key.
+	 * @param key The key.
+	 * @return The value, null if the key isn't in the store.
+	 * @throws IOException If the value couldn't be read.
+	 */
+	public synchronized String get(String key) throws IOException {
+		Location location = index.get(key);
+		if (location == null) {
+			return null;
+		}
+		byte[] value = new byte[location.valueLength];
+		file.seek(location.valueOffset);
+		file.readFully(value);
+		return new String(value, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Gets the values of every key that starts with a prefix, reading
+	 * through the file once(faster than getting each key when there are lots).
+	 * @param prefix The prefix.
+	 * @return The values by key.
+	 * @throws IOException If the values couldn't be read.
+	 */
+	public synchronized HashMap<String, String> getAll(String prefix) throws IOException {
+		List<String> keys = getKeys(prefix);
+		//Read the values in the order they are in the file.
+		keys.sort(Comparator.comparingLong(key -> index.get(key).valueOffset));
+		HashMap<String, String> values = new HashMap<String, String>();
+		DataInputStream data = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(storeFileLoc), BUFFER_SIZE));
+		try {
+			long position = 0;
+			for (String key : keys) {
+				Location location = index.get(key);
+				data.skipNBytes(location.valueOffset - position);
+				byte[] value = new byte[location.valueLength];
+				data.readFully(value);
+				position = location.valueOffset + location.valueLength;
+				values.put(key, new String(value, StandardCharsets.UTF_8));
+			}
+		} finally {
+			data.close();
+		}
+		return values;
+	}
+
+	/**
+	 * Checks if a key is in the store.
+	 * @param key The key.
+	 * @return True if it has a value, false otherwise.
+	 */
+	public synchronized boolean contains(String key) {
+		return index.containsKey(key);
+	}
+
+	/**
+	 * Gets the keys that start with a prefix.
+	 * @param prefix The prefix.
+	 * @return The keys, sorted.
+	 */
+	public synchronized List<String> getKeys(String prefix) {
+		List<String> keys = new ArrayList<String>();
+		for (String key : index.keySet()) {
+			if (key.startsWith(prefix)) {
+				keys.add(key);
+			}
+		}
+		Collections.sort(keys);
+		return keys;
+	}
+
+	/**
+	 * Sets the value of a key.
+	 * @param key The key.
+	 * @param value The value.
+	 * @throws IOException If the change couldn't be written.
+	 */
+	public synchronized void put(String key, String value) throws IOException {
+		byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+		byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+		long recordOffset = file.length();
+		byte[] record = encodeRecord(PUT, keyBytes, valueBytes);
+		file.seek(recordOffset);
+		file.write(record);
+		//The value is just before the CRC at the end of the change.
+		long valueOffset = recordOffset + record.length - Integer.BYTES - valueBytes.length;
+		replaced(index.put(key, new Location(valueOffset, valueBytes.length, record.length)));
+		compactIfNeeded();
+	}
+
+	/**
+	 * Removes a key from the store.
+	 * @param key The key, nothing is written if it isn't in the store.
+	 * @throws IOException If the change couldn't be written.
+	 */
+	public synchronized void delete(String key) throws IOException {
+		Location location = index.remove(key);
+		if (location == null) {
+			return;
+		}
+		byte[] record = encodeRecord(DELETE, key.getBytes(StandardCharsets.UTF_8), null);
+		file.seek(file.length());
+		file.write(record);
+		//The delete itself is only needed until the store is compacted.
+		oldBytes += record.length;
+		replaced(location);
+		compactIfNeeded();
+	}
+
+	/**
+	 * Removes every key that starts with a prefix from the store.
+	 * @param prefix The prefix.
+	 * @throws IOException If the changes couldn't be written.
+	 */
+	public synchronized void deleteAll(String prefix) throws IOException {
+		for (String key : getKeys(prefix)) {
+			delete(key);
+		}
+	}
+
+	/**
+	 * Rewrites the store file with only the values in use.
+	 * @throws IOException If the store couldn't be rewritten(it's left as it was).
+	 */
+	public synchronized void compact() throws IOException {
+		File storeFile = new File(storeFileLoc);
+		File tempFile = new File(FileManager.getTempFilePath(storeFileLoc));
+		HashMap<String, Location> newIndex = new HashMap<String, Location>();
+		FileOutputStream out = new FileOutputStream(tempFile);
+		try {
+			DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+			data.write(MAGIC);
+			data.writeByte(VERSION);
+			long offset = MAGIC.length + 1;
+			for (String key : getKeys("")) {
+				byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+				byte[] valueBytes = get(key).getBytes(StandardCharsets.UTF_8);
+				byte[] record = encodeRecord(PUT, keyBytes, valueBytes);
+				data.write(record);
+				long valueOffset = offset + record.length - Integer.BYTES - valueBytes.length;
+				newIndex.put(key, new Location(valueOffset, valueBytes.length, record.length));
+				offset += record.length;
+			}
+			data.flush();
+			//Make sure the new store is on the disk before it replaces the old store.
+			out.getFD().sync();
+		} finally {
+			out.close();
+		}
+		file.close();
+		try {
+			FileManager.replaceFile(tempFile, storeFile);
+		} finally {
+			file = new RandomAccessFile(storeFile, "rw");
+		}
+		//Only use the new index if the new file replaced the old one.
+		index = newIndex;
+		oldBytes = 0;
+	}
+
+	/**
+	 * Closes the store file.
+	 * @throws IOException If the file couldn't be closed.
+	 */
+	public synchronized void close() throws IOException {
+		file.close();
+	}
+
+	/**
+	 * Records that a change has been replaced by a newer one.
+	 * @param location Where the replaced value was, null if there wasn't one.
+	 */
+	private void replaced(Location location) {
+		if (location != null) {
+			oldBytes += location.recordLength;
+		}
+	}
+
+	/**
+	 * Compacts the store if most of it is old values.
+	 * @throws IOException If the store couldn't be compacted.
+	 */
+	private void compactIfNeeded() throws IOException {
+		if (oldBytes >= MIN_COMPACT_SIZE && oldBytes * 2 > file.length()) {
+			compact();
+		}
+	}
+
+	/**
+	 * Reads every change in the store file to build the index.
+	 * @param storeFile The store file.
+	 * @return The length of the file up to the end of the last whole change.
+	 * @throws IOException If the file couldn't be read.
+	 * @throws ParsingException If the file isn't a store.
+	 */
+	private long loadIndex(File storeFile) throws IOException, ParsingException {
+		//The CRC of each change is worked out as it's read.
+		CheckedInputStream checkedIn = new CheckedInputStream(
+				new BufferedInputStream(new FileInputStream(storeFile), BUFFER_SIZE), new CRC32());
+		DataInputStream data = new DataInputStream(checkedIn);
+		try {
+			try {
+				for (int i = 0; i < MAGIC.length; i++) {
+					if (data.readByte() != MAGIC[i]) {
+						throw new ParsingException(String.format(HEADER_ERROR_MSG, storeFileLoc));
+					}
+				}
+				int version = data.readUnsignedByte();
+				if (version > VERSION) {
+					throw new ParsingException(String.format(VERSION_ERROR_MSG, version, VERSION));
+				}
+			} catch (EOFException e) {
+				throw new ParsingException(String.format(HEADER_ERROR_MSG, storeFileLoc));
+			}
+			long offset = MAGIC.length + 1;
+			checkedIn.getChecksum().reset();
+			int type = data.read();
+			while (type == PUT || type == DELETE) {
+				byte[] keyBytes;
+				byte[] valueBytes = null;
+				int crc;
+				int storedCRC;
+				try {
+					keyBytes = readBytes(data, storeFile.length());
+					if (type == PUT) {
+						valueBytes = readBytes(data, storeFile.length());
+					}
+					crc = (int) checkedIn.getChecksum().getValue();
+					storedCRC = data.readInt();
+				} catch (EOFException e) {
+					break;
+				}
+				if (crc != storedCRC) {
+					//Written part way, nothing after it can be trusted.
+					break;
+				}
+				String key = new String(keyBytes, StandardCharsets.UTF_8);
+				int recordLength = 1 + varIntSize(keyBytes.length) + keyBytes.length + Integer.BYTES;
+				if (type == PUT) {
+					recordLength += varIntSize(valueBytes.length) + valueBytes.length;
+					long valueOffset = offset + recordLength - Integer.BYTES - valueBytes.length;
+					replaced(index.put(key, new Location(valueOffset, valueBytes.length, recordLength)));
+				} else {
+					replaced(index.remove(key));
+					oldBytes += recordLength;
+				}
+				offset += recordLength;
+				checkedIn.getChecksum().reset();
+				type = data.read();
+			}
+			return offset;
+		} finally {
+			data.close();
+		}
+	}
+
+	/**
+	 * Gets how many bytes VarIntUtils writes a number that's never negative in.
+	 * @param value The number.
+	 * @return The number of bytes.
+	 */
+	private static int varIntSize(int value) {
+		int size = 1;
+		while ((value >>>= 7) != 0) {
+			size++;
+		}
+		return size;
+	}
+
+	/**
+	 * Reads bytes written with their length.
+	 * @param data The input.
+	 * @param maxLength The most bytes there could be(the length of the file).
+	 * @return The bytes.
+	 * @throws IOException If they couldn't be read.
+	 */
+	private static byte[] readBytes(DataInputStream data, long maxLength) throws IOException {
+		int length = VarIntUtils.readVarInt(data);
+		if (length < 0 || length > maxLength) {
+			//A length the game stopped while writing.
+			throw new EOFException();
+		}
+		byte[] bytes = new byte[length];
+		data.readFully(bytes);
+		return bytes;
+	}
+
+	/**
+	 * Writes a change with its CRC.
+	 * @param type PUT or DELETE.
+	 * @param keyBytes The key.
+	 * @param valueBytes The value(null for deletes).
+	 * @return The change as it's written to the store file.
+	 */
+	private static byte[] encodeRecord(int type, byte[] keyBytes, byte[] valueBytes) {
+		ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+		DataOutputStream data = new DataOutputStream(recordBytes);
+		try {
+			data.writeByte(type);
+			VarIntUtils.writeVarInt(data, keyBytes.length);
+			data.write(keyBytes);
+			if (valueBytes != null) {
+				VarIntUtils.writeVarInt(data, valueBytes.length);
+				data.write(valueBytes);
+			}
+			CRC32 crc = new CRC32();
+			crc.update(recordBytes.toByteArray());
+			data.writeInt((int) crc.getValue());
+		} catch (IOException e) {
+			//Can't happen writing to memory.
+			throw new IllegalStateException(e);
+		}
+		return recordBytes.toByteArray();
+	}
+
+	/**
+	 * Writes the header of an empty store.
+	 * @param storeFile The store file.
+	 * @throws IOException If it couldn't be written.
+	 */
+	private static void writeHeader(File storeFile) throws IOException {
+		FileManager.createDirIfNeeded(storeFile.getParent(), true);
+		DataOutputStream data = new DataOutputStream(new FileOutputStream(storeFile));
+		try {
+			data.write(MAGIC);
+			data.writeByte(VERSION);
+		} finally {
+			data.close();
+		}
+	}
+}
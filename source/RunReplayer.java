@@ -0,0 +1,269 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * Replays runs recorded by InputLog headless(without rendering or waiting between moves),
+ * as fast as the moves can be played, and reports how the run ended.
+ * Used to check high scores and to reproduce bugs exactly.
+ * Usage: RunReplayer runLog [layoutFile]
+ * (the layout file defaults to the layout of the level the run was played on).
+ * @author Josiah Richards
+ * @version 1.0
+ */
+public class RunReplayer {
+
+	private static final String USAGE_MSG = "Usage: RunReplayer runLog [layoutFile]";
+	//Error messages
+	private static final String HEADER_ERROR_MSG = "Not a run log file.";
+	private static final String VERSION_ERROR_MSG = "Unsupported run log version %d (newest supported is %d).";
+	private static final String MAP_CHANGED_ERROR_MSG = "The run was played on a different version of map %d.";
+	private static final String INPUT_ERROR_MSG = "Unknown input %d after %d ticks.";
+
+	/**
+	 * How a replayed run ended.
+	 */
+	public enum Outcome {
+		WON, LOST, UNFINISHED
+	}
+
+	/**
+	 * The state at the end of a replayed run.
+	 */
+	public static class RunResult implements LevelListener {
+
+		//How the run ended.
+		private Outcome outcome = Outcome.UNFINISHED;
+		//The map the run was replayed on.
+		private Map map;
+		//The ID of the map.
+		private int mapID;
+		//The time(in milliseconds) on the map at the end of the run.
+		private long time;
+		//How many inputs were replayed.
+		private int numInputs;
+		//How long(in nanoseconds) replaying took.
+		private long replayTime;
+
+		@Override
+		public void win() {
+			outcome = Outcome.WON;
+		}
+
+		@Override
+		public void lose() {
+			outcome = Outcome.LOST;
+		}
+
+		@Override
+		public void setCurHintText(String hintText) {
+		}
+
+		/**
+		 * Gets how the run ended.
+		 * @return Won, lost or unfinished(the log ends before the level did).
+		 */
+		public Outcome getOutcome() {
+			return outcome;
+		}
+
+		/**
+		 * Gets the map in the state it was at the end of the run.
+		 * @return The map.
+		 */
+		public Map getMap() {
+			return map;
+		}
+
+		/**
+		 * Gets the ID of the map the run was played on.
+		 * @return The map ID.
+		 */
+		public int getMapID() {
+			return mapID;
+		}
+
+		/**
+		 * Gets the time on the map at the end of the run(the score if it was won).
+		 * @return The time in milliseconds.
+		 */
+		public long getTime() {
+			return time;
+		}
+
+		/**
+		 * Gets how many ticks were played.
+		 * @return The number of ticks.
+		 */
+		public long getNumTicks() {
+			return map.getTick();
+		}
+
+		/**
+		 * Gets how many inputs were replayed.
+		 * @return The number of inputs.
+		 */
+		public int getNumInputs() {
+			return numInputs;
+		}
+
+		/**
+		 * Gets how long replaying the run took.
+		 * @return The time in nanoseconds.
+		 */
+		public long getReplayTime() {
+			return replayTime;
+		}
+
+		@Override
+		public String toString() {
+			String result = String.format("Map %d: %s after %d ticks(%d inputs), time %s", mapID,
+					outcome.toString().toLowerCase(), getNumTicks(), numInputs,
+					TimerFormatter.formatMilliseconds(time));
+			Player player = map.getPlayer();
+			if (player != null) {
+				result += GlobalInfo.NEW_LINE + String.format("Player at %s with %d tokens",
+						player.getGridCoords().toString(), player.getInventory().getNumTokens());
+			}
+			double replayMillis = replayTime / 1000000d;
+			result += GlobalInfo.NEW_LINE + String.format("Replayed in %.1f ms(%.0f ticks/s)", replayMillis,
+					getNumTicks() / Math.max(replayMillis / 1000d, 1e-9));
+			return result;
+		}
+	}
+
+	/**
+	 * Replays a run and prints how it ended.
+	 * @param args The run log and optionally the layout file of the map.
+	 */
+	public static void main(String[] args) {
+		if (args.length < 1 || args.length > 2) {
+			System.out.println(USAGE_MSG);
+			System.exit(1);
+		}
+		try {
+			RunResult result = args.length == 2 ? replay(args[0], args[1]) : replay(args[0]);
+			System.out.println(result);
+		} catch (ParsingException | IOException e) {
+			System.out.println("Failed to replay " + args[0] + ": " + e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Replays a run on the layout of the level it was played on.
+	 * @param runLogFile The run log.
+	 * @return How the run ended.
+	 * @throws ParsingException If the run log or map file couldn't be parsed.
+	 * @throws IOException If the run log or map file couldn't be read.
+	 */
+	public static RunResult replay(String runLogFile) throws ParsingException, IOException {
+		return replay(runLogFile, null);
+	}
+
+	/**
+	 * Replays a run on a layout.
+	 * @param runLogFile The run log.
+	 * @param layoutFile The layout file of the map(null for the level the run was played on).
+	 * @return How the run ended.
+	 * @throws ParsingException If the run log or map file couldn't be parsed,
+	 * 			or the map has changed since the run was played.
+	 * @throws IOException If the run log or map file couldn't be read.
+	 */
+	public static RunResult replay(String runLogFile, String layoutFile) throws ParsingException, IOException {
+		DataInputStream data = new DataInputStream(new BufferedInputStream(new FileInputStream(runLogFile)));
+		try {
+			//Read the header.
+			for (int i = 0; i < InputLog.MAGIC.length; i++) {
+				if (data.read() != InputLog.MAGIC[i]) {
+					throw new ParsingException(HEADER_ERROR_MSG);
+				}
+			}
+			int version = data.read();
+			if (version < 0) {
+				throw new ParsingException(HEADER_ERROR_MSG);
+			}
+			if (version > InputLog.VERSION) {
+				throw new ParsingException(String.format(VERSION_ERROR_MSG, version, InputLog.VERSION));
+			}
+			RunResult result = new RunResult();
+			result.mapID = VarIntUtils.readVarInt(data);
+			long mapHash = data.readLong();
+			long seed = data.readLong();
+			if (layoutFile == null) {
+				layoutFile = FileManager.getMapLayoutFile(result.mapID);
+			}
+			if (InputLog.hashMapFile(layoutFile) != mapHash) {
+				throw new ParsingException(String.format(MAP_CHANGED_ERROR_MSG, result.mapID));
+			}
+
+			//Set the map up the same way the level does.
+			long startTime = System.nanoTime();
+			Map map = MapReader.readMapFile(layoutFile);
+			map.setSeed(seed);
+			map.setLevelListener(result);
+			map.respawnPlayer();
+			result.map = map;
+
+			//Play each input until the run ends.
+			int code = data.read();
+			while (code >= 0 && result.outcome == Outcome.UNFINISHED) {
+				long timeTaken;
+				try {
+					timeTaken = VarIntUtils.readVarLong(data);
+				} catch (EOFException e) {
+					//The game stopped while writing the last input.
+					break;
+				}
+				result.time += timeTaken;
+				result.numInputs++;
+				if (code != InputLog.WAIT_CODE) {
+					Direction playerMove = MoveJournal.getPlayerMove(code);
+					if (playerMove == null) {
+						throw new ParsingException(String.format(INPUT_ERROR_MSG, code, map.getTick()));
+					}
+					playMove(map, playerMove, result);
+				}
+				code = data.read();
+			}
+			result.replayTime = System.nanoTime() - startTime;
+			return result;
+		} catch (EOFException e) {
+			throw new ParsingException(HEADER_ERROR_MSG);
+		} finally {
+			data.close();
+		}
+	}
+
+	/**
+	 * Checks a high score by replaying the run it was set in.
+	 * @param runLogFile The log of the run.
+	 * @param score The score(time in milliseconds) the run is meant to have got.
+	 * @return True if replaying the run wins the level with that score, false otherwise.
+	 */
+	public static boolean verifyScore(String runLogFile, long score) {
+		try {
+			RunResult result = replay(runLogFile);
+			return result.getOutcome() == Outcome.WON && result.getTime() == score;
+		} catch (ParsingException | IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Plays a move the same way the level does, stopping if the player's move ends the run.
+	 * @param map The map to play the move on.
+	 * @param playerMove The direction the player moved(DIR_NONE if they didn't).
+	 * @param result The run's result, told if the run ends.
+	 */
+	private static void playMove(Map map, Direction playerMove, RunResult result) {
+		if (!playerMove.equals(Direction.DIR_NONE)) {
+			map.getPlayer().move(new Direction(playerMove));
+		}
+		if (result.outcome == Outcome.UNFINISHED) {
+			map.updateEnemies();
+		}
+	}
+}
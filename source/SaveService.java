@@ -0,0 +1,270 @@
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Saves maps in the background so the UI doesn't have to wait for them.
+ * Saves(and deletes of saves) are done one at a time in the order they were asked for.
+ * Each save is written to a temporary file which then replaces the save file
+ * in a single step, so if the game stops part way through saving the previous
+ * save is still there.
+ * Which saves exist is kept in the game's record store(see RecordStore) under
+ * "save/saveFile", with the tick and time on the map when it was saved, so checking
+ * for a save doesn't have to look on the disk, and whether the last thing waiting to be
+ * done to a save file will leave it saved or deleted is kept so checking never waits.
+ * @author Josiah Richards
+ * @version 1.4
+ */
+public class SaveService {
+
+	/**
+	 * Something done to a save file in the background.
+	 */
+	public interface SaveTask {
+		/**
+		 * Does it.
+		 * @throws IOException If a file couldn't be read or written.
+		 * @throws ParsingException If a map file couldn't be parsed.
+		 */
+		void run() throws IOException, ParsingException;
+	}
+
+	//The thread saves are done on, a daemon thread so it never keeps the game
+	//open(call waitForPendingSaves before exiting to finish any saves).
+	private static final ExecutorService SAVE_EXECUTOR = Executors.newSingleThreadExecutor(task -> {
+		Thread saveThread = new Thread(task, "Map saver");
+		saveThread.setDaemon(true);
+		return saveThread;
+	});
+
+	/**
+	 * What's waiting to be done to a save file.
+	 */
+	private static class Pending {
+		//How many things are waiting to be done.
+		private int numPending = 0;
+		//If the save file will exist once they've been done, null if
+		//none of them save or delete it.
+		private Boolean willExist = null;
+	}
+
+	//What's waiting to be done for each save file.
+	private static final HashMap<String, Pending> PENDING_SAVES = new HashMap<String, Pending>();
+	//The prefix of the keys saves are recorded under.
+	private static final String SAVE_KEY_PREFIX = "save/";
+	//The format of a save's record where the first %d is the tick and the second the time.
+	private static final String SAVE_RECORD_FORMAT = "%d,%d";
+
+	/**
+	 * Saves a map to a save file in the background.
+	 * The map mustn't be changed after this is called(e.g. it's been left).
+	 * @param saveFileLoc The save file to save to.
+	 * @param map The map to save.
+	 * @return The save, which can be waited on.
+	 */
+	public static Future<?> saveMap(String saveFileLoc, Map map) {
+		return runInBackground(saveFileLoc, true, () -> writeSave(saveFileLoc, map));
+	}
+
+	/**
+	 * Replaces a save file with a copy of another map file in the background
+	 * (e.g. the level layout when starting a level).
+	 * @param saveFileLoc The save file to replace.
+	 * @param mapFileLoc The map file to copy.
+	 * @return The copy, which can be waited on.
+	 */
+	public static Future<?> copyToSave(String saveFileLoc, String mapFileLoc) {
+		return runInBackground(saveFileLoc, true, () -> {
+			FileManager.writeAndReplaceFile(saveFileLoc, tempFile -> Files.copy(new File(mapFileLoc).toPath(),
+					tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING));
+			//A copy hasn't been played.
+			recordSave(saveFileLoc, 0, 0);
+		});
+	}
+
+	/**
+	 * Deletes a save file in the background, after any saves to it
+	 * that are still waiting to be done.
+	 * @param saveFileLoc The save file to delete.
+	 * @return The delete, which can be waited on.
+	 */
+	public static Future<?> deleteSave(String saveFileLoc) {
+		return runInBackground(saveFileLoc, false, () -> {
+			File saveFile = new File(saveFileLoc);
+			if (saveFile.exists()) {
+				saveFile.delete();
+			}
+			RecordStore.getGameStore().delete(SAVE_KEY_PREFIX + saveFileLoc);
+		});
+	}
+
+	/**
+	 * Does something to a save file in the background, after everything
+	 * else that's waiting to be done to save files.
+	 * The task mustn't create or delete the save file(e.g. it appends to it).
+	 * @param saveFileLoc The save file it's done to.
+	 * @param task What to do.
+	 * @return The task, which can be waited on.
+	 */
+	public static Future<?> runInBackground(String saveFileLoc, SaveTask task) {
+		return runInBackground(saveFileLoc, null, task);
+	}
+
+	/**
+	 * Does something to a save file in the background, after everything
+	 * else that's waiting to be done to save files.
+	 * @param saveFileLoc The save file it's done to.
+	 * @param willExist If the save file exists after the task(null if the task doesn't change that).
+	 * @param task What to do.
+	 * @return The task, which can be waited on.
+	 */
+	private static Future<?> runInBackground(String saveFileLoc, Boolean willExist, SaveTask task) {
+		addPending(saveFileLoc, willExist);
+		return SAVE_EXECUTOR.submit(() -> {
+			try {
+				task.run();
+			} catch (IOException | ParsingException e) {
+				e.printStackTrace();
+			} finally {
+				removePending(saveFileLoc);
+			}
+		});
+	}
+
+	/**
+	 * Waits for every save and delete asked for so far to be done.
+	 */
+	public static void waitForPendingSaves() {
+		Future<?> lastTask = SAVE_EXECUTOR.submit(() -> { });
+		try {
+			lastTask.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Checks if there is a save file(or will be once the saves waiting
+	 * to be done have been done), without waiting for them.
+	 * @param saveFileLoc The save file to check.
+	 * @return True if the save file exists or is being saved, false otherwise.
+	 */
+	public static boolean saveExists(String saveFileLoc) {
+		synchronized (PENDING_SAVES) {
+			Pending pending = PENDING_SAVES.get(saveFileLoc);
+			if (pending != null && pending.willExist != null) {
+				//The last save or delete waiting to be done decides it.
+				return pending.willExist;
+			}
+		}
+		try {
+			if (RecordStore.getGameStore().contains(SAVE_KEY_PREFIX + saveFileLoc)) {
+				return true;
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		//Saves made before they were recorded.
+		return FileManager.fileExists(saveFileLoc);
+	}
+	
+	/**
+	 * Forgets every save in a folder(e.g. when a profile's folder is deleted).
+	 * Saves still being written should have finished.
+	 * @param folderPath The full path of the folder.
+	 * @throws IOException If the saves couldn't be forgotten.
+	 */
+	public static void forgetSaves(String folderPath) throws IOException {
+		RecordStore.getGameStore().deleteAll(SAVE_KEY_PREFIX + folderPath + "/");
+	}
+
+	/**
+	 * Checks if there are saves or deletes waiting to be done for a save file.
+	 * @param saveFileLoc The save file to check.
+	 * @return True if there is something waiting to be done, false otherwise.
+	 */
+	public static boolean isPending(String saveFileLoc) {
+		synchronized (PENDING_SAVES) {
+			return PENDING_SAVES.containsKey(saveFileLoc);
+		}
+	}
+
+	/**
+	 * Writes a map to a temporary file, makes sure it's on the disk
+	 * and then replaces the save file with it(on the calling thread).
+	 * @param saveFileLoc The save file to save to.
+	 * @param map The map to save.
+	 * @throws IOException If the save couldn't be written.
+	 */
+	public static void writeSave(String saveFileLoc, Map map) throws IOException {
+		FileManager.writeAndReplaceFile(saveFileLoc, tempFile -> {
+			FileOutputStream out = new FileOutputStream(tempFile);
+			try {
+				BufferedOutputStream bufferedOut = new BufferedOutputStream(out);
+				BinaryMapWriter.writeMap(bufferedOut, map);
+				bufferedOut.flush();
+				//Make sure the new save is on the disk before it replaces the old save.
+				out.getFD().sync();
+			} finally {
+				out.close();
+			}
+		});
+		recordSave(saveFileLoc, map.getTick(), map.getLastTime());
+	}
+	
+	/**
+	 * Records that a save exists.
+	 * @param saveFileLoc The save file.
+	 * @param tick The tick of the map saved.
+	 * @param time The time(in milliseconds) on the map saved.
+	 * @throws IOException If the record couldn't be written.
+	 */
+	private static void recordSave(String saveFileLoc, long tick, long time) throws IOException {
+		RecordStore.getGameStore().put(SAVE_KEY_PREFIX + saveFileLoc,
+										String.format(SAVE_RECORD_FORMAT, tick, time));
+	}
+
+	/**
+	 * Records that something is waiting to be done to a save file.
+	 * @param saveFileLoc The save file.
+	 * @param willExist If the save file exists after it's done(null if that doesn't change).
+	 */
+	private static void addPending(String saveFileLoc, Boolean willExist) {
+		synchronized (PENDING_SAVES) {
+			Pending pending = PENDING_SAVES.get(saveFileLoc);
+			if (pending == null) {
+				pending = new Pending();
+				PENDING_SAVES.put(saveFileLoc, pending);
+			}
+			pending.numPending++;
+			if (willExist != null) {
+				pending.willExist = willExist;
+			}
+		}
+	}
+
+	/**
+	 * Records that something waiting to be done to a save file is done.
+	 * @param saveFileLoc The save file.
+	 */
+	private static void removePending(String saveFileLoc) {
+		synchronized (PENDING_SAVES) {
+			Pending pending = PENDING_SAVES.get(saveFileLoc);
+			pending.numPending--;
+			if (pending.numPending == 0) {
+				//The record store is up to date now.
+				PENDING_SAVES.remove(saveFileLoc);
+			}
+		}
+	}
+}
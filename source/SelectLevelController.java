@@ -1,16 +1,22 @@
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.geometry.Pos;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.ScrollPane;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
 import javafx.scene.layout.AnchorPane;
 import javafx.scene.text.Font;
 import javafx.scene.text.TextAlignment;
 
 /**
  * Controls the Select Level scene.
+ * The levels come from the level catalog, a pane is shown for each level
+ * straight away and filled in once the level has been loaded.
+ * Each level shows a thumbnail of its layout next to its name(see ThumbnailCache).
  * @author Josiah Richards
- * @version 2.0
+ * @version 2.4
  */
 public class SelectLevelController extends Controller {
 	
@@ -19,9 +25,13 @@ public class SelectLevelController extends Controller {
 	private static double GAP_BETWEEN_CONTAINERS = 10d;
 	private static String CONTAINER_STYLE = "-fx-border-color: black; -fx-background-color: #f6fff4;";
 	
+	//Level thumbnail generation properties
+	private static double THUMBNAIL_SIZE = 140d;
+	private static double THUMBNAIL_LEFT_MARGIN = 30d;
+	
 	//Level name label generation properties
 	private static double LABEL_FONT_SIZE = 50d;
-	private static double LABEL_LEFT_MARGIN = 100d;
+	private static double LABEL_LEFT_MARGIN = THUMBNAIL_LEFT_MARGIN + THUMBNAIL_SIZE + 30d;
 	private static String LABEL_STYLE = "-fx-text-fill: #0a3603;";
 	
 	//Level button generation properties
@@ -33,15 +43,30 @@ public class SelectLevelController extends Controller {
 									+ " -fx-background-color: red;"
 									+ " -fx-border-color: black;";
 	
+	//The level name shown while a level is loading or if it couldn't be loaded.
+	private static String LOADING_TEXT = "Loading...";
+	private static String LOAD_FAILED_TEXT = "Couldn't load level";
+	
 	//FXML UI Objects
 	@FXML ScrollPane scrollPane;
 	@FXML AnchorPane scrollPaneAnchor;
 	@FXML Button btnBack;
 	
+	//Counts the visits to this scene, so levels listed for an earlier visit are ignored.
+	private int visit = 0;
+	
 	@Override
 	public void initialize() {
 	}
 
+	@Override
+	public void reset() {
+		visit++;
+		//Remove the level panes, they're created again for the current profile.
+		scrollPaneAnchor.getChildren().clear();
+		scrollPane.setVvalue(0);
+	}
+
 	@Override
 	public void manualInitialize() {
 		
@@ -52,20 +77,27 @@ public class SelectLevelController extends Controller {
 		try {
 			Profile curProfile = ProfileManager.loadProfile(main.getGlobalInfo().getSelectedProfileID());
 			
+			//Pick up any levels that have changed since they were loaded.
+			LevelCatalog.scan();
 			//Create a pane for each level, up to the highest level the profile has reached,
-			//(plus 1 so they can play the next level)
-			int curY = 0;
-			for (int mapID = 1; mapID <= curProfile.getHighestLevel()+1; mapID++) {
-				try {
-					MapInfo mapInfo = MapInfo.loadMapInfo(mapID);
-					AnchorPane levelContainer = createLevelPane(mapInfo, curY);
-					scrollPaneAnchor.getChildren().add(levelContainer);
-					
-					curY += CONTAINER_HEIGHT + GAP_BETWEEN_CONTAINERS;
-				} catch (ParsingException e) {
-					
+			//(plus 1 so they can play the next level) once the installed levels are known.
+			int lastLevelID = curProfile.getHighestLevel()+1;
+			int thisVisit = visit;
+			LevelCatalog.getLevelIDs().thenAccept(levelIDs -> Platform.runLater(() -> {
+				if (thisVisit != visit) {
+					//Listed for an earlier visit(maybe for another profile) that finished late.
+					return;
 				}
-			}
+				int curY = 0;
+				for (int mapID : levelIDs) {
+					if (mapID <= lastLevelID) {
+						AnchorPane levelContainer = createLevelPane(mapID, curY);
+						scrollPaneAnchor.getChildren().add(levelContainer);
+						
+						curY += CONTAINER_HEIGHT + GAP_BETWEEN_CONTAINERS;
+					}
+				}
+			}));
 		} catch (ParsingException e) {
 			//Couldn't read profile, go back to select profile
 			main.switchToScene(Main.SceneType.SelectProfile);
@@ -78,26 +110,50 @@ public class SelectLevelController extends Controller {
 	}
 	
 	/**
-	 * Creates an anchor pane consisting of a label and button
-	 * for a given map info.
-	 * @param mapInfo The MapInfo this pane is for.
+	 * Creates an anchor pane consisting of a thumbnail, label and button
+	 * for a given level, the name is filled in and the button enabled
+	 * once the level has been loaded, the thumbnail once it's been rendered.
+	 * @param mapID The ID of the level this pane is for.
 	 * @param yPos The y position of this pane
 	 * @return The new AnchorPane that we generated.
 	 */
-	private AnchorPane createLevelPane(MapInfo mapInfo, int yPos) {
+	private AnchorPane createLevelPane(int mapID, int yPos) {
 		AnchorPane levelContainer = new AnchorPane();
 		
-		Label label = new Label(mapInfo.getMapName());
+		Label label = new Label(LOADING_TEXT);
 		Button button = new Button(BUTTON_TEXT);
+		button.setDisable(true);
+		LevelCatalog.getLevel(mapID).whenComplete((level, e) -> Platform.runLater(() -> {
+			if (level != null) {
+				label.setText(level.getName());
+				button.setDisable(false);
+			} else {
+				label.setText(LOAD_FAILED_TEXT);
+			}
+		}));
+		ImageView thumbnail = new ImageView();
+		ThumbnailCache.getThumbnail(mapID).thenAccept(url -> Platform.runLater(() -> {
+			//Loaded in the background too, so a big level pack doesn't hold up the screen.
+			thumbnail.setImage(new Image(url, true));
+		}));
 		
 		//Set up Container
 		levelContainer.setPrefWidth(scrollPane.getPrefWidth());
 		levelContainer.setPrefHeight(CONTAINER_HEIGHT);
 		levelContainer.setLayoutY(yPos);
 		levelContainer.setStyle(CONTAINER_STYLE);
+		levelContainer.getChildren().add(thumbnail);
 		levelContainer.getChildren().add(label);
 		levelContainer.getChildren().add(button);
 		
+		//Set up thumbnail, centred vertically and scaled up without blurring the tiles.
+		thumbnail.setFitWidth(THUMBNAIL_SIZE);
+		thumbnail.setFitHeight(THUMBNAIL_SIZE);
+		thumbnail.setPreserveRatio(true);
+		thumbnail.setSmooth(false);
+		AnchorPane.setLeftAnchor(thumbnail, THUMBNAIL_LEFT_MARGIN);
+		AnchorPane.setTopAnchor(thumbnail, (CONTAINER_HEIGHT - THUMBNAIL_SIZE) / 2);
+		
 		//Set up label
 		label.setFont(new Font(LABEL_FONT_SIZE));
 		label.setPrefHeight(levelContainer.getPrefHeight());
@@ -116,7 +172,7 @@ public class SelectLevelController extends Controller {
 		AnchorPane.setBottomAnchor(button, BUTTON_VERTICAL_MARGIN);
 		AnchorPane.setTopAnchor(button, BUTTON_VERTICAL_MARGIN);
 		button.setOnAction(e -> {
-			main.getGlobalInfo().setCurrentLevelID(mapInfo.getMapID());
+			main.getGlobalInfo().setCurrentLevelID(mapID);
 			main.switchToScene(Main.SceneType.LevelMenu);
 		});
 		
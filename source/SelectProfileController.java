@@ -16,7 +16,7 @@ import javafx.scene.text.TextAlignment;
 /**
  * Controls the Select Profile scene.
  * @author Josiah Richards
- * @version 1.5
+ * @version 1.6
  */
 public class SelectProfileController extends Controller {
 
@@ -62,6 +62,13 @@ public class SelectProfileController extends Controller {
 	public void initialize() {
 	}
 
+	@Override
+	public void reset() {
+		//Remove the profile panes, they're created again for the current profiles.
+		scrollPaneAnchor.getChildren().clear();
+		scrollPane.setVvalue(0);
+	}
+
 	@Override
 	public void manualInitialize() {
 		
@@ -136,7 +143,7 @@ public class SelectProfileController extends Controller {
 		Image image = null; 
 		try {
 			if (FileManager.fileExists(profileInfo.getImage())) {
-				image = new Image(FileManager.filePathToURL(profileInfo.getImage()).toString());
+				image = SpriteCache.getImageFromPath(profileInfo.getImage());
 			}
 		} catch (MalformedURLException e) {
 			image = null;
@@ -145,7 +152,7 @@ public class SelectProfileController extends Controller {
 		//Try loading the default image instead
 		if (image == null) {
 			try {
-				image = new Image(FileManager.filePathToURL(FileManager.getImagePath(Profile.DEFAULT_IMAGE)).toString());
+				image = SpriteCache.getImageFromPath(FileManager.getImagePath(Profile.DEFAULT_IMAGE));
 			} catch (MalformedURLException e2) {
 				e2.printStackTrace();
 				image = null;
@@ -0,0 +1,133 @@
+import java.io.FileNotFoundException;
+import java.net.MalformedURLException;
+
+/**
+ * Plays a level on a map without any UI or rendering,
+ * so levels can be validated and tested as fast as possible.
+ * Each tick the player tries to move and then every enemy takes its move,
+ * the same as a key press in the level UI.
+ * @author Josiah Richards
+ * @version 1.0
+ */
+public class Simulation implements LevelListener {
+	
+	//The map being simulated.
+	private Map map;
+	//How many ticks have been simulated.
+	private long numTicks;
+	//If the player has won or lost.
+	private boolean won;
+	private boolean lost;
+	//The last hint shown to the player.
+	private String curHintText;
+	
+	/**
+	 * Creates a simulation of a map, spawning the player.
+	 * @param map The map to simulate.
+	 * @throws MalformedURLException If the player sprite is invalid.
+	 */
+	public Simulation(Map map) throws MalformedURLException {
+		this.map = map;
+		numTicks = 0;
+		won = false;
+		lost = false;
+		curHintText = "";
+		map.setLevelListener(this);
+		map.respawnPlayer();
+	}
+	
+	/**
+	 * Loads a map file and creates a simulation of it.
+	 * @param mapFile The full path to the map file.
+	 * @return A new simulation of the map.
+	 * @throws FileNotFoundException If the map file couldn't be found.
+	 * @throws ParsingException If the map file couldn't be parsed.
+	 * @throws MalformedURLException If the player sprite is invalid.
+	 */
+	public static Simulation load(String mapFile) throws FileNotFoundException, 
+								ParsingException, MalformedURLException {
+		return new Simulation(MapReader.readMapFile(mapFile));
+	}
+	
+	/**
+	 * Simulates 1 tick, moving the player in a direction then
+	 * moving all the enemies.
+	 * Does nothing once the level has been won or lost.
+	 * @param playerMove The direction the player tries to move, (0, 0) to stay still.
+	 */
+	public void tick(Direction playerMove) {
+		if (!isFinished()) {
+			if (!playerMove.equals(Direction.DIR_NONE)) {
+				//Copy the direction as stepping on things can change it.
+				map.getPlayer().move(new Direction(playerMove));
+			}
+			if (!isFinished()) {
+				map.updateEnemies();
+			}
+			numTicks++;
+		}
+	}
+	
+	@Override
+	public void win() {
+		won = true;
+	}
+	
+	@Override
+	public void lose() {
+		lost = true;
+	}
+	
+	@Override
+	public void setCurHintText(String hintText) {
+		curHintText = hintText;
+	}
+	
+	/**
+	 * Checks if the level has been won or lost.
+	 * @return True if the level is over, false otherwise.
+	 */
+	public boolean isFinished() {
+		return won || lost;
+	}
+	
+	/**
+	 * Gets if the player has won.
+	 * @return If the player has won.
+	 */
+	public boolean getWon() {
+		return won;
+	}
+	
+	/**
+	 * Gets if the player has lost.
+	 * @return If the player has lost.
+	 */
+	public boolean getLost() {
+		return lost;
+	}
+	
+	/**
+	 * Gets the number of ticks simulated.
+	 * @return The number of ticks simulated.
+	 */
+	public long getNumTicks() {
+		return numTicks;
+	}
+	
+	/**
+	 * Gets the last hint shown to the player.
+	 * @return The last hint shown to the player.
+	 */
+	public String getCurHintText() {
+		return curHintText;
+	}
+	
+	/**
+	 * Gets the map being simulated.
+	 * @return The map being simulated.
+	 */
+	public Map getMap() {
+		return map;
+	}
+}
@@ -1,13 +1,12 @@
 import java.net.MalformedURLException;
 import java.util.ArrayList;
-import java.util.Random;
 
 /**
- * An enemy that uses the A Star Path Finding algorithm to 
- * move towards the player. 
+ * An enemy that follows the shortest path to the player,
+ * read from a distance field shared by all smart enemies on the map.
  * Moves in a random direction if no path could be found.
  * @author Josiah Richards
- * @version 1.2
+ * @version 1.6
  */
 public class SmartTargetEnemy extends Enemy {
 
@@ -17,8 +16,8 @@ public class SmartTargetEnemy extends Enemy {
 	//The image file name.
 	private static final String IMAGE_NAME = "SmartEnemy.png";
 	
-	//Generates random numbers, used for choosing a random direction.
-	private Random randomNumGenerator;
+	//The next step read from the distance field by prepareNextMove.
+	private int preparedStep;
 	
 	/**
 	 * Creates a new smart targeting enemy at a given location for a
@@ -32,7 +31,7 @@ public class SmartTargetEnemy extends Enemy {
 	public SmartTargetEnemy(int x, int y, Map map, Direction startingDirection) 
 														throws MalformedURLException {
 		super(x, y, map, startingDirection);
-		randomNumGenerator = new Random();
+		preparedStep = DistanceField.NO_STEP;
 		setImage(IMAGE_NAME);
 	}
 	
@@ -54,51 +53,100 @@ public class SmartTargetEnemy extends Enemy {
 	 */
 	public Direction aStarPathFindNextMove(Vector2 target) {
 		
-		//Find a path to the target
-		AStarPathFinder pathFinder = new AStarPathFinder(map);
-		Vector2[] path = pathFinder.getPath(gridCoords, target, this);
+		//Find the first step of a path to the target
+		int firstStep = map.getPathFinder().getFirstStep(gridCoords.getX(), gridCoords.getY(),
+											target.getX(), target.getY(), this);
 		
 		//If a path was found
-		if (path.length > 0) {
-			try{
-				Direction moveDir = new Direction(path[0].getX() - gridCoords.getX(),
-												  path[0].getY() - gridCoords.getY());
-				return moveDir;
-			} catch(IllegalArgumentException e) {
-				return new Direction(0, 0);
-			}
+		if (firstStep != AStarPathFinder.NO_PATH) {
+			int stepX = firstStep % map.getWidth();
+			int stepY = firstStep / map.getWidth();
+			return new Direction(stepX - gridCoords.getX(), stepY - gridCoords.getY());
 		} else {
-			
 			//No path found
-			//Get a list of possible directions
-			Direction[] directionsArray = new Direction[4];
-			directionsArray[0] = new Direction(Direction.DIR_UP);
-			directionsArray[1] = new Direction(Direction.DIR_DOWN);
-			directionsArray[2] = new Direction(Direction.DIR_LEFT);
-			directionsArray[3] = new Direction(Direction.DIR_RIGHT);
-			ArrayList<Direction> directionsList = new ArrayList<Direction>();
-			for (int i = 0; i < directionsArray.length; i++) {
-				if (canMove(directionsArray[i])) {
-					directionsList.add(directionsArray[i]);
-				}
-			}
-			
-			//If there are possible directions
-			if (directionsList.size() > 0) {
-				int randNum = randomNumGenerator.nextInt(directionsList.size());
-				//Choose a random valid direction
-				return directionsList.get(randNum);
-			} else {
-				//No possible directions
-				return new Direction(0, 0);
+			return getRandomMove();
+		}
+	}
+	
+	/**
+	 * Returns the next direction this enemy should move in to reach
+	 * the player.
+	 * Reads the map's shared distance field to the player rather than
+	 * searching, so any number of smart enemies only cost 1 search per tick.
+	 * @return The direction we should move to get to the player,
+	 * 			this direction is random if the player can't be reached.
+	 */
+	public Direction distanceFieldNextMove() {
+		DistanceField field = map.getPlayerDistanceField(this);
+		int nextStep = field.getNextStep(gridCoords.getX(), gridCoords.getY());
+		
+		//If the player can be reached
+		if (nextStep != DistanceField.NO_STEP) {
+			int stepX = nextStep % map.getWidth();
+			int stepY = nextStep / map.getWidth();
+			return new Direction(stepX - gridCoords.getX(), stepY - gridCoords.getY());
+		} else {
+			return getRandomMove();
+		}
+	}
+	
+	/**
+	 * Returns a random direction this enemy is able to move in.
+	 * @return A random valid direction, or no direction if this enemy can't move.
+	 */
+	private Direction getRandomMove() {
+		//Get a list of possible directions
+		Direction[] directionsArray = new Direction[4];
+		directionsArray[0] = new Direction(Direction.DIR_UP);
+		directionsArray[1] = new Direction(Direction.DIR_DOWN);
+		directionsArray[2] = new Direction(Direction.DIR_LEFT);
+		directionsArray[3] = new Direction(Direction.DIR_RIGHT);
+		ArrayList<Direction> directionsList = new ArrayList<Direction>();
+		for (int i = 0; i < directionsArray.length; i++) {
+			if (canMove(directionsArray[i])) {
+				directionsList.add(directionsArray[i]);
 			}
 		}
+		
+		//If there are possible directions
+		if (directionsList.size() > 0) {
+			//Use the map's random numbers so replaying moves gives the same direction.
+			int randNum = map.randomInt(directionsList.size());
+			//Choose a random valid direction
+			return directionsList.get(randNum);
+		} else {
+			//No possible directions
+			return new Direction(0, 0);
+		}
 	}
 
+	@Override
+	public void prepareNextMove() {
+		//The distance field repairs itself as it's read, so read it one enemy at a time.
+		DistanceField field = map.getPlayerDistanceField(this);
+		preparedStep = field.getNextStep(gridCoords.getX(), gridCoords.getY());
+	}
+	
+	@Override
+	public Direction decideNextMove() {
+		if (preparedStep != DistanceField.NO_STEP) {
+			int stepX = preparedStep % map.getWidth();
+			int stepY = preparedStep / map.getWidth();
+			return new Direction(stepX - gridCoords.getX(), stepY - gridCoords.getY());
+		}
+		//Random moves use the map's random numbers so are decided in order when moving.
+		return null;
+	}
+	
+	@Override
+	public void makeMove(Direction nextMove) {
+		move(nextMove != null ? nextMove : getRandomMove());
+	}
+	
 	@Override
 	public Direction getNextMove() {
-		//Path find to the player.
-		return aStarPathFindNextMove(map.getPlayer().getGridCoords());
+		//Follow the distance field to the player.
+		return distanceFieldNextMove();
 	}
 
 	
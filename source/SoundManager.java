@@ -0,0 +1,107 @@
+import java.io.File;
+import java.net.MalformedURLException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javafx.scene.media.AudioClip;
+
+/**
+ * Plays the game's sound effects.
+ * Every sound in the sounds folder is decoded into memory once when the game
+ * starts(in the background), so playing a sound starts straight away and can be
+ * done from any thread(e.g. the simulation thread, on the tick the event happens).
+ * At most MAX_VOICES sounds play at once, the oldest is stopped to make room.
+ * @author Josiah Richards
+ * @version 1.0
+ */
+public class SoundManager {
+
+	//The most sounds that can be playing at once.
+	private static final int MAX_VOICES = 4;
+
+	//The thread sounds are preloaded on, a daemon thread so it never keeps the game open.
+	private static final ExecutorService LOAD_EXECUTOR = Executors.newSingleThreadExecutor(task -> {
+		Thread loadThread = new Thread(task, "Sound loader");
+		loadThread.setDaemon(true);
+		return loadThread;
+	});
+
+	//The decoded sounds by sound file name.
+	private static final HashMap<String, AudioClip> CLIPS = new HashMap<String, AudioClip>();
+	//The sounds that have been played and may still be playing, oldest first.
+	private static final ArrayDeque<AudioClip> VOICES = new ArrayDeque<AudioClip>();
+
+	/**
+	 * Starts decoding every sound in the sounds folder in the background.
+	 */
+	public static void preloadAll() {
+		LOAD_EXECUTOR.execute(() -> {
+			File[] soundFiles = new File(FileManager.getSoundsFolderPath()).listFiles();
+			if (soundFiles == null) {
+				return;
+			}
+			for (File soundFile : soundFiles) {
+				try {
+					getClip(soundFile.getName());
+				} catch (Exception e) {
+					//Not a sound that can be played, it'll fail again if it's ever played.
+					e.printStackTrace();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Plays a sound, decoding it first if it hasn't been preloaded.
+	 * @param soundName The name of the sound file with its extension.
+	 * @throws MalformedURLException If the sound's path couldn't be converted to a URL.
+	 */
+	public static void play(String soundName) throws MalformedURLException {
+		AudioClip clip = getClip(soundName);
+		synchronized (VOICES) {
+			//Forget the sounds that have finished.
+			VOICES.removeIf(voice -> !voice.isPlaying());
+			if (VOICES.size() >= MAX_VOICES) {
+				//Stop the oldest sound(every time it's playing, AudioClips can't stop just one).
+				AudioClip oldest = VOICES.peekFirst();
+				oldest.stop();
+				VOICES.removeIf(voice -> voice == oldest);
+			}
+			clip.play();
+			VOICES.addLast(clip);
+		}
+	}
+
+	/**
+	 * Stops every sound playing(e.g. when the scene changes).
+	 * The decoded sounds are kept so they can be played again.
+	 */
+	public static void stopAll() {
+		synchronized (VOICES) {
+			Iterator<AudioClip> voices = VOICES.iterator();
+			while (voices.hasNext()) {
+				voices.next().stop();
+				voices.remove();
+			}
+		}
+	}
+
+	/**
+	 * Gets a decoded sound, decoding it if it hasn't been.
+	 * @param soundName The name of the sound file with its extension.
+	 * @return The decoded sound.
+	 * @throws MalformedURLException If the sound's path couldn't be converted to a URL.
+	 */
+	private static AudioClip getClip(String soundName) throws MalformedURLException {
+		synchronized (CLIPS) {
+			AudioClip clip = CLIPS.get(soundName);
+			if (clip == null) {
+				clip = new AudioClip(FileManager.filePathToURL(FileManager.getSoundPath(soundName)).toString());
+				CLIPS.put(soundName, clip);
+			}
+			return clip;
+		}
+	}
+}
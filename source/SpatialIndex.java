@@ -0,0 +1,158 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keeps track of which entities are at each grid coordinate of a map
+ * so that looking up the entities at a coordinate doesn't require
+ * looping through every entity on the map.
+ * Each grid coordinate has a bucket(list) of entities. Buckets are grouped
+ * into square pages of the grid, and pages and buckets are only created once an
+ * entity is put in them, so the memory used depends on where the entities are
+ * rather than the size of the map.
+ * @author Josiah Richards
+ * @version 1.1
+ */
+public class SpatialIndex {
+
+	//The bucket returned for coordinates with no entities
+	//(or that are outside of the grid).
+	private static final List<Entity> EMPTY_BUCKET = Collections.emptyList();
+	//Pages are PAGE_SIZE x PAGE_SIZE grid coordinates(PAGE_SIZE = 1 << PAGE_SHIFT).
+	private static final int PAGE_SHIFT = 4;
+	private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+	private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+	//The width and height of the grid being indexed.
+	private int width;
+	private int height;
+	//How many pages across the grid is.
+	private int pagesAcross;
+	//The buckets of each page(by page index), null if there's never been
+	//an entity in the page. Buckets are null if there's never been an entity there.
+	private ArrayList<Entity>[][] pages;
+
+	/**
+	 * Creates an empty spatial index for a grid of a given size.
+	 * @param width How many cells across the grid is.
+	 * @param height How many cells down the grid is.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public SpatialIndex(int width, int height) {
+		this.width = width;
+		this.height = height;
+		pagesAcross = (width + PAGE_MASK) >> PAGE_SHIFT;
+		int pagesDown = (height + PAGE_MASK) >> PAGE_SHIFT;
+		pages = (ArrayList<Entity>[][]) new ArrayList[pagesAcross * pagesDown][];
+	}
+
+	/**
+	 * Checks if a grid coordinate is inside the indexed grid.
+	 * @param x The x coordinate to check.
+	 * @param y The y coordinate to check.
+	 * @return True if the coordinate is inside the grid, false otherwise.
+	 */
+	public boolean isInBounds(int x, int y) {
+		return x >= 0 && y >= 0 && x < width && y < height;
+	}
+
+	/**
+	 * Adds an entity to the bucket at a grid coordinate.
+	 * Entities outside of the grid aren't indexed.
+	 * @param entity The entity to add.
+	 * @param x The x coordinate of the entity.
+	 * @param y The y coordinate of the entity.
+	 */
+	public void add(Entity entity, int x, int y) {
+		if (isInBounds(x, y)) {
+			int pageIndex = getPageIndex(x, y);
+			//Create the page and bucket the first time something is put there.
+			ArrayList<Entity>[] page = pages[pageIndex];
+			if (page == null) {
+				page = createPage();
+				pages[pageIndex] = page;
+			}
+			int index = getIndexInPage(x, y);
+			if (page[index] == null) {
+				page[index] = new ArrayList<Entity>(2);
+			}
+			page[index].add(entity);
+		}
+	}
+
+	/**
+	 * Removes an entity from the bucket at a grid coordinate.
+	 * @param entity The entity to remove.
+	 * @param x The x coordinate the entity was indexed at.
+	 * @param y The y coordinate the entity was indexed at.
+	 * @return True if the entity was found and removed, false otherwise.
+	 */
+	public boolean remove(Entity entity, int x, int y) {
+		ArrayList<Entity> bucket = getBucket(x, y);
+		if (bucket != null) {
+			return bucket.remove(entity);
+		}
+		return false;
+	}
+
+	/**
+	 * Gets the entities at a grid coordinate.
+	 * This is the index's own list so it must not be modified and
+	 * will change as entities move.
+	 * @param x The x coordinate.
+	 * @param y The y coordinate.
+	 * @return The entities at the coordinate(empty if there are none).
+	 */
+	public List<Entity> get(int x, int y) {
+		ArrayList<Entity> bucket = getBucket(x, y);
+		if (bucket != null) {
+			return bucket;
+		}
+		return EMPTY_BUCKET;
+	}
+
+	/**
+	 * Gets the bucket at a grid coordinate.
+	 * @param x The x coordinate.
+	 * @param y The y coordinate.
+	 * @return The bucket, null if there's never been an entity there.
+	 */
+	private ArrayList<Entity> getBucket(int x, int y) {
+		if (isInBounds(x, y)) {
+			ArrayList<Entity>[] page = pages[getPageIndex(x, y)];
+			if (page != null) {
+				return page[getIndexInPage(x, y)];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the index of the page holding a grid coordinate.
+	 * @param x The x coordinate.
+	 * @param y The y coordinate.
+	 * @return The page index.
+	 */
+	private int getPageIndex(int x, int y) {
+		return (y >> PAGE_SHIFT) * pagesAcross + (x >> PAGE_SHIFT);
+	}
+
+	/**
+	 * Gets the index of a grid coordinate's bucket within its page.
+	 * @param x The x coordinate.
+	 * @param y The y coordinate.
+	 * @return The bucket index.
+	 */
+	private int getIndexInPage(int x, int y) {
+		return ((y & PAGE_MASK) << PAGE_SHIFT) + (x & PAGE_MASK);
+	}
+
+	/**
+	 * Creates an empty page of buckets.
+	 * @return The new page.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private ArrayList<Entity>[] createPage() {
+		return (ArrayList<Entity>[]) new ArrayList[PAGE_SIZE * PAGE_SIZE];
+	}
+}
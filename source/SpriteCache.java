@@ -0,0 +1,145 @@
+import java.net.MalformedURLException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import javafx.scene.image.Image;
+
+/**
+ * A cache of loaded images shared by the whole application so that each
+ * sprite is only loaded from disk once no matter how many things use it.
+ * The cache is limited by the memory its images use, when it's full the least
+ * recently used images(usually old profile avatars) are forgotten.
+ * @author Josiah Richards
+ * @version 1.0
+ */
+public class SpriteCache {
+	
+	//The most memory(in bytes) the cached images should use.
+	private static final long MAX_CACHE_BYTES = 64L * 1024L * 1024L;
+	//The bytes used by each pixel of a loaded image.
+	private static final int BYTES_PER_PIXEL = 4;
+	
+	//The loaded images by their URL, in least to most recently used order.
+	private static LinkedHashMap<String, Image> images = new LinkedHashMap<String, Image>(16, 0.75f, true);
+	//The URLs of the image files by their image name.
+	private static HashMap<String, String> imageURLs = new HashMap<String, String>();
+	//The memory(in bytes) used by the cached images.
+	private static long usedBytes = 0L;
+	//How many times an image was found in/missing from the cache.
+	private static long numHits = 0L;
+	private static long numMisses = 0L;
+	
+	/**
+	 * Gets the URL of an image file in the images folder.
+	 * @param imageName The name of the image file(with extension and not the full path).
+	 * @return The URL of the image file as a string.
+	 * @throws MalformedURLException If the image path couldn't be converted to a URL.
+	 */
+	public static synchronized String getImageURL(String imageName) throws MalformedURLException {
+		String url = imageURLs.get(imageName);
+		if (url == null) {
+			url = FileManager.filePathToURL(FileManager.getImagePath(imageName)).toString();
+			imageURLs.put(imageName, url);
+		}
+		return url;
+	}
+	
+	/**
+	 * Gets an image, loading it if it isn't already cached.
+	 * @param url The URL of the image.
+	 * @return The loaded image.
+	 */
+	public static synchronized Image getImage(String url) {
+		Image image = images.get(url);
+		if (image != null) {
+			numHits++;
+			return image;
+		}
+		numMisses++;
+		image = new Image(url);
+		images.put(url, image);
+		usedBytes += calcImageBytes(image);
+		evictIfFull(url);
+		return image;
+	}
+	
+	/**
+	 * Gets an image from a file path, loading it if it isn't already cached.
+	 * @param filePath The full path to the image file.
+	 * @return The loaded image.
+	 * @throws MalformedURLException If the file path couldn't be converted to a URL.
+	 */
+	public static Image getImageFromPath(String filePath) throws MalformedURLException {
+		return getImage(FileManager.filePathToURL(filePath).toString());
+	}
+	
+	/**
+	 * Forgets a cached image so that it's loaded again next time
+	 * (e.g. if the file has changed).
+	 * @param filePath The full path to the image file.
+	 * @throws MalformedURLException If the file path couldn't be converted to a URL.
+	 */
+	public static synchronized void invalidate(String filePath) throws MalformedURLException {
+		Image image = images.remove(FileManager.filePathToURL(filePath).toString());
+		if (image != null) {
+			usedBytes -= calcImageBytes(image);
+		}
+	}
+	
+	/**
+	 * Forgets all the cached images.
+	 */
+	public static synchronized void clear() {
+		images.clear();
+		usedBytes = 0L;
+	}
+	
+	/**
+	 * Gets how many times an image was found in the cache.
+	 * @return The number of cache hits.
+	 */
+	public static synchronized long getNumHits() {
+		return numHits;
+	}
+	
+	/**
+	 * Gets how many times an image had to be loaded.
+	 * @return The number of cache misses.
+	 */
+	public static synchronized long getNumMisses() {
+		return numMisses;
+	}
+	
+	/**
+	 * Gets how much memory(in bytes) the cached images use.
+	 * @return The bytes used by the cached images.
+	 */
+	public static synchronized long getUsedBytes() {
+		return usedBytes;
+	}
+	
+	/**
+	 * Forgets the least recently used images until the cache is within its
+	 * memory limit, never forgetting the image that was just loaded.
+	 * @param keepURL The URL of the image that was just loaded.
+	 */
+	private static void evictIfFull(String keepURL) {
+		Iterator<java.util.Map.Entry<String, Image>> iterator = images.entrySet().iterator();
+		while (usedBytes > MAX_CACHE_BYTES && iterator.hasNext()) {
+			java.util.Map.Entry<String, Image> entry = iterator.next();
+			if (!entry.getKey().equals(keepURL)) {
+				usedBytes -= calcImageBytes(entry.getValue());
+				iterator.remove();
+			}
+		}
+	}
+	
+	/**
+	 * Calculates roughly how much memory an image uses.
+	 * @param image The loaded image.
+	 * @return The bytes used by the image.
+	 */
+	private static long calcImageBytes(Image image) {
+		return (long) image.getWidth() * (long) image.getHeight() * BYTES_PER_PIXEL;
+	}
+}
@@ -1,7 +1,9 @@
 /**
  * Measures elapsed time in miliseconds.
+ * Can be used from more than one thread(e.g. timing moves on the simulation
+ * thread while the UI shows the time).
  * @author Josiah Richards
- * @version 1.0
+ * @version 1.1
  */
 public class Stopwatch {
 	
@@ -35,7 +37,7 @@ public class Stopwatch {
 	/**
 	 * Start counting elapsed milliseconds.
 	 */
-	public void start() {
+	public synchronized void start() {
 		lastSystemStartTime = System.currentTimeMillis();
 		timing = true;
 	}
@@ -44,7 +46,7 @@ public class Stopwatch {
 	 * Pausing/stops the stopwatch, updating the
 	 * elapsed time since the stopwatch was started.
 	 */
-	public void pause() {
+	public synchronized void pause() {
 		//Update the elapsed time
 		getElapsedTime();
 		timing = false;
@@ -54,7 +56,7 @@ public class Stopwatch {
 	 * Resets the stopwatch so that it's no longer
 	 * timing and that 0 milliseconds have elapsed.
 	 */
-	public void reset() {
+	public synchronized void reset() {
 		elapsedTime = 0L;
 		timing = false;
 	}
@@ -62,7 +64,7 @@ public class Stopwatch {
 	/**
 	 * Resets the stopwatch and then starts it again.
 	 */
-	public void restart() {
+	public synchronized void restart() {
 		reset();
 		start();
 	}
@@ -73,7 +75,7 @@ public class Stopwatch {
 	 * (Use pause first to update the elapsed time).
 	 * @return The elapsed time.
 	 */
-	public long getElapsedTime() {
+	public synchronized long getElapsedTime() {
 		//if the stopwatch is still timing we need to update the elapsed time
 		if (timing) {
 			long curTime = System.currentTimeMillis();
@@ -85,11 +87,19 @@ public class Stopwatch {
 		return elapsedTime;
 	}
 	
+	/**
+	 * Checks if the stopwatch is counting elapsed milliseconds.
+	 * @return True if it's been started and not paused or reset, false otherwise.
+	 */
+	public synchronized boolean isTiming() {
+		return timing;
+	}
+	
 	/**
 	 * Forces the elapsed time to be a value.
 	 * @param elapsedTime The new value for elapsedTime
 	 */
-	public void setElapsedTime(long elapsedTime) {
+	public synchronized void setElapsedTime(long elapsedTime) {
 		this.elapsedTime = elapsedTime;
 	}
 }
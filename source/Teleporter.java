@@ -114,7 +114,7 @@ public class Teleporter extends Cell{
 			Player player = (Player) steppedOnBy;
 			if (teleportTo != null) {
 				//Teleport them onto the second teleporter
-				player.getGridCoords().setXY(teleportTo.getGridCoords());
+				map.moveEntity(player, teleportTo.getGridCoords());
 				//Move them off in the same direction they entered
 				player.move(movedDir);
 			}
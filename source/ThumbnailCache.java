@@ -0,0 +1,227 @@
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.imageio.ImageIO;
+
+/**
+ * Makes small pictures of levels' layouts(a few pixels per tile) to show when picking a level.
+ * Thumbnails are rendered offscreen on a worker thread and kept on disk, named
+ * after a hash of the layout file, so a level is only read and rendered again
+ * when its layout changes. While a layout file's last modified time stays the same
+ * it isn't even hashed again.
+ * @author Josiah Richards
+ * @version 1.1
+ */
+public class ThumbnailCache {
+
+	//The most pixels a tile is drawn with.
+	private static final int MAX_TILE_SIZE = 4;
+	//The most pixels a thumbnail can be wide or tall, bigger maps are sampled to fit.
+	private static final int MAX_THUMBNAIL_SIZE = 140;
+	//The format thumbnails are written in.
+	private static final String IMAGE_FORMAT = "png";
+
+	//The colours tiles are drawn with.
+	private static final Color GROUND_COLOUR = new Color(0xE8E4D8);
+	private static final Color WALL_COLOUR = new Color(0x3C3C3C);
+	private static final Color DEADLY_COLOUR = new Color(0xD2461E);
+	private static final Color GOAL_COLOUR = new Color(0x2FA84F);
+	private static final Color TELEPORTER_COLOUR = new Color(0x8A3FC4);
+	private static final Color DOOR_COLOUR = new Color(0x8B5A2B);
+	private static final Color OTHER_CELL_COLOUR = Color.GRAY;
+	//The colours entities are drawn with, over the tile they're on.
+	private static final Color PLAYER_COLOUR = new Color(0x1E64DC);
+	private static final Color ENEMY_COLOUR = Color.RED;
+	private static final Color TOKEN_COLOUR = new Color(0xF0C800);
+	private static final Color COLLECTABLE_COLOUR = new Color(0x00B4C8);
+	private static final Color BLOCK_COLOUR = new Color(0xA08C6E);
+	private static final Color OTHER_ENTITY_COLOUR = Color.BLACK;
+
+	//The thread thumbnails are rendered on, a daemon thread so it never keeps the game open.
+	private static final ExecutorService RENDER_EXECUTOR = Executors.newSingleThreadExecutor(task -> {
+		Thread renderThread = new Thread(task, "Thumbnail renderer");
+		renderThread.setDaemon(true);
+		return renderThread;
+	});
+
+	/**
+	 * A thumbnail got for a level, and when the level's layout had last changed.
+	 */
+	private static class Thumbnail {
+		private final long layoutLastModified;
+		private final CompletableFuture<String> url;
+
+		private Thumbnail(long layoutLastModified, CompletableFuture<String> url) {
+			this.layoutLastModified = layoutLastModified;
+			this.url = url;
+		}
+	}
+
+	//The thumbnails got or being got by map ID.
+	private static final HashMap<Integer, Thumbnail> THUMBNAILS = new HashMap<Integer, Thumbnail>();
+
+	/**
+	 * Gets the thumbnail of a level, rendering it in the background if the level's
+	 * layout has changed since it was last rendered(or it never has been).
+	 * @param mapID The ID of the level's map.
+	 * @return The URL of the thumbnail image once it's ready,
+	 * 			failing if the layout couldn't be read.
+	 */
+	public static CompletableFuture<String> getThumbnail(int mapID) {
+		long layoutLastModified = new File(FileManager.getMapLayoutFile(mapID)).lastModified();
+		synchronized (THUMBNAILS) {
+			Thumbnail thumbnail = THUMBNAILS.get(mapID);
+			if (thumbnail == null || thumbnail.layoutLastModified != layoutLastModified
+					|| thumbnail.url.isCompletedExceptionally()) {
+				CompletableFuture<String> url = CompletableFuture.supplyAsync(() -> {
+					try {
+						return FileManager.filePathToURL(getThumbnailFile(mapID)).toString();
+					} catch (ParsingException | IOException e) {
+						throw new CompletionException(e);
+					}
+				}, RENDER_EXECUTOR);
+				thumbnail = new Thumbnail(layoutLastModified, url);
+				THUMBNAILS.put(mapID, thumbnail);
+			}
+			return thumbnail.url;
+		}
+	}
+
+	/**
+	 * Gets the thumbnail file of a level's current layout, rendering it
+	 * if there isn't one(called on the render thread).
+	 * @param mapID The ID of the level's map.
+	 * @return The full path to the thumbnail file.
+	 * @throws ParsingException If the layout needed rendering and couldn't be parsed.
+	 * @throws IOException If the layout couldn't be read or the thumbnail couldn't be written.
+	 */
+	private static String getThumbnailFile(int mapID) throws ParsingException, IOException {
+		long layoutHash = InputLog.hashMapFile(FileManager.getMapLayoutFile(mapID));
+		String thumbnailFilePath = FileManager.getThumbnailFile(mapID, layoutHash);
+		File thumbnailFile = new File(thumbnailFilePath);
+		if (!thumbnailFile.exists()) {
+			BufferedImage image = render(MapReader.readMapFile(FileManager.getMapLayoutFile(mapID)));
+			FileManager.createDirIfNeeded(FileManager.getThumbnailsFolderPath(), true);
+			FileManager.writeAndReplaceFile(thumbnailFilePath, tempFile -> {
+				if (!ImageIO.write(image, IMAGE_FORMAT, tempFile)) {
+					throw new IOException("No writer for thumbnail format " + IMAGE_FORMAT);
+				}
+			});
+			deleteOldThumbnails(mapID, thumbnailFile);
+		}
+		return thumbnailFilePath;
+	}
+
+	/**
+	 * Renders a thumbnail of a map, keeping its shape.
+	 * Small maps get several pixels per tile, big maps are sampled down to fit.
+	 * @param map The map.
+	 * @return The thumbnail image.
+	 */
+	private static BufferedImage render(Map map) {
+		int mapWidth = map.getWidth();
+		int mapHeight = map.getHeight();
+		int longestSide = Math.max(1, Math.max(mapWidth, mapHeight));
+		int tileSize = Math.max(1, Math.min(MAX_TILE_SIZE, MAX_THUMBNAIL_SIZE / longestSide));
+		int imageWidth = mapWidth * tileSize;
+		int imageHeight = mapHeight * tileSize;
+		if (longestSide > MAX_THUMBNAIL_SIZE) {
+			imageWidth = mapWidth * MAX_THUMBNAIL_SIZE / longestSide;
+			imageHeight = mapHeight * MAX_THUMBNAIL_SIZE / longestSide;
+		}
+		imageWidth = Math.max(1, imageWidth);
+		imageHeight = Math.max(1, imageHeight);
+
+		BufferedImage image = new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_RGB);
+		Vector2 spawn = map.getSpawnLocation();
+		for (int pixelY = 0; pixelY < imageHeight; pixelY++) {
+			int y = (int) ((long) pixelY * mapHeight / imageHeight);
+			for (int pixelX = 0; pixelX < imageWidth; pixelX++) {
+				int x = (int) ((long) pixelX * mapWidth / imageWidth);
+				Color colour;
+				if (spawn != null && spawn.getX() == x && spawn.getY() == y) {
+					colour = PLAYER_COLOUR;
+				} else {
+					colour = getTileColour(map, x, y);
+				}
+				if (colour == null) {
+					//A key or door with a colour that wasn't recognised.
+					colour = OTHER_ENTITY_COLOUR;
+				}
+				image.setRGB(pixelX, pixelY, colour.getRGB());
+			}
+		}
+		return image;
+	}
+
+	/**
+	 * Gets the colour a tile is drawn with, the colour of the top entity on it
+	 * if there is one, otherwise the colour of its cell.
+	 * @param map The map.
+	 * @param x The x grid coordinate.
+	 * @param y The y grid coordinate.
+	 * @return The colour.
+	 */
+	private static Color getTileColour(Map map, int x, int y) {
+		List<Entity> entities = map.getEntitiesAt(x, y);
+		if (!entities.isEmpty()) {
+			Entity entity = entities.get(entities.size() - 1);
+			if (entity instanceof Player) {
+				return PLAYER_COLOUR;
+			} else if (entity instanceof Enemy) {
+				return ENEMY_COLOUR;
+			} else if (entity instanceof Token) {
+				return TOKEN_COLOUR;
+			} else if (entity instanceof Key) {
+				return ((Key) entity).getKeyColor();
+			} else if (entity instanceof Collectable) {
+				return COLLECTABLE_COLOUR;
+			} else if (entity instanceof PushBlock) {
+				return BLOCK_COLOUR;
+			}
+			return OTHER_ENTITY_COLOUR;
+		}
+
+		Cell cell = map.getCellAt(x, y);
+		if (cell instanceof Wall) {
+			return WALL_COLOUR;
+		} else if (cell instanceof DeadlyTile) {
+			return DEADLY_COLOUR;
+		} else if (cell instanceof Goal) {
+			return GOAL_COLOUR;
+		} else if (cell instanceof Teleporter) {
+			return TELEPORTER_COLOUR;
+		} else if (cell instanceof ColouredDoor) {
+			return ((ColouredDoor) cell).getColour();
+		} else if (cell instanceof Door) {
+			return DOOR_COLOUR;
+		} else if (cell instanceof Ground) {
+			return GROUND_COLOUR;
+		}
+		return OTHER_CELL_COLOUR;
+	}
+
+	/**
+	 * Deletes the thumbnails of a level's old layouts.
+	 * @param mapID The ID of the level's map.
+	 * @param currentFile The thumbnail of the level's current layout.
+	 */
+	private static void deleteOldThumbnails(int mapID, File currentFile) {
+		File[] thumbnailFiles = FileManager.getThumbnailFiles(mapID);
+		if (thumbnailFiles == null) {
+			return;
+		}
+		for (File thumbnailFile : thumbnailFiles) {
+			if (!thumbnailFile.equals(currentFile)) {
+				thumbnailFile.delete();
+			}
+		}
+	}
+}
@@ -0,0 +1,46 @@
+/**
+ * Stores the tile value(see Map) of every grid coordinate of a map by grid
+ * index(y * width + x), so the tiles can be kept in memory or read straight
+ * from a file as they're needed.
+ * Storage that only keeps some of the tiles in memory(see ChunkedTileStorage)
+ * can be told which areas are about to be used by pinning them.
+ * @author Josiah Richards
+ * @version 1.2
+ */
+public interface TileStorage {
+	
+	/**
+	 * Gets the tile at a grid index.
+	 * @param index The grid index.
+	 * @return The tile value(0 - 255).
+	 */
+	int getTile(int index);
+	
+	/**
+	 * Sets the tile at a grid index.
+	 * @param index The grid index.
+	 * @param tile The tile value(0 - 255).
+	 */
+	void setTile(int index, int tile);
+	
+	/**
+	 * Makes sure the tiles in an area are kept in memory until
+	 * everything is unpinned(does nothing for storage that keeps all tiles in memory).
+	 * Storage may only have room to pin part of the area.
+	 * @param minX The left of the area.
+	 * @param minY The top of the area.
+	 * @param maxX The right of the area(inclusive).
+	 * @param maxY The bottom of the area(inclusive).
+	 * @return True if the whole area is in memory until everything is unpinned,
+	 * 			false if some of it may be loaded when it's used.
+	 */
+	default boolean pin(int minX, int minY, int maxX, int maxY) {
+		return true;
+	}
+	
+	/**
+	 * Lets every pinned area be taken out of memory again.
+	 */
+	default void unpinAll() {
+	}
+}
@@ -4,7 +4,7 @@ import java.net.MalformedURLException;
  * A door that requires a certain amount of tokens to open.
  * Only the player can open it and it doesn't 'consume' the tokens.
  * @author Ajaya Budhathoki and Josiah Richards
- * @version 2.0
+ * @version 2.1
  */
 public class TokenDoor extends Door{
 
@@ -30,6 +30,14 @@ public class TokenDoor extends Door{
 		setImage(IMAGE_NAME);
 	}
 	
+	/**
+	 * Gets the number of tokens required to open this door.
+	 * @return The number of tokens required.
+	 */
+	public int getNumTokensRequired() {
+		return numTokensRequired;
+	}
+	
    @Override
    public String getMetaInfo() {
 		return String.format(META_FORMAT, gridCoords.toString(), Door.META_KEYWORD,Token.META_KEYWORD, 
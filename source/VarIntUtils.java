@@ -0,0 +1,118 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Reads and writes variable length integers, where small numbers take up
+ * fewer bytes (7 bits per byte, the top bit set if more bytes follow).
+ * Signed numbers are zigzag encoded first so small negative numbers are small too.
+ * @author Josiah Richards
+ * @version 1.0
+ */
+public class VarIntUtils {
+
+	//The bits of each byte that hold the number.
+	private static final int VALUE_BITS = 0x7F;
+	//The bit of each byte that's set if more bytes follow.
+	private static final int MORE_BIT = 0x80;
+	//The most bytes a long can take up.
+	private static final int MAX_LONG_BYTES = 10;
+
+	/**
+	 * Writes a number that's never negative.
+	 * @param out Where to write to.
+	 * @param value The number to write.
+	 * @throws IOException If writing fails.
+	 */
+	public static void writeVarInt(DataOutput out, int value) throws IOException {
+		writeVarLong(out, value & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Writes a number that may be negative.
+	 * @param out Where to write to.
+	 * @param value The number to write.
+	 * @throws IOException If writing fails.
+	 */
+	public static void writeSignedVarInt(DataOutput out, int value) throws IOException {
+		writeVarInt(out, (value << 1) ^ (value >> 31));
+	}
+
+	/**
+	 * Writes a long that's never negative.
+	 * @param out Where to write to.
+	 * @param value The number to write.
+	 * @throws IOException If writing fails.
+	 */
+	public static void writeVarLong(DataOutput out, long value) throws IOException {
+		while ((value & ~VALUE_BITS) != 0) {
+			out.writeByte((int) ((value & VALUE_BITS) | MORE_BIT));
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	/**
+	 * Writes a long that may be negative.
+	 * @param out Where to write to.
+	 * @param value The number to write.
+	 * @throws IOException If writing fails.
+	 */
+	public static void writeSignedVarLong(DataOutput out, long value) throws IOException {
+		writeVarLong(out, (value << 1) ^ (value >> 63));
+	}
+
+	/**
+	 * Reads a number written with writeVarInt.
+	 * @param in Where to read from.
+	 * @return The number read.
+	 * @throws IOException If reading fails or the number is too long.
+	 */
+	public static int readVarInt(DataInput in) throws IOException {
+		long value = readVarLong(in);
+		if ((value >>> 32) != 0) {
+			throw new IOException("Variable length int is too long");
+		}
+		return (int) value;
+	}
+
+	/**
+	 * Reads a number written with writeSignedVarInt.
+	 * @param in Where to read from.
+	 * @return The number read.
+	 * @throws IOException If reading fails or the number is too long.
+	 */
+	public static int readSignedVarInt(DataInput in) throws IOException {
+		int value = readVarInt(in);
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Reads a long written with writeVarLong.
+	 * @param in Where to read from.
+	 * @return The number read.
+	 * @throws IOException If reading fails or the number is too long.
+	 */
+	public static long readVarLong(DataInput in) throws IOException {
+		long value = 0;
+		for (int i = 0; i < MAX_LONG_BYTES; i++) {
+			int b = in.readUnsignedByte();
+			value |= (long) (b & VALUE_BITS) << (7 * i);
+			if ((b & MORE_BIT) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Variable length long is too long");
+	}
+
+	/**
+	 * Reads a long written with writeSignedVarLong.
+	 * @param in Where to read from.
+	 * @return The number read.
+	 * @throws IOException If reading fails or the number is too long.
+	 */
+	public static long readSignedVarLong(DataInput in) throws IOException {
+		long value = readVarLong(in);
+		return (value >>> 1) ^ -(value & 1);
+	}
+}
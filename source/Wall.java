@@ -35,6 +35,11 @@ public class Wall extends Cell{
 		return SYMBOL;
 	}
 	
+	@Override
+	public boolean isShareable() {
+		return true;
+	}
+	
 	@Override
 	public void stepOn(Moving steppedOnBy, Direction fromDir) {
 		//Send the moving back to where it came from 
@@ -3,7 +3,7 @@ import java.net.MalformedURLException;
 /**
  * Wall follow
  * @author Josiah Richards
- * @version 1.5
+ * @version 1.6
  */
 public class WallFollowEnemy extends Enemy {
 
@@ -42,6 +42,14 @@ public class WallFollowEnemy extends Enemy {
 				currentDirection.toString(), (followRight ? Direction.RIGHT_WORD : Direction.LEFT_WORD));
 	}
 
+	/**
+	 * Gets which wall this enemy follows.
+	 * @return True if this follows the right wall, false if it follows the left wall.
+	 */
+	public boolean getFollowRight() {
+		return followRight;
+	}
+	
 	@Override
 	public Direction getNextMove() {
 		
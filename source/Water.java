@@ -42,4 +42,9 @@ public class Water extends DeadlyTile {
 	public char getSymbol() {
 		return SYMBOL;
 	}
+	
+	@Override
+	public boolean isShareable() {
+		return true;
+	}
 }